@@ -0,0 +1,383 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crawl Cache - HTTP revalidation cache for recrawls
+ *
+ * For every fetched page the cache keeps the ETag and Last-Modified
+ * response headers together with the extracted ScrapedData. On the next
+ * crawl WebScraper sends them back as If-None-Match / If-Modified-Since;
+ * if the server answers 304 Not Modified the page body is never
+ * transferred and the cached extraction is reused.
+ *
+ * On-disk format (a single append-only file):
+ *
+ *   header:  int magic
+ *   record:  long urlFingerprint, int length, byte[length] payload
+ *
+ * Keys are the 64-bit fingerprints of canonical URLs (see UrlSeenStore),
+ * payloads are binary with variable-length integers, and only an index of
+ * fingerprint -> file offset is kept in memory, in a primitive
+ * open-addressing map (about 32 bytes per URL, nothing boxed). Updating a page appends a
+ * new record; the file is compacted on close once more than half of it is
+ * superseded records. A record cut short by a crash is truncated on open.
+ *
+ * LEARNING OBJECTIVES:
+ * - Use conditional requests (ETag, Last-Modified) to skip unchanged pages
+ * - Build a log-structured key-value file with an in-memory index
+ * - Encode records compactly with variable-length integers
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class CrawlCache implements Closeable {
+    private static final int MAGIC = 0x43524331; // "CRC1"
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    private final Path file;
+    private FileChannel channel;
+    private UrlSeenStore.LongLongMap index = new UrlSeenStore.LongLongMap(1024);
+    private long fileEnd;
+    private long liveBytes;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Cached response validators and extraction for one URL
+     */
+    public static class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final String keyword;
+        private final WebScraper.ScrapedData data;
+
+        Entry(String etag, String lastModified, String keyword, WebScraper.ScrapedData data) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.keyword = keyword;
+            this.data = data;
+        }
+
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+
+        /**
+         * Keyword the page was checked against when it was extracted
+         */
+        public String getKeyword() { return keyword; }
+        public WebScraper.ScrapedData getData() { return data; }
+    }
+
+    public CrawlCache(Path file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Cached entry for a URL, or null
+     */
+    public synchronized Entry get(String url) throws IOException {
+        lookups.incrementAndGet();
+        String canonical = UrlSeenStore.canonicalize(url);
+        long offset = index.get(UrlSeenStore.fingerprint(canonical));
+        if (offset < 0) return null;
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(8));
+        readFully(payload, offset + RECORD_HEADER_SIZE);
+
+        Entry entry = decode(new DataInputStream(new ByteArrayInputStream(payload.array())));
+        // Guard against fingerprint collisions
+        if (!canonical.equals(UrlSeenStore.canonicalize(entry.getData().getUrl()))) return null;
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Store validators and extraction for a URL; pages without an ETag or
+     * Last-Modified header cannot be revalidated and are not stored
+     */
+    public synchronized void put(String url, String etag, String lastModified, String keyword,
+                                 WebScraper.ScrapedData data) throws IOException {
+        if (etag == null && lastModified == null) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        encode(new DataOutputStream(bytes), etag, lastModified, keyword, data);
+        long key = UrlSeenStore.fingerprint(UrlSeenStore.canonicalize(url));
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.size());
+        record.putLong(key).putInt(bytes.size()).put(bytes.toByteArray()).flip();
+        long offset = fileEnd;
+        while (record.hasRemaining()) {
+            channel.write(record, fileEnd + record.position());
+        }
+        fileEnd += record.limit();
+
+        long previous = index.put(key, offset);
+        if (previous >= 0) {
+            liveBytes -= recordSize(previous);
+        }
+        liveBytes += record.limit();
+    }
+
+    public synchronized int size() { return index.size(); }
+    public synchronized long getFileSize() { return fileEnd; }
+    public long getLookups() { return lookups.get(); }
+    public long getHits() { return hits.get(); }
+
+    /**
+     * Rewrite the file with only the latest record per URL
+     */
+    public synchronized void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        UrlSeenStore.LongLongMap compacted = new UrlSeenStore.LongLongMap(index.size() * 2);
+        long position = HEADER_SIZE;
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+            header.flip();
+            out.write(header);
+            for (int slot = 0; slot < index.capacity(); slot++) {
+                long key = index.keyAt(slot);
+                if (key == 0) continue;
+                long offset = index.valueAt(slot);
+                long size = recordSize(offset);
+                long copied = 0;
+                while (copied < size) {
+                    copied += channel.transferTo(offset + copied, size - copied, out);
+                }
+                compacted.put(key, position);
+                position += size;
+            }
+            out.force(false);
+        }
+
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = compacted;
+        fileEnd = position;
+        liveBytes = position - HEADER_SIZE;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null || !channel.isOpen()) return;
+        if (fileEnd - HEADER_SIZE > 2 * liveBytes) {
+            compact();
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    /**
+     * Open the file and rebuild the index from its records
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+            header.flip();
+            channel.write(header, 0);
+            fileEnd = HEADER_SIZE;
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                channel.close();
+                throw new IOException("Not a crawl cache file: " + file);
+            }
+            long position = HEADER_SIZE;
+            long size = channel.size();
+            while (position + RECORD_HEADER_SIZE <= size) {
+                long key = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || position + RECORD_HEADER_SIZE + length > size) break;
+                in.skipNBytes(length);
+
+                long previous = index.put(key, position);
+                if (previous >= 0) {
+                    liveBytes -= recordSize(previous);
+                }
+                position += RECORD_HEADER_SIZE + length;
+                liveBytes += RECORD_HEADER_SIZE + length;
+            }
+            fileEnd = position;
+        }
+
+        if (fileEnd < channel.size()) {
+            // Partial record from an interrupted write
+            channel.truncate(fileEnd);
+        }
+    }
+
+    private long recordSize(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, offset);
+        return RECORD_HEADER_SIZE + header.getInt(8);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated crawl cache record at " + position);
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Crawl the stub site twice with the same cache file: the second run
+     * revalidates every page and only downloads the ones that changed.
+     *
+     * Usage: java CrawlCache [pages] [latencyMs] [changedFraction]
+     */
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        double changedFraction = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        Path cacheFile = Files.createTempFile("crawl-cache", ".db");
+        Files.delete(cacheFile);
+
+        System.out.println("=== Crawl Cache Benchmark ===");
+        System.out.println("Pages: " + pages + ", latency: " + latencyMs + " ms, changed between runs: "
+            + (int) (changedFraction * 100) + "%");
+
+        try (StubWebSite site = StubWebSite.start(pages, 4, latencyMs)) {
+            crawl("First crawl (empty cache)", site, cacheFile);
+            int changed = site.changePages(changedFraction, 42);
+            System.out.println("\nChanged " + changed + " pages on the server");
+            crawl("Recrawl (revalidating)", site, cacheFile);
+        } finally {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    private static void crawl(String name, StubWebSite site, Path cacheFile) throws IOException {
+        long requestsBefore = site.getRequests();
+        long bytesBefore = site.getBytesSent();
+
+        // Reopened per run, as a daily recrawl would
+        CrawlCache cache = new CrawlCache(cacheFile);
+        WebScraper scraper = new WebScraper(32, Integer.MAX_VALUE);
+        scraper.setVerbose(false);
+        scraper.setPoliteness(0, 32);
+        scraper.setCrawlCache(cache);
+
+        long start = System.nanoTime();
+        scraper.scrape(site.pageUrl(0), "");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        scraper.shutdown();
+
+        System.out.println("\n" + name + ":");
+        System.out.println("  Pages scraped: " + scraper.getResultCount()
+            + " (" + scraper.getNotModifiedCount() + " served from cache via 304)");
+        System.out.println("  Requests: " + (site.getRequests() - requestsBefore));
+        System.out.printf("  Body bytes transferred: %,d%n", site.getBytesSent() - bytesBefore);
+        System.out.println("  Time: " + elapsedMs + " ms");
+        System.out.printf("  Cache: %d entries, %,d bytes on disk%n", cache.size(), Files.size(cacheFile));
+    }
+
+    private static void encode(DataOutputStream out, String etag, String lastModified, String keyword,
+                               WebScraper.ScrapedData data) throws IOException {
+        writeString(out, etag);
+        writeString(out, lastModified);
+        writeString(out, keyword);
+        writeString(out, data.getUrl());
+        writeString(out, data.getTitle());
+        writeString(out, data.getDescription());
+        writeList(out, data.getHeadings());
+        writeList(out, data.getLinks());
+        writeList(out, data.getImages());
+        out.writeBoolean(data.isContainsKeyword());
+        out.writeLong(data.getContentFingerprint());
+        out.flush();
+    }
+
+    private static Entry decode(DataInputStream in) throws IOException {
+        String etag = readString(in);
+        String lastModified = readString(in);
+        String keyword = readString(in);
+
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+        data.setUrl(readString(in));
+        data.setTitle(readString(in));
+        data.setDescription(readString(in));
+        readList(in, data.getHeadings());
+        readList(in, data.getLinks());
+        readList(in, data.getImages());
+        data.setContainsKeyword(in.readBoolean());
+        data.setContentFingerprint(in.readLong());
+        data.setTimestamp(new Date());
+        return new Entry(etag, lastModified, keyword, data);
+    }
+
+    /**
+     * Length-prefixed UTF-8; length 0 means null, otherwise length + 1
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) return null;
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        writeVarInt(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void readList(DataInputStream in, List<String> values) throws IOException {
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
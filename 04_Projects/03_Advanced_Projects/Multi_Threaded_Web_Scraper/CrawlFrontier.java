@@ -0,0 +1,253 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Crawl Frontier - Polite, prioritized URL scheduling for WebScraper
+ *
+ * A single shared queue lets one busy host monopolize every worker and gives
+ * workers no way to tell "momentarily empty" from "finished". The frontier
+ * fixes both:
+ *
+ * - Every host has its own queue, ordered by depth (shallow first), then by
+ *   score (high first), then by discovery order
+ * - A host is handed out at most maxConnectionsPerHost times concurrently and
+ *   no more often than its crawl delay allows
+ * - Among hosts that are allowed to go, the one with the best head request wins
+ * - take() blocks while work is queued or in flight and returns null only when
+ *   both are zero, so workers never exit early
+ *
+ * LEARNING OBJECTIVES:
+ * - Schedule work fairly across many producers (hosts)
+ * - Combine priority queues with time-based rate limiting
+ * - Detect termination of a self-feeding work queue
+ * - Coordinate threads with ReentrantLock and Condition
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class CrawlFrontier {
+    private static final Comparator<CrawlRequest> REQUEST_ORDER = Comparator
+        .comparingInt(CrawlRequest::getDepth)
+        .thenComparing(Comparator.comparingDouble(CrawlRequest::getScore).reversed())
+        .thenComparingLong(r -> r.sequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final PriorityQueue<HostQueue> readyHosts =
+        new PriorityQueue<>((a, b) -> REQUEST_ORDER.compare(a.queue.peek(), b.queue.peek()));
+    private final PriorityQueue<HostQueue> delayedHosts =
+        new PriorityQueue<>(Comparator.comparingLong(h -> h.nextAllowedNanos));
+
+    private final long defaultCrawlDelayNanos;
+    private final int maxConnectionsPerHost;
+    private long sequence;
+    private int queued;
+    private int inFlight;
+
+    public CrawlFrontier(long defaultCrawlDelayMs, int maxConnectionsPerHost) {
+        this.defaultCrawlDelayNanos = TimeUnit.MILLISECONDS.toNanos(defaultCrawlDelayMs);
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * Override the crawl delay for one host (e.g. from robots.txt)
+     */
+    public void setCrawlDelay(String host, long delayMs) {
+        lock.lock();
+        try {
+            hostQueue(host).crawlDelayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a URL; returns false if it has no host
+     */
+    public boolean offer(String url, int depth, double score) {
+        String host = hostOf(url);
+        if (host == null) return false;
+
+        lock.lock();
+        try {
+            HostQueue hostQueue = hostQueue(host);
+            CrawlRequest request = new CrawlRequest(url, host, depth, score, sequence++);
+
+            boolean newHead = hostQueue.queue.isEmpty() || REQUEST_ORDER.compare(request, hostQueue.queue.peek()) < 0;
+            if (newHead && hostQueue.scheduled && readyHosts.remove(hostQueue)) {
+                // Re-insert so the ready ordering sees the better head
+                hostQueue.queue.add(request);
+                readyHosts.add(hostQueue);
+            } else {
+                hostQueue.queue.add(request);
+            }
+
+            queued++;
+            scheduleIfEligible(hostQueue, System.nanoTime());
+            changed.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Next request to fetch. Blocks until one is allowed to go, and returns
+     * null once nothing is queued and nothing is in flight.
+     */
+    public CrawlRequest take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                promoteDelayedHosts(now);
+
+                HostQueue hostQueue = readyHosts.poll();
+                if (hostQueue != null) {
+                    hostQueue.scheduled = false;
+                    CrawlRequest request = hostQueue.queue.poll();
+                    hostQueue.active++;
+                    hostQueue.nextAllowedNanos = now + hostQueue.crawlDelayNanos;
+                    queued--;
+                    inFlight++;
+                    scheduleIfEligible(hostQueue, now);
+                    return request;
+                }
+
+                if (queued == 0 && inFlight == 0) {
+                    changed.signalAll();
+                    return null;
+                }
+
+                HostQueue next = delayedHosts.peek();
+                if (next != null) {
+                    changed.awaitNanos(Math.max(1, next.nextAllowedNanos - now));
+                } else {
+                    changed.await();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called once for every request returned by take(), after any
+     * links it produced have been offered
+     */
+    public void complete(CrawlRequest request) {
+        lock.lock();
+        try {
+            HostQueue hostQueue = hosts.get(request.getHost());
+            hostQueue.active--;
+            inFlight--;
+            scheduleIfEligible(hostQueue, System.nanoTime());
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private HostQueue hostQueue(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostQueue(defaultCrawlDelayNanos));
+    }
+
+    private void scheduleIfEligible(HostQueue hostQueue, long now) {
+        if (hostQueue.scheduled || hostQueue.queue.isEmpty() || hostQueue.active >= maxConnectionsPerHost) {
+            return;
+        }
+        hostQueue.scheduled = true;
+        if (hostQueue.nextAllowedNanos <= now) {
+            readyHosts.add(hostQueue);
+        } else {
+            delayedHosts.add(hostQueue);
+        }
+    }
+
+    private void promoteDelayedHosts(long now) {
+        HostQueue hostQueue;
+        while ((hostQueue = delayedHosts.peek()) != null && hostQueue.nextAllowedNanos <= now) {
+            readyHosts.add(delayedHosts.poll());
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? null : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Per-host queue and politeness state (guarded by the frontier lock)
+     */
+    private static class HostQueue {
+        private final PriorityQueue<CrawlRequest> queue = new PriorityQueue<>(REQUEST_ORDER);
+        private long crawlDelayNanos;
+        private long nextAllowedNanos;
+        private int active;
+        private boolean scheduled;
+
+        HostQueue(long crawlDelayNanos) {
+            this.crawlDelayNanos = crawlDelayNanos;
+            this.nextAllowedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * A URL waiting in, or handed out by, the frontier
+     */
+    public static class CrawlRequest {
+        private final String url;
+        private final String host;
+        private final int depth;
+        private final double score;
+        private final long sequence;
+
+        CrawlRequest(String url, String host, int depth, double score, long sequence) {
+            this.url = url;
+            this.host = host;
+            this.depth = depth;
+            this.score = score;
+            this.sequence = sequence;
+        }
+
+        public String getUrl() { return url; }
+        public String getHost() { return host; }
+        public int getDepth() { return depth; }
+        public double getScore() { return score; }
+
+        @Override
+        public String toString() {
+            return "CrawlRequest{url='" + url + "', depth=" + depth + ", score=" + score + '}';
+        }
+    }
+}
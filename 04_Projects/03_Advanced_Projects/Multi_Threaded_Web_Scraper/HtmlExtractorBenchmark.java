@@ -0,0 +1,188 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HTML Extractor Benchmark - Regex extraction vs HtmlStreamExtractor
+ *
+ * Runs both extraction approaches over a corpus of saved pages and reports
+ * pages/sec and MB/sec. The regex baseline is the original WebScraper code:
+ * the page is read line by line into a String and six Patterns are compiled
+ * and scanned per page.
+ *
+ * Usage: java HtmlExtractorBenchmark [corpusDirectory] [iterations]
+ *
+ * Without a directory a synthetic corpus of 500 pages is generated.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class HtmlExtractorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        List<byte[]> corpus = args.length > 0 && !args[0].isEmpty()
+            ? loadCorpus(Paths.get(args[0]))
+            : syntheticCorpus(500);
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long totalBytes = corpus.stream().mapToLong(page -> page.length).sum();
+
+        System.out.println("=== HTML Extraction Benchmark ===");
+        System.out.printf("Pages: %d, corpus size: %.1f MB, iterations: %d%n",
+            corpus.size(), totalBytes / (1024.0 * 1024), iterations);
+
+        HtmlStreamExtractor extractor = new HtmlStreamExtractor();
+        String keyword = "performance";
+
+        // Warm up both paths
+        for (byte[] page : corpus) {
+            regexExtract(page, keyword);
+            extractor.extract("http://example.com/", new ByteArrayInputStream(page), StandardCharsets.UTF_8, keyword);
+        }
+
+        long regexLinks = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] page : corpus) {
+                regexLinks += regexExtract(page, keyword).getLinks().size();
+            }
+        }
+        long regexNs = System.nanoTime() - start;
+
+        long streamLinks = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] page : corpus) {
+                streamLinks += extractor.extract("http://example.com/", new ByteArrayInputStream(page),
+                    StandardCharsets.UTF_8, keyword).getLinks().size();
+            }
+        }
+        long streamNs = System.nanoTime() - start;
+
+        report("Regex (original)", regexNs, corpus.size() * iterations, totalBytes * iterations, regexLinks);
+        report("Single-pass stream", streamNs, corpus.size() * iterations, totalBytes * iterations, streamLinks);
+        System.out.printf("Speedup: %.2fx%n", (double) regexNs / streamNs);
+    }
+
+    private static void report(String name, long nanos, long pages, long bytes, long links) {
+        double seconds = nanos / 1e9;
+        System.out.println("\n" + name + ":");
+        System.out.printf("  Pages/sec: %,.0f%n", pages / seconds);
+        System.out.printf("  MB/sec: %.1f%n", bytes / (1024.0 * 1024) / seconds);
+        System.out.println("  Links extracted: " + links);
+    }
+
+    private static List<byte[]> loadCorpus(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> pages = files
+                .filter(Files::isRegularFile)
+                .filter(file -> file.toString().endsWith(".html") || file.toString().endsWith(".htm"))
+                .collect(Collectors.toList());
+            List<byte[]> corpus = new ArrayList<>();
+            for (Path page : pages) {
+                corpus.add(Files.readAllBytes(page));
+            }
+            return corpus;
+        }
+    }
+
+    /**
+     * Pages shaped like typical articles: scripts, navigation, headings,
+     * paragraphs, links and images
+     */
+    private static List<byte[]> syntheticCorpus(int pageCount) {
+        Random random = new Random(42);
+        List<byte[]> corpus = new ArrayList<>();
+
+        for (int p = 0; p < pageCount; p++) {
+            StringBuilder html = new StringBuilder(32 * 1024);
+            html.append("<!DOCTYPE html>\n<html><head>\n<title>Article ").append(p).append("</title>\n");
+            html.append("<meta name=\"description\" content=\"Description of article ").append(p).append("\">\n");
+            html.append("<script>var data = {\"a\": \"<a href='x'>\"};</script>\n");
+            html.append("<style>body { font-family: sans-serif; }</style>\n</head><body>\n");
+            html.append("<nav>");
+            for (int i = 0; i < 30; i++) {
+                html.append("<a href=\"/section/").append(i).append("\">Section ").append(i).append("</a>\n");
+            }
+            html.append("</nav>\n");
+
+            for (int s = 0; s < 10; s++) {
+                html.append("<h2 class=\"title\">Heading <em>").append(s).append("</em></h2>\n");
+                for (int para = 0; para < 5; para++) {
+                    html.append("<p>");
+                    for (int w = 0; w < 60; w++) {
+                        html.append(random.nextInt(50) == 0 ? "performance" : "lorem").append(' ');
+                    }
+                    html.append("<a href=\"/article/").append(random.nextInt(100000)).append("\">more</a></p>\n");
+                }
+                html.append("<img src=\"/images/").append(p).append('_').append(s).append(".png\" alt=\"\">\n");
+            }
+            html.append("</body></html>\n");
+            corpus.add(html.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return corpus;
+    }
+
+    /**
+     * The original WebScraper readContent + extractData + extractLinks
+     */
+    private static WebScraper.ScrapedData regexExtract(byte[] page, String keyword) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(page)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append("\n");
+            }
+        }
+        String content = builder.toString();
+
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+        Matcher titleMatcher = Pattern.compile("<title>(.*?)</title>", Pattern.CASE_INSENSITIVE).matcher(content);
+        if (titleMatcher.find()) {
+            data.setTitle(titleMatcher.group(1).trim());
+        }
+        Matcher descMatcher = Pattern.compile("<meta\\s+name=\"description\"\\s+content=\"(.*?)\"",
+            Pattern.CASE_INSENSITIVE).matcher(content);
+        if (descMatcher.find()) {
+            data.setDescription(descMatcher.group(1).trim());
+        }
+        Matcher headingMatcher = Pattern.compile("<h[1-6][^>]*>(.*?)</h[1-6]>", Pattern.CASE_INSENSITIVE)
+            .matcher(content);
+        while (headingMatcher.find()) {
+            String heading = headingMatcher.group(1).replaceAll("<[^>]+>", "").trim();
+            if (!heading.isEmpty()) {
+                data.getHeadings().add(heading);
+            }
+        }
+        Matcher linkMatcher = Pattern.compile("<a[^>]+href=\"([^\"]+)\"[^>]*>(.*?)</a>", Pattern.CASE_INSENSITIVE)
+            .matcher(content);
+        while (linkMatcher.find()) {
+            String link = linkMatcher.group(1).trim();
+            if (!link.isEmpty() && !link.startsWith("#")) {
+                data.getLinks().add(link);
+            }
+        }
+        Matcher imgMatcher = Pattern.compile("<img[^>]+src=\"([^\"]+)\"[^>]*>", Pattern.CASE_INSENSITIVE)
+            .matcher(content);
+        while (imgMatcher.find()) {
+            data.getImages().add(imgMatcher.group(1).trim());
+        }
+        if (!keyword.isEmpty()) {
+            data.setContainsKeyword(content.toLowerCase().contains(keyword.toLowerCase()));
+        }
+
+        // extractLinks compiled and scanned the link pattern a second time
+        Matcher followMatcher = Pattern.compile("<a[^>]+href=\"([^\"]+)\"[^>]*>", Pattern.CASE_INSENSITIVE)
+            .matcher(content);
+        while (followMatcher.find()) {
+            followMatcher.group(1);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,302 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keyed Serial Executor - FIFO per key, parallel across keys
+ *
+ * Tasks with the same key (an account, a user...) run one at a time in
+ * submission order; tasks with different keys run in parallel on a shared
+ * executor. Each key with work pending has a small queue of its own, and at
+ * most one drain task for it is on the shared executor at any time.
+ *
+ * There is no global lock. The per-key queues live in a ConcurrentHashMap
+ * and are only changed inside compute(), which locks just the hash bin of
+ * that key. A key's queue is removed as soon as its last task finishes,
+ * so idle keys take no memory.
+ *
+ * A drain runs at most BATCH tasks of its key and then goes back to the
+ * end of the shared queue, so one busy key cannot hold a thread forever.
+ *
+ * LEARNING OBJECTIVES:
+ * - Serialize work per key without a global lock
+ * - Use ConcurrentHashMap.compute for atomic per-key state changes
+ * - Multiplex many logical queues onto one thread pool
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class KeyedSerialExecutor {
+    private static final int BATCH = 32;
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Object, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Tasks of one key. pending is only changed inside queues.compute for
+     * that key; tasks is a concurrent queue so the drain can poll it freely.
+     */
+    private static class KeyQueue {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        int pending;
+    }
+
+    public KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run the task after every task submitted earlier with an equal key
+     *
+     * @throws RejectedExecutionException if the key was idle and the
+     *         shared executor refused to start a drain for it
+     */
+    public void execute(Object key, Runnable task) {
+        boolean[] first = new boolean[1];
+        KeyQueue queue = queues.compute(key, (k, q) -> {
+            if (q == null) {
+                q = new KeyQueue();
+            }
+            q.tasks.add(task);
+            first[0] = ++q.pending == 1;
+            return q;
+        });
+
+        if (first[0]) {
+            try {
+                executor.execute(() -> drain(key, queue));
+            } catch (RejectedExecutionException e) {
+                withdraw(key, queue, task);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Keys with queued or running tasks
+     */
+    public int getActiveKeys() {
+        return queues.size();
+    }
+
+    private void drain(Object key, KeyQueue queue) {
+        boolean idle = false;
+        try {
+            for (int i = 0; i < BATCH && !idle; i++) {
+                Runnable task = queue.tasks.poll();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Keyed task failed: " + e.getMessage());
+                } finally {
+                    // Counted even when the task throws an Error
+                    idle = finished(key, queue);
+                }
+            }
+        } finally {
+            if (!idle) {
+                // More of this key is waiting, or an Error ended the batch;
+                // let other keys have the thread
+                try {
+                    executor.execute(() -> drain(key, queue));
+                } catch (RejectedExecutionException e) {
+                    drain(key, queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Take back a task whose drain could not be started. Tasks that other
+     * threads queued behind it in the meantime were already accepted, so
+     * they are drained on this thread.
+     */
+    private void withdraw(Object key, KeyQueue queue, Runnable task) {
+        boolean[] others = new boolean[1];
+        queues.compute(key, (k, q) -> {
+            q.tasks.remove(task);
+            others[0] = --q.pending > 0;
+            return others[0] ? q : null;
+        });
+        if (others[0]) {
+            drain(key, queue);
+        }
+    }
+
+    /**
+     * Count one task as done; true if the key has nothing left and was removed
+     */
+    private boolean finished(Object key, KeyQueue queue) {
+        boolean[] idle = new boolean[1];
+        queues.compute(key, (k, q) -> {
+            idle[0] = --q.pending == 0;
+            return idle[0] ? null : q;
+        });
+        return idle[0];
+    }
+
+    /**
+     * Ordered per-key work on a shared pool, compared with the usual
+     * alternative of hashing keys onto single-thread executors (stripes).
+     * Tasks block briefly, like a small database write. With skewed keys,
+     * a stripe holding a hot key also delays every other key hashed to it.
+     *
+     * Usage: java KeyedSerialExecutor [tasks] [keys] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 40_000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        long taskNanos = TimeUnit.MICROSECONDS.toNanos(50);
+
+        System.out.println("=== Keyed Serial Executor Benchmark ===");
+        System.out.println("Tasks: " + tasks + ", keys: " + keys + ", threads: " + threads
+            + ", task: 50us blocking");
+
+        int[] uniform = new int[tasks];
+        int[] skewed = new int[tasks];
+        Random random = new Random(42);
+        double[] zipf = zipfCumulative(keys, 1.1);
+        for (int i = 0; i < tasks; i++) {
+            uniform[i] = random.nextInt(keys);
+            skewed[i] = sample(zipf, random.nextDouble());
+        }
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            for (int[] keySequence : new int[][] {uniform, skewed}) {
+                String distribution = keySequence == uniform ? "uniform" : "zipf(1.1)";
+                runKeyed(keySequence, keys, threads, taskNanos, report ? distribution : null);
+                runStriped(keySequence, keys, threads, taskNanos, report ? distribution : null);
+            }
+        }
+    }
+
+    private static void runKeyed(int[] keySequence, int keys, int threads, long taskNanos, String label)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        OrderChecker checker = new OrderChecker(keys, keySequence.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < keySequence.length; i++) {
+            int key = keySequence[i];
+            int sequence = i;
+            long submitted = System.nanoTime();
+            executor.execute(key, () -> checker.run(key, sequence, submitted, taskNanos));
+        }
+        checker.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        int activeKeys = executor.getActiveKeys();
+
+        if (label != null) {
+            report("Keyed executor, " + label, elapsed, keySequence.length, checker);
+            System.out.println("  Key queues left after completion: " + activeKeys);
+        }
+    }
+
+    private static void runStriped(int[] keySequence, int keys, int threads, long taskNanos, String label)
+            throws Exception {
+        ExecutorService[] stripes = new ExecutorService[threads];
+        for (int s = 0; s < threads; s++) {
+            stripes[s] = Executors.newSingleThreadExecutor();
+        }
+        OrderChecker checker = new OrderChecker(keys, keySequence.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < keySequence.length; i++) {
+            int key = keySequence[i];
+            int sequence = i;
+            long submitted = System.nanoTime();
+            stripes[Math.floorMod(Integer.hashCode(key) * 0x9E3779B9, threads)]
+                .execute(() -> checker.run(key, sequence, submitted, taskNanos));
+        }
+        checker.await();
+        long elapsed = System.nanoTime() - start;
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+
+        if (label != null) {
+            report("Striped single-thread executors, " + label, elapsed, keySequence.length, checker);
+        }
+    }
+
+    private static void report(String name, long nanos, int tasks, OrderChecker checker) {
+        System.out.println("\n" + name + ":");
+        System.out.printf("  Time: %d ms, %,.0f tasks/sec, order violations: %d, max concurrent per key: %d%n",
+            TimeUnit.NANOSECONDS.toMillis(nanos), tasks / (nanos / 1e9),
+            checker.violations.get(), checker.maxConcurrentPerKey.get());
+        System.out.println("  Latency of keys other than the hottest, p50/p99: "
+            + LatencyHistogram.format(checker.otherKeys.getValueAtPercentile(50)) + " / "
+            + LatencyHistogram.format(checker.otherKeys.getValueAtPercentile(99)));
+    }
+
+    /**
+     * Checks that each key sees its tasks in submission order, one at a time
+     */
+    private static class OrderChecker {
+        final long[] lastSequence;
+        final AtomicInteger[] running;
+        final AtomicLong violations = new AtomicLong();
+        final AtomicInteger maxConcurrentPerKey = new AtomicInteger();
+        final LatencyHistogram otherKeys = new LatencyHistogram();
+        final CountDownLatch done;
+
+        OrderChecker(int keys, int tasks) {
+            lastSequence = new long[keys];
+            Arrays.fill(lastSequence, -1);
+            running = new AtomicInteger[keys];
+            for (int k = 0; k < keys; k++) {
+                running[k] = new AtomicInteger();
+            }
+            done = new CountDownLatch(tasks);
+        }
+
+        void run(int key, int sequence, long submitted, long taskNanos) {
+            int concurrent = running[key].incrementAndGet();
+            maxConcurrentPerKey.accumulateAndGet(concurrent, Math::max);
+            if (sequence <= lastSequence[key]) {
+                violations.incrementAndGet();
+            }
+            lastSequence[key] = sequence;
+            LockSupport.parkNanos(taskNanos);
+            running[key].decrementAndGet();
+            if (key != 0) {
+                // Key 0 is the hottest one in the zipf sequence
+                otherKeys.record(System.nanoTime() - submitted);
+            }
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            done.await();
+        }
+    }
+
+    private static double[] zipfCumulative(int keys, double exponent) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < keys; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, double u) {
+        int index = Arrays.binarySearch(cumulative, u);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
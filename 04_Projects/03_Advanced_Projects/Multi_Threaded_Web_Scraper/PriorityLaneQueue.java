@@ -0,0 +1,412 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority Lane Queue - Work queue with FIFO lanes by priority
+ *
+ * A BlockingQueue for ThreadPoolExecutor that keeps one FIFO lane per
+ * priority. Workers take from the highest non-empty lane, so urgent tasks
+ * overtake a backlog of bulk work instead of waiting behind it.
+ *
+ * Strict priority would starve the low lanes while high-priority work keeps
+ * coming, so lanes age: once the oldest task of a lower lane has waited
+ * longer than the starvation threshold, it is served ahead of higher lanes,
+ * but on at most one take in AGED_SHARE. Aged work is guaranteed progress
+ * and fresh high-priority work still gets most of the threads.
+ *
+ * Tasks carry their lane by implementing Prioritized; any other Runnable
+ * goes to the default lane. offerAll adds a whole batch under a single lock
+ * acquisition and wakes as many workers as it added tasks.
+ *
+ * LEARNING OBJECTIVES:
+ * - Implement a BlockingQueue with ReentrantLock and Condition
+ * - Avoid starvation in priority scheduling with aging
+ * - Amortize synchronization by batching
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class PriorityLaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    private static final int AGED_SHARE = 4;
+
+    /**
+     * A task that knows its lane; 0 is the highest priority
+     */
+    public interface Prioritized {
+        int lane();
+    }
+
+    private static class Entry {
+        final Runnable task;
+        final long enqueued;
+
+        Entry(Runnable task, long enqueued) {
+            this.task = task;
+            this.enqueued = enqueued;
+        }
+    }
+
+    private final ArrayDeque<Entry>[] lanes;
+    private final int defaultLane;
+    private final int capacity;
+    private final long starvationNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int count;
+    private int takesSinceAged;
+    private long agedTakes;
+
+    /**
+     * @param lanes           number of priority lanes
+     * @param defaultLane     lane for tasks that are not Prioritized
+     * @param capacity        total capacity over all lanes
+     * @param starvationNanos wait after which a lower lane's task is aged
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityLaneQueue(int lanes, int defaultLane, int capacity, long starvationNanos) {
+        if (lanes <= 0 || defaultLane < 0 || defaultLane >= lanes || capacity <= 0) {
+            throw new IllegalArgumentException("Invalid lane queue configuration");
+        }
+        this.lanes = new ArrayDeque[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new ArrayDeque<>();
+        }
+        this.defaultLane = defaultLane;
+        this.capacity = capacity;
+        this.starvationNanos = starvationNanos;
+    }
+
+    // --- Producers ---
+
+    @Override
+    public boolean offer(Runnable task) {
+        Entry entry = new Entry(Objects.requireNonNull(task), System.nanoTime());
+        lock.lock();
+        try {
+            if (count == capacity) {
+                return false;
+            }
+            insert(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        Entry entry = new Entry(Objects.requireNonNull(task), System.nanoTime());
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        Entry entry = new Entry(Objects.requireNonNull(task), System.nanoTime());
+        lock.lockInterruptibly();
+        try {
+            while (count == capacity) {
+                notFull.await();
+            }
+            insert(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add all tasks, or none if they do not fit
+     */
+    public boolean offerAll(Collection<? extends Runnable> tasks) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (capacity - count < tasks.size()) {
+                return false;
+            }
+            for (Runnable task : tasks) {
+                lanes[laneOf(task)].addLast(new Entry(Objects.requireNonNull(task), now));
+            }
+            count += tasks.size();
+            for (int i = 0; i < tasks.size(); i++) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(Entry entry) {
+        lanes[laneOf(entry.task)].addLast(entry);
+        count++;
+        notEmpty.signal();
+    }
+
+    private int laneOf(Runnable task) {
+        if (task instanceof Prioritized) {
+            int lane = ((Prioritized) task).lane();
+            return Math.max(0, Math.min(lanes.length - 1, lane));
+        }
+        return defaultLane;
+    }
+
+    // --- Consumers ---
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : extract();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return extract();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return extract();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<Entry> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst().task;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Highest non-empty lane, unless a lower lane's head has starved and
+     * aged work has not had its share yet
+     */
+    private Runnable extract() {
+        int top = 0;
+        while (lanes[top].isEmpty()) {
+            top++;
+        }
+
+        if (++takesSinceAged >= AGED_SHARE) {
+            long now = System.nanoTime();
+            for (int i = lanes.length - 1; i > top; i--) {
+                Entry head = lanes[i].peekFirst();
+                if (head != null && now - head.enqueued >= starvationNanos) {
+                    takesSinceAged = 0;
+                    agedTakes++;
+                    return remove(i);
+                }
+            }
+        }
+        return remove(top);
+    }
+
+    private Runnable remove(int lane) {
+        Entry entry = lanes[lane].pollFirst();
+        count--;
+        notFull.signal();
+        return entry.task;
+    }
+
+    // --- Bookkeeping ---
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tasks queued in one lane
+     */
+    public int size(int lane) {
+        lock.lock();
+        try {
+            return lanes[lane].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes that served a starved lower lane ahead of a higher one
+     */
+    public long getAgedTakes() {
+        lock.lock();
+        try {
+            return agedTakes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            for (ArrayDeque<Entry> lane : lanes) {
+                Iterator<Entry> it = lane.iterator();
+                while (it.hasNext()) {
+                    if (it.next().task.equals(o)) {
+                        it.remove();
+                        count--;
+                        notFull.signal();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> target, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxElements) {
+                target.add(extract());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Snapshot iterator, highest lane first; does not see later changes.
+     * remove() takes the task out of its lane in the live queue, which is
+     * how ThreadPoolExecutor.purge() drops cancelled tasks.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        Entry[] entries;
+        int[] entryLanes;
+        lock.lock();
+        try {
+            entries = new Entry[count];
+            entryLanes = new int[count];
+            int i = 0;
+            for (int lane = 0; lane < lanes.length; lane++) {
+                for (Entry entry : lanes[lane]) {
+                    entries[i] = entry;
+                    entryLanes[i++] = lane;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return new Iterator<Runnable>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < entries.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                last = next++;
+                return entries[last].task;
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                removeEntry(entryLanes[last], entries[last]);
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Remove this exact entry from its lane if it is still queued
+     */
+    private void removeEntry(int lane, Entry entry) {
+        lock.lock();
+        try {
+            // Entry has identity equality, so a duplicate task is left alone
+            if (lanes[lane].removeFirstOccurrence(entry)) {
+                count--;
+                notFull.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stub Web Site - Local HTTP server for WebScraper benchmarks
+ *
+ * Serves a synthetic site of linked HTML pages from the JDK's built-in
+ * HttpServer and injects a fixed latency per request, so crawl engines can
+ * be compared without touching the network.
+ *
+ * Page i links to pages i*k+1 .. i*k+k (a k-ary tree, so every page is
+ * reachable) plus one cross link to create duplicate discoveries.
+ *
+ * Every page has a revision. Responses carry an ETag and Last-Modified
+ * derived from it, and conditional requests for an unchanged page are
+ * answered with 304 Not Modified and no body.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class StubWebSite implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int pageCount;
+    private final int linksPerPage;
+    private final long latencyMs;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicIntegerArray revisions;
+    private static final ZonedDateTime EPOCH = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private StubWebSite(int pageCount, int linksPerPage, long latencyMs) throws IOException {
+        this.pageCount = pageCount;
+        this.linksPerPage = linksPerPage;
+        this.latencyMs = latencyMs;
+        this.revisions = new AtomicIntegerArray(pageCount);
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Create the site and start serving; the handler is registered only
+     * once the site is fully constructed
+     */
+    public static StubWebSite start(int pageCount, int linksPerPage, long latencyMs) throws IOException {
+        StubWebSite site = new StubWebSite(pageCount, linksPerPage, latencyMs);
+        site.server.createContext("/", site::handle);
+        site.server.start();
+        return site;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            int page = path.startsWith("/page/") ? Integer.parseInt(path.substring(6)) : -1;
+            if (page < 0 || page >= pageCount) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            int revision = revisions.get(page);
+            String etag = "\"" + page + "-" + revision + "\"";
+            String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(EPOCH.plusHours(revision));
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", lastModified);
+            if (isNotModified(exchange, etag, revision)) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = renderPage(page).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            bytesSent.addAndGet(body.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (NumberFormatException e) {
+            exchange.sendResponseHeaders(404, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * If-None-Match takes precedence over If-Modified-Since (RFC 9110)
+     */
+    private boolean isNotModified(HttpExchange exchange, String etag, int revision) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.equals(etag);
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return !EPOCH.plusHours(revision).isAfter(since);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publish a new revision of a random fraction of the pages; returns how many changed
+     */
+    public int changePages(double fraction, long seed) {
+        Random random = new Random(seed);
+        int changed = 0;
+        for (int page = 0; page < pageCount; page++) {
+            if (random.nextDouble() < fraction) {
+                revisions.incrementAndGet(page);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * HTML for one synthetic page
+     */
+    String renderPage(int page) {
+        StringBuilder html = new StringBuilder(1024);
+        html.append("<html><head><title>Page ").append(page).append("</title>\n");
+        html.append("<meta name=\"description\" content=\"Synthetic page ").append(page).append("\">\n");
+        html.append("</head><body>\n<h1>Heading ").append(page).append("</h1>\n");
+        html.append("<p>Lorem ipsum dolor sit amet, page ").append(page).append(" of the stub site, revision ")
+            .append(revisions.get(page)).append(".</p>\n");
+
+        // Page-specific body text so pages are not near-duplicates of each other
+        Random words = new Random(page);
+        html.append("<p>");
+        for (int i = 0; i < 80; i++) {
+            html.append("term").append(words.nextInt(10000)).append(' ');
+        }
+        html.append("</p>\n");
+
+        for (int i = 1; i <= linksPerPage; i++) {
+            long child = (long) page * linksPerPage + i;
+            if (child < pageCount) {
+                html.append("<a href=\"/page/").append(child).append("\">Child ").append(child).append("</a>\n");
+            }
+        }
+        int cross = (int) ((page * 31L + 7) % pageCount);
+        html.append("<a href=\"/page/").append(cross).append("\">Related</a>\n");
+        html.append("<img src=\"/img/").append(page).append(".png\">\n");
+        html.append("</body></html>\n");
+        return html.toString();
+    }
+
+    public String pageUrl(int page) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/page/" + page;
+    }
+
+    public long getRequests() { return requests.get(); }
+    public long getBytesSent() { return bytesSent.get(); }
+    public long getNotModified() { return notModified.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
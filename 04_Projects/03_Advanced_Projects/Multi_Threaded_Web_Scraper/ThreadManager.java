@@ -1,7 +1,12 @@
 package com.tutorial.projects.advanced.webscraper;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Thread Manager - Advanced Thread Management
@@ -9,6 +14,35 @@ import java.util.concurrent.atomic.AtomicInteger;
  * This class demonstrates advanced thread management concepts
  * including thread pools, synchronization, and performance monitoring.
  * 
+ * Tasks run on one of three execution back-ends, chosen with the builder:
+ * 
+ * - FIXED_POOL: ThreadPoolExecutor with a fixed number of threads
+ * - WORK_STEALING: ForkJoinPool; tasks submitted from a worker go to its
+ *   own deque, idle workers steal, and a worker waiting on a child future
+ *   runs other tasks instead of blocking (CPU-bound fan-out)
+ * - VIRTUAL_THREADS: a new virtual thread per task (I/O-bound work, Java 21+)
+ * 
+ * A FIXED_POOL can be given a bounded queue and a rejection policy for
+ * when it is full (run in the caller, block with a timeout, or shed), so
+ * overload turns into backpressure or fast failures instead of an ever
+ * longer queue. It can also resize itself: every ADAPT_INTERVAL_MILLIS an
+ * AdaptivePoolSizer picks a size between a minimum and maxThreads from the
+ * observed arrival rate, execution time, queue wait and throughput.
+ * 
+ * submitOrdered runs tasks with the same key (an account, a user...)
+ * one at a time in submission order, while different keys run in parallel
+ * on the same back-end (see KeyedSerialExecutor).
+ * 
+ * A FIXED_POOL can also queue by Priority (see PriorityLaneQueue): HIGH
+ * tasks overtake a backlog of LOW bulk work, and LOW tasks that have
+ * waited past a starvation threshold still get a share of the threads.
+ * submitBatch queues many tasks in one step and returns one future for
+ * all of their results.
+ * 
+ * Tasks can be submitted with a task type. For every type the manager
+ * records how long tasks waited in the queue and how long they ran, in
+ * lock-free LatencyHistograms, and reports p50/p99/p999 and throughput.
+ * 
  * LEARNING OBJECTIVES:
  * - Implement advanced thread management
  * - Use thread pools and executors effectively
@@ -16,22 +50,92 @@ import java.util.concurrent.atomic.AtomicInteger;
  * - Handle thread synchronization and coordination
  * - Apply concurrent programming best practices
  * - Build high-performance multi-threaded applications
+ * - Match the executor to the workload (CPU-bound vs I/O-bound)
  * 
  * @author Rahul Kant Jha
  * @version 1.0
  * @since 2024
  */
 public class ThreadManager {
+    /**
+     * Execution back-end for submitted tasks
+     */
+    public enum ExecutionMode {
+        /** ThreadPoolExecutor; unbounded queue and fixed size unless configured */
+        FIXED_POOL,
+        /** Work-stealing ForkJoinPool for CPU-bound fan-out */
+        WORK_STEALING,
+        /** One virtual thread per task for I/O-bound work */
+        VIRTUAL_THREADS
+    }
+    
+    /**
+     * What submitTask does when a bounded FIXED_POOL queue is full
+     */
+    public enum RejectionPolicy {
+        /** Run the task on the submitting thread, which slows the producer down */
+        CALLER_RUNS,
+        /** Wait for queue space up to the configured timeout, then reject */
+        BLOCK,
+        /** Reject at once with RejectedExecutionException */
+        SHED
+    }
+    
+    /**
+     * Lane for a task; only a FIXED_POOL with priority lanes honours it,
+     * other back-ends run everything in submission order
+     */
+    public enum Priority {
+        /** Latency-sensitive work, served first */
+        HIGH,
+        NORMAL,
+        /** Bulk work, served when nothing else waits or once it has aged */
+        LOW
+    }
+    
+    private static final long ADAPT_INTERVAL_MILLIS = 200;
+    
+    private final ExecutionMode mode;
+    private final int maxThreads;
+    private final int minThreads;
+    private final long monitorIntervalMillis;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final long blockTimeoutNanos;
+    private final AdaptivePoolSizer poolSizer;
+    private final long starvationNanos;
+    private PriorityLaneQueue laneQueue;
     private ExecutorService executorService;
     private ScheduledExecutorService scheduledExecutor;
+    private final KeyedSerialExecutor keyedExecutor;
     private AtomicInteger activeThreads;
     private AtomicInteger completedTasks;
     private AtomicInteger failedTasks;
+    private final AtomicInteger rejectedTasks = new AtomicInteger();
+    private final LongAdder submittedTasks = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
     private long startTime;
     private boolean isRunning;
+    private final ConcurrentHashMap<String, TaskMetrics> taskMetrics = new ConcurrentHashMap<>();
+    
+    public static final String DEFAULT_TASK_TYPE = "default";
     
     public ThreadManager(int maxThreads) {
-        this.executorService = Executors.newFixedThreadPool(maxThreads);
+        this(builder().maxThreads(maxThreads));
+    }
+    
+    private ThreadManager(Builder builder) {
+        this.mode = builder.mode;
+        this.maxThreads = builder.maxThreads;
+        this.minThreads = builder.minThreads;
+        this.monitorIntervalMillis = builder.monitorIntervalMillis;
+        this.queueCapacity = builder.queueCapacity;
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.blockTimeoutNanos = builder.blockTimeoutNanos;
+        this.starvationNanos = builder.starvationNanos;
+        this.poolSizer = minThreads > 0 ? new AdaptivePoolSizer(minThreads, maxThreads) : null;
+        this.executorService = createExecutor();
+        this.keyedExecutor = new KeyedSerialExecutor(executorService);
         this.scheduledExecutor = Executors.newScheduledThreadPool(2);
         this.activeThreads = new AtomicInteger(0);
         this.completedTasks = new AtomicInteger(0);
@@ -52,30 +156,52 @@ public class ThreadManager {
         startTime = System.currentTimeMillis();
         
         // Start monitoring thread
-        scheduledExecutor.scheduleAtFixedRate(this::monitorThreads, 0, 5, TimeUnit.SECONDS);
+        if (monitorIntervalMillis > 0) {
+            scheduledExecutor.scheduleAtFixedRate(this::monitorThreads, 0, monitorIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        if (poolSizer != null) {
+            scheduledExecutor.scheduleAtFixedRate(new PoolResizer(), ADAPT_INTERVAL_MILLIS, ADAPT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        }
         
-        System.out.println("Thread manager started with " + 
-                          ((ThreadPoolExecutor) executorService).getCorePoolSize() + " threads.");
+        System.out.println("Thread manager started: " + describe() + ".");
     }
     
     /**
      * Submit task for execution
      */
     public Future<?> submitTask(Runnable task) {
+        return submitTask(DEFAULT_TASK_TYPE, task);
+    }
+    
+    /**
+     * Submit task for execution, recording its metrics under the given type
+     */
+    public Future<?> submitTask(String taskType, Runnable task) {
         if (!isRunning) {
             throw new IllegalStateException("Thread manager is not running.");
         }
         
+        TaskMetrics metrics = metricsFor(taskType);
         activeThreads.incrementAndGet();
+        submittedTasks.increment();
+        long submitted = System.nanoTime();
         
-        return executorService.submit(() -> {
+        return submit(() -> {
+            long started = System.nanoTime();
+            metrics.queueWait.record(started - submitted);
             try {
                 task.run();
                 completedTasks.incrementAndGet();
             } catch (Exception e) {
                 failedTasks.incrementAndGet();
+                metrics.failed.increment();
                 System.err.println("Task failed: " + e.getMessage());
             } finally {
+                long elapsed = System.nanoTime() - started;
+                metrics.execution.record(elapsed);
+                executionNanos.add(elapsed);
                 activeThreads.decrementAndGet();
             }
         });
@@ -85,25 +211,150 @@ public class ThreadManager {
      * Submit task with result
      */
     public <T> Future<T> submitTask(Callable<T> task) {
+        return submitTask(DEFAULT_TASK_TYPE, task);
+    }
+    
+    /**
+     * Submit task with result, recording its metrics under the given type
+     */
+    public <T> Future<T> submitTask(String taskType, Callable<T> task) {
+        return submitTask(taskType, Priority.NORMAL, task);
+    }
+    
+    /**
+     * Submit task with result in the given priority lane
+     */
+    public <T> Future<T> submitTask(String taskType, Priority priority, Callable<T> task) {
+        if (!isRunning) {
+            throw new IllegalStateException("Thread manager is not running.");
+        }
+        
+        TaskMetrics metrics = metricsFor(taskType);
+        activeThreads.incrementAndGet();
+        submittedTasks.increment();
+        LaneTask<T> future = new LaneTask<>(priority, instrument(metrics, System.nanoTime(), task), null, 0);
+        execute(future);
+        return future;
+    }
+    
+    /**
+     * Submit a batch of tasks in one step; the returned future completes with
+     * all results in order, or exceptionally with the first failure. With
+     * priority lanes the whole batch is queued under one lock acquisition.
+     */
+    public <T> CompletableFuture<List<T>> submitBatch(String taskType, Priority priority,
+                                                      List<? extends Callable<T>> tasks) {
+        if (!isRunning) {
+            throw new IllegalStateException("Thread manager is not running.");
+        }
+        
+        TaskMetrics metrics = metricsFor(taskType);
+        Batch<T> batch = new Batch<>(tasks.size());
+        long submitted = System.nanoTime();
+        List<LaneTask<T>> laneTasks = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            laneTasks.add(new LaneTask<>(priority, instrument(metrics, submitted, tasks.get(i)), batch, i));
+        }
+        activeThreads.addAndGet(tasks.size());
+        submittedTasks.add(tasks.size());
+        
+        if (laneQueue != null && !executorService.isShutdown() && laneQueue.offerAll(laneTasks)) {
+            return batch.future;
+        }
+        
+        // No lanes or no room for all of them: one at a time, with the rejection policy
+        for (int i = 0; i < laneTasks.size(); i++) {
+            try {
+                execute(laneTasks.get(i));
+            } catch (RejectedExecutionException e) {
+                int notSubmitted = laneTasks.size() - i - 1;
+                activeThreads.addAndGet(-notSubmitted);
+                rejectedTasks.addAndGet(notSubmitted);
+                batch.future.completeExceptionally(e);
+                break;
+            }
+        }
+        return batch.future;
+    }
+    
+    /**
+     * Submit task to run after all tasks submitted earlier with an equal key
+     */
+    public Future<?> submitOrdered(Object key, Runnable task) {
+        return submitOrdered(key, Executors.callable(task));
+    }
+    
+    /**
+     * Submit task with result to run after all tasks submitted earlier with an equal key
+     */
+    public <T> Future<T> submitOrdered(Object key, Callable<T> task) {
         if (!isRunning) {
             throw new IllegalStateException("Thread manager is not running.");
         }
         
+        TaskMetrics metrics = metricsFor(DEFAULT_TASK_TYPE);
         activeThreads.incrementAndGet();
+        submittedTasks.increment();
+        FutureTask<T> future = new FutureTask<>(instrument(metrics, System.nanoTime(), task));
         
-        return executorService.submit(() -> {
+        try {
+            keyedExecutor.execute(key, future);
+        } catch (RejectedExecutionException e) {
+            activeThreads.decrementAndGet();
+            rejectedTasks.incrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+    
+    private Future<?> submit(Runnable task) {
+        try {
+            return executorService.submit(task);
+        } catch (RejectedExecutionException e) {
+            activeThreads.decrementAndGet();
+            rejectedTasks.incrementAndGet();
+            throw e;
+        }
+    }
+    
+    private void execute(Runnable task) {
+        try {
+            executorService.execute(task);
+        } catch (RejectedExecutionException e) {
+            activeThreads.decrementAndGet();
+            rejectedTasks.incrementAndGet();
+            throw e;
+        }
+    }
+    
+    /**
+     * Wrap a task to record its queue wait, execution time and outcome
+     */
+    private <T> Callable<T> instrument(TaskMetrics metrics, long submitted, Callable<T> task) {
+        return () -> {
+            long started = System.nanoTime();
+            metrics.queueWait.record(started - submitted);
             try {
                 T result = task.call();
                 completedTasks.incrementAndGet();
                 return result;
             } catch (Exception e) {
                 failedTasks.incrementAndGet();
+                metrics.failed.increment();
                 System.err.println("Task failed: " + e.getMessage());
                 throw e;
             } finally {
+                long elapsed = System.nanoTime() - started;
+                metrics.execution.record(elapsed);
+                executionNanos.add(elapsed);
                 activeThreads.decrementAndGet();
             }
-        });
+        };
+    }
+    
+    private TaskMetrics metricsFor(String taskType) {
+        TaskMetrics metrics = taskMetrics.get(taskType);
+        return metrics != null ? metrics : taskMetrics.computeIfAbsent(taskType, type -> new TaskMetrics());
     }
     
     /**
@@ -142,17 +393,37 @@ public class ThreadManager {
     private void monitorThreads() {
         if (!isRunning) return;
         
-        ThreadPoolExecutor tpe = (ThreadPoolExecutor) executorService;
+        ThreadStatistics stats = getStatistics();
         
         System.out.println("\n=== Thread Manager Status ===");
-        System.out.println("Active Threads: " + activeThreads.get());
-        System.out.println("Pool Size: " + tpe.getPoolSize());
-        System.out.println("Core Pool Size: " + tpe.getCorePoolSize());
-        System.out.println("Maximum Pool Size: " + tpe.getMaximumPoolSize());
-        System.out.println("Completed Tasks: " + completedTasks.get());
-        System.out.println("Failed Tasks: " + failedTasks.get());
-        System.out.println("Queue Size: " + tpe.getQueue().size());
-        System.out.println("Uptime: " + (System.currentTimeMillis() - startTime) + " ms");
+        System.out.println("Mode: " + mode + ", pool size: " + stats.getPoolSize()
+            + ", active: " + stats.getActiveThreads() + ", queued: " + stats.getQueueSize()
+            + ", rejected: " + stats.getRejectedTasks()
+            + ", uptime: " + stats.getUptime() + " ms");
+        System.out.printf("%-16s %9s %8s %7s | %9s %9s %9s | %9s %9s %9s%n",
+            "Task type", "Completed", "Failed", "Rate/s",
+            "Wait p50", "Wait p99", "Wait p999", "Run p50", "Run p99", "Run p999");
+        
+        long now = System.nanoTime();
+        for (TaskTypeStatistics type : getTaskTypeStatistics().values()) {
+            // Rate over the last monitoring interval
+            TaskMetrics metrics = taskMetrics.get(type.getTaskType());
+            double seconds = (now - metrics.lastReportNanos) / 1e9;
+            double rate = metrics.lastReportNanos == 0 || seconds <= 0
+                ? type.getThroughput()
+                : (type.getCompleted() - metrics.lastReportCount) / seconds;
+            metrics.lastReportNanos = now;
+            metrics.lastReportCount = type.getCompleted();
+            
+            System.out.printf("%-16s %9d %8d %7.0f | %9s %9s %9s | %9s %9s %9s%n",
+                type.getTaskType(), type.getCompleted(), type.getFailed(), rate,
+                LatencyHistogram.format(type.getQueueWaitP50()),
+                LatencyHistogram.format(type.getQueueWaitP99()),
+                LatencyHistogram.format(type.getQueueWaitP999()),
+                LatencyHistogram.format(type.getExecutionP50()),
+                LatencyHistogram.format(type.getExecutionP99()),
+                LatencyHistogram.format(type.getExecutionP999()));
+        }
         System.out.println("=============================");
     }
     
@@ -160,20 +431,77 @@ public class ThreadManager {
      * Get thread statistics
      */
     public ThreadStatistics getStatistics() {
-        ThreadPoolExecutor tpe = (ThreadPoolExecutor) executorService;
+        int poolSize;
+        int corePoolSize;
+        int maxPoolSize;
+        int queueSize;
+        
+        switch (mode) {
+            case WORK_STEALING: {
+                ForkJoinPool pool = (ForkJoinPool) executorService;
+                poolSize = pool.getPoolSize();
+                corePoolSize = pool.getParallelism();
+                maxPoolSize = pool.getParallelism();
+                queueSize = (int) Math.min(Integer.MAX_VALUE,
+                    pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+                break;
+            }
+            case VIRTUAL_THREADS:
+                // No pool and no queue: every running task has its own thread
+                poolSize = activeThreads.get();
+                corePoolSize = 0;
+                maxPoolSize = Integer.MAX_VALUE;
+                queueSize = 0;
+                break;
+            default: {
+                ThreadPoolExecutor tpe = (ThreadPoolExecutor) executorService;
+                poolSize = tpe.getPoolSize();
+                corePoolSize = tpe.getCorePoolSize();
+                maxPoolSize = tpe.getMaximumPoolSize();
+                queueSize = tpe.getQueue().size();
+            }
+        }
         
         return new ThreadStatistics(
             activeThreads.get(),
-            tpe.getPoolSize(),
-            tpe.getCorePoolSize(),
-            tpe.getMaximumPoolSize(),
+            poolSize,
+            corePoolSize,
+            maxPoolSize,
             completedTasks.get(),
             failedTasks.get(),
-            tpe.getQueue().size(),
+            rejectedTasks.get(),
+            queueSize,
             System.currentTimeMillis() - startTime
         );
     }
     
+    /**
+     * Latency and throughput per task type, sorted by type
+     */
+    public Map<String, TaskTypeStatistics> getTaskTypeStatistics() {
+        double uptimeSeconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+        Map<String, TaskTypeStatistics> result = new TreeMap<>();
+        
+        for (Map.Entry<String, TaskMetrics> entry : taskMetrics.entrySet()) {
+            TaskMetrics metrics = entry.getValue();
+            long finished = metrics.execution.getCount();
+            long failed = metrics.failed.sum();
+            result.put(entry.getKey(), new TaskTypeStatistics(
+                entry.getKey(),
+                finished - failed,
+                failed,
+                finished / uptimeSeconds,
+                metrics.queueWait.getValueAtPercentile(50),
+                metrics.queueWait.getValueAtPercentile(99),
+                metrics.queueWait.getValueAtPercentile(99.9),
+                metrics.execution.getValueAtPercentile(50),
+                metrics.execution.getValueAtPercentile(99),
+                metrics.execution.getValueAtPercentile(99.9)
+            ));
+        }
+        return result;
+    }
+    
     /**
      * Stop thread manager
      */
@@ -204,6 +532,13 @@ public class ThreadManager {
         System.out.println("Thread manager stopped.");
     }
     
+    /**
+     * Get the execution back-end
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+    
     /**
      * Check if thread manager is running
      */
@@ -232,6 +567,389 @@ public class ThreadManager {
         return failedTasks.get();
     }
     
+    /**
+     * Tasks turned away because the bounded queue was full
+     */
+    public int getRejectedTaskCount() {
+        return rejectedTasks.get();
+    }
+    
+    private String describe() {
+        switch (mode) {
+            case WORK_STEALING:
+                return "work-stealing pool with parallelism " + ((ForkJoinPool) executorService).getParallelism();
+            case VIRTUAL_THREADS:
+                return "one virtual thread per task";
+            default:
+                String pool = poolSizer != null
+                    ? "adaptive pool of " + ((ThreadPoolExecutor) executorService).getCorePoolSize()
+                        + ".." + maxThreads + " threads"
+                    : "fixed pool of " + maxThreads + " threads";
+                if (laneQueue != null) {
+                    pool += ", priority lanes";
+                }
+                return queueCapacity > 0
+                    ? pool + ", queue of " + queueCapacity + " (" + rejectionPolicy + ")"
+                    : pool;
+        }
+    }
+    
+    private ExecutorService createExecutor() {
+        switch (mode) {
+            case WORK_STEALING:
+                return new ForkJoinPool(maxThreads);
+            case VIRTUAL_THREADS:
+                return newVirtualThreadPerTaskExecutor();
+            default:
+                int threads = poolSizer != null ? minThreads : maxThreads;
+                BlockingQueue<Runnable> queue;
+                if (starvationNanos > 0) {
+                    laneQueue = new PriorityLaneQueue(Priority.values().length, Priority.NORMAL.ordinal(),
+                        queueCapacity > 0 ? queueCapacity : Integer.MAX_VALUE, starvationNanos);
+                    queue = laneQueue;
+                } else if (queueCapacity > 0) {
+                    queue = new ArrayBlockingQueue<>(queueCapacity);
+                } else {
+                    queue = new LinkedBlockingQueue<>();
+                }
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    queue, rejectionHandler());
+                // submitBatch adds straight to the queue, so the workers must already exist
+                pool.prestartAllCoreThreads();
+                return pool;
+        }
+    }
+    
+    private RejectedExecutionHandler rejectionHandler() {
+        switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case BLOCK:
+                return (task, executor) -> {
+                    try {
+                        if (!executor.isShutdown()
+                                && executor.getQueue().offer(task, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new RejectedExecutionException("Task queue full");
+                };
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+    
+    /**
+     * Future that carries its priority lane and, for submitBatch, its batch
+     */
+    private static class LaneTask<T> extends FutureTask<T> implements PriorityLaneQueue.Prioritized {
+        private final Priority priority;
+        private final Batch<T> batch;
+        private final int index;
+        
+        LaneTask(Priority priority, Callable<T> task, Batch<T> batch, int index) {
+            super(task);
+            this.priority = priority;
+            this.batch = batch;
+            this.index = index;
+        }
+        
+        @Override
+        public int lane() {
+            return priority.ordinal();
+        }
+        
+        @Override
+        protected void done() {
+            if (batch != null) {
+                batch.complete(index, this);
+            }
+        }
+    }
+    
+    /**
+     * Collects the results of one submitBatch call
+     */
+    private static class Batch<T> {
+        final CompletableFuture<List<T>> future = new CompletableFuture<>();
+        private final Object[] results;
+        private final AtomicInteger remaining;
+        
+        Batch(int size) {
+            this.results = new Object[size];
+            this.remaining = new AtomicInteger(size);
+            if (size == 0) {
+                future.complete(new ArrayList<>());
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        void complete(int index, LaneTask<T> task) {
+            try {
+                results[index] = task.get();
+            } catch (ExecutionException e) {
+                future.completeExceptionally(e.getCause());
+                return;
+            } catch (CancellationException | InterruptedException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            
+            if (remaining.decrementAndGet() == 0) {
+                List<T> list = new ArrayList<>(results.length);
+                for (Object result : results) {
+                    list.add((T) result);
+                }
+                future.complete(list);
+            }
+        }
+    }
+    
+    /**
+     * Feeds the last interval to the AdaptivePoolSizer and applies its answer
+     */
+    private class PoolResizer implements Runnable {
+        private long lastNanos = System.nanoTime();
+        private long lastSubmitted;
+        private long lastFinished;
+        private long lastExecutionNanos;
+        private long[] lastQueueWaits = new long[LatencyHistogram.bucketCount()];
+        
+        @Override
+        public void run() {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executorService;
+            long now = System.nanoTime();
+            long submitted = submittedTasks.sum();
+            long finished = completedTasks.get() + failedTasks.get();
+            long busy = executionNanos.sum();
+            
+            // Queue waits of the tasks started this interval: the difference of two
+            // snapshots of the per-type histograms
+            long[] queueWaits = new long[LatencyHistogram.bucketCount()];
+            for (TaskMetrics metrics : taskMetrics.values()) {
+                metrics.queueWait.addCountsTo(queueWaits);
+            }
+            long[] intervalWaits = queueWaits.clone();
+            for (int i = 0; i < intervalWaits.length; i++) {
+                intervalWaits[i] -= lastQueueWaits[i];
+            }
+            long queueWaitP90 = LatencyHistogram.valueAtPercentile(intervalWaits, 90);
+            
+            int size = pool.getCorePoolSize();
+            int next = poolSizer.nextSize(size, submitted - lastSubmitted, finished - lastFinished,
+                busy - lastExecutionNanos, pool.getQueue().size(), queueWaitP90, now - lastNanos);
+            if (next > size) {
+                pool.setMaximumPoolSize(next);
+                pool.setCorePoolSize(next);
+            } else if (next < size) {
+                pool.setCorePoolSize(next);
+                pool.setMaximumPoolSize(next);
+            }
+            
+            lastNanos = now;
+            lastSubmitted = submitted;
+            lastFinished = finished;
+            lastExecutionNanos = busy;
+            lastQueueWaits = queueWaits;
+        }
+    }
+    
+    /**
+     * Looked up reflectively so the class still compiles for Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+        }
+    }
+    
+    /**
+     * Create a builder; defaults to a fixed pool with one thread per CPU
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Builder for ThreadManager
+     */
+    public static class Builder {
+        private ExecutionMode mode = ExecutionMode.FIXED_POOL;
+        private int maxThreads = Runtime.getRuntime().availableProcessors();
+        private long monitorIntervalMillis = 5000;
+        private int queueCapacity;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.SHED;
+        private long blockTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
+        private int minThreads;
+        private long starvationNanos;
+        
+        private Builder() {
+        }
+        
+        public Builder mode(ExecutionMode mode) {
+            this.mode = mode;
+            return this;
+        }
+        
+        /**
+         * Pool size for FIXED_POOL, parallelism for WORK_STEALING; unused for VIRTUAL_THREADS
+         */
+        public Builder maxThreads(int maxThreads) {
+            if (maxThreads <= 0) {
+                throw new IllegalArgumentException("maxThreads must be positive");
+            }
+            this.maxThreads = maxThreads;
+            return this;
+        }
+        
+        /**
+         * How often monitorThreads prints status; 0 disables it
+         */
+        public Builder monitorInterval(long interval, TimeUnit unit) {
+            this.monitorIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+        
+        /**
+         * Bound the FIXED_POOL queue; 0 (the default) leaves it unbounded
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("queueCapacity must not be negative");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        /**
+         * What to do when the bounded queue is full; SHED by default
+         */
+        public Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+        
+        /**
+         * Block for queue space for at most this long, then reject
+         */
+        public Builder rejectionPolicy(RejectionPolicy rejectionPolicy, long blockTimeout, TimeUnit unit) {
+            this.rejectionPolicy = rejectionPolicy;
+            this.blockTimeoutNanos = unit.toNanos(blockTimeout);
+            return this;
+        }
+        
+        /**
+         * Let the FIXED_POOL resize itself between minThreads and maxThreads
+         */
+        public Builder adaptivePoolSize(int minThreads) {
+            if (minThreads <= 0) {
+                throw new IllegalArgumentException("minThreads must be positive");
+            }
+            this.minThreads = minThreads;
+            return this;
+        }
+        
+        /**
+         * Queue FIXED_POOL tasks by Priority; a lower-lane task that has
+         * waited longer than starvationThreshold gets a share of the threads
+         */
+        public Builder priorityLanes(long starvationThreshold, TimeUnit unit) {
+            if (starvationThreshold <= 0) {
+                throw new IllegalArgumentException("starvationThreshold must be positive");
+            }
+            this.starvationNanos = unit.toNanos(starvationThreshold);
+            return this;
+        }
+        
+        public ThreadManager build() {
+            if (mode != ExecutionMode.FIXED_POOL && (queueCapacity > 0 || minThreads > 0 || starvationNanos > 0)) {
+                throw new IllegalStateException("Queue bounds, adaptive sizing and priority lanes need FIXED_POOL");
+            }
+            if (minThreads > maxThreads) {
+                throw new IllegalStateException("minThreads exceeds maxThreads");
+            }
+            return new ThreadManager(this);
+        }
+    }
+    
+    /**
+     * Histograms and counters for one task type
+     */
+    private static class TaskMetrics {
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram execution = new LatencyHistogram();
+        final LongAdder failed = new LongAdder();
+        
+        // Only touched by the monitoring thread
+        long lastReportNanos;
+        long lastReportCount;
+    }
+    
+    /**
+     * Per-task-type latency statistics; times in nanoseconds
+     */
+    public static class TaskTypeStatistics {
+        private final String taskType;
+        private final long completed;
+        private final long failed;
+        private final double throughput;
+        private final long queueWaitP50;
+        private final long queueWaitP99;
+        private final long queueWaitP999;
+        private final long executionP50;
+        private final long executionP99;
+        private final long executionP999;
+        
+        public TaskTypeStatistics(String taskType, long completed, long failed, double throughput,
+                                  long queueWaitP50, long queueWaitP99, long queueWaitP999,
+                                  long executionP50, long executionP99, long executionP999) {
+            this.taskType = taskType;
+            this.completed = completed;
+            this.failed = failed;
+            this.throughput = throughput;
+            this.queueWaitP50 = queueWaitP50;
+            this.queueWaitP99 = queueWaitP99;
+            this.queueWaitP999 = queueWaitP999;
+            this.executionP50 = executionP50;
+            this.executionP99 = executionP99;
+            this.executionP999 = executionP999;
+        }
+        
+        // Getters
+        public String getTaskType() { return taskType; }
+        public long getCompleted() { return completed; }
+        public long getFailed() { return failed; }
+        
+        /**
+         * Finished tasks per second since start
+         */
+        public double getThroughput() { return throughput; }
+        public long getQueueWaitP50() { return queueWaitP50; }
+        public long getQueueWaitP99() { return queueWaitP99; }
+        public long getQueueWaitP999() { return queueWaitP999; }
+        public long getExecutionP50() { return executionP50; }
+        public long getExecutionP99() { return executionP99; }
+        public long getExecutionP999() { return executionP999; }
+        
+        @Override
+        public String toString() {
+            return "TaskTypeStatistics{" +
+                   "taskType=" + taskType +
+                   ", completed=" + completed +
+                   ", failed=" + failed +
+                   ", throughput=" + String.format("%.1f", throughput) + "/s" +
+                   ", queueWait p50/p99/p999=" + LatencyHistogram.format(queueWaitP50) +
+                   "/" + LatencyHistogram.format(queueWaitP99) + "/" + LatencyHistogram.format(queueWaitP999) +
+                   ", execution p50/p99/p999=" + LatencyHistogram.format(executionP50) +
+                   "/" + LatencyHistogram.format(executionP99) + "/" + LatencyHistogram.format(executionP999) +
+                   '}';
+        }
+    }
+    
     /**
      * Thread statistics container
      */
@@ -242,18 +960,27 @@ public class ThreadManager {
         private final int maxPoolSize;
         private final int completedTasks;
         private final int failedTasks;
+        private final int rejectedTasks;
         private final int queueSize;
         private final long uptime;
         
         public ThreadStatistics(int activeThreads, int poolSize, int corePoolSize, 
                                int maxPoolSize, int completedTasks, int failedTasks, 
                                int queueSize, long uptime) {
+            this(activeThreads, poolSize, corePoolSize, maxPoolSize, completedTasks, failedTasks, 0,
+                 queueSize, uptime);
+        }
+        
+        public ThreadStatistics(int activeThreads, int poolSize, int corePoolSize, 
+                               int maxPoolSize, int completedTasks, int failedTasks, 
+                               int rejectedTasks, int queueSize, long uptime) {
             this.activeThreads = activeThreads;
             this.poolSize = poolSize;
             this.corePoolSize = corePoolSize;
             this.maxPoolSize = maxPoolSize;
             this.completedTasks = completedTasks;
             this.failedTasks = failedTasks;
+            this.rejectedTasks = rejectedTasks;
             this.queueSize = queueSize;
             this.uptime = uptime;
         }
@@ -265,6 +992,7 @@ public class ThreadManager {
         public int getMaxPoolSize() { return maxPoolSize; }
         public int getCompletedTasks() { return completedTasks; }
         public int getFailedTasks() { return failedTasks; }
+        public int getRejectedTasks() { return rejectedTasks; }
         public int getQueueSize() { return queueSize; }
         public long getUptime() { return uptime; }
         
@@ -277,6 +1005,7 @@ public class ThreadManager {
                    ", maxPoolSize=" + maxPoolSize +
                    ", completedTasks=" + completedTasks +
                    ", failedTasks=" + failedTasks +
+                   ", rejectedTasks=" + rejectedTasks +
                    ", queueSize=" + queueSize +
                    ", uptime=" + uptime + "ms" +
                    '}';
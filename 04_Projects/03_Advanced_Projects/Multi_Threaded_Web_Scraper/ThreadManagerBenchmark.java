@@ -0,0 +1,176 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Thread Manager Benchmark - Execution back-end x workload matrix
+ *
+ * Runs the same workloads on every ThreadManager execution mode:
+ *
+ * - CPU flat: many small compute tasks submitted from the main thread
+ * - CPU fan-out: parent tasks submit child tasks and wait for them
+ *   (a fixed pool stalls once every thread is a waiting parent)
+ * - I/O: tasks that mostly block (simulated with sleep)
+ *
+ * Usage: java ThreadManagerBenchmark [threads] [scale]
+ *
+ * Virtual threads need Java 21; on older JVMs that row is reported as
+ * unsupported.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class ThreadManagerBenchmark {
+    private static final long STALL_TIMEOUT_SECONDS = 5;
+
+    private enum Workload { CPU_FLAT, CPU_FAN_OUT, IO }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+            : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int scale = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        System.out.println("=== ThreadManager Back-end Benchmark ===");
+        System.out.println("CPUs: " + Runtime.getRuntime().availableProcessors() + ", pool threads: " + threads
+            + ", Java " + Runtime.version().feature());
+
+        // Warm up the compute kernel
+        for (int i = 0; i < 2000; i++) compute(20_000);
+
+        String[][] results = new String[ThreadManager.ExecutionMode.values().length][Workload.values().length];
+        for (ThreadManager.ExecutionMode mode : ThreadManager.ExecutionMode.values()) {
+            for (Workload workload : Workload.values()) {
+                results[mode.ordinal()][workload.ordinal()] = run(mode, workload, threads, scale);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-16s", "Mode");
+        for (Workload workload : Workload.values()) {
+            System.out.printf("%22s", workload);
+        }
+        System.out.println();
+        for (ThreadManager.ExecutionMode mode : ThreadManager.ExecutionMode.values()) {
+            System.out.printf("%-16s", mode);
+            for (Workload workload : Workload.values()) {
+                System.out.printf("%22s", results[mode.ordinal()][workload.ordinal()]);
+            }
+            System.out.println();
+        }
+    }
+
+    private static String run(ThreadManager.ExecutionMode mode, Workload workload, int threads, int scale)
+            throws Exception {
+        ThreadManager manager;
+        try {
+            manager = ThreadManager.builder()
+                .mode(mode)
+                .maxThreads(threads)
+                .monitorInterval(0, TimeUnit.SECONDS)
+                .build();
+        } catch (UnsupportedOperationException e) {
+            return "unsupported";
+        }
+
+        manager.start();
+        long start = System.nanoTime();
+        int tasks;
+        boolean stalled = false;
+        try {
+            switch (workload) {
+                case CPU_FLAT:
+                    tasks = runCpuFlat(manager, 4000 * scale);
+                    break;
+                case CPU_FAN_OUT:
+                    tasks = runFanOut(manager, 4 * threads, 32 * scale);
+                    break;
+                default:
+                    tasks = runIo(manager, 1000 * scale);
+            }
+        } catch (TimeoutException e) {
+            tasks = 0;
+            stalled = true;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        ThreadManager.ThreadStatistics stats = manager.getStatistics();
+        System.out.println("  " + mode + " / " + workload + ": " + stats);
+        manager.stop();
+
+        if (stalled) {
+            return "stalled >" + STALL_TIMEOUT_SECONDS + "s";
+        }
+        return String.format("%d ms (%,.0f/s)", elapsedMs, tasks * 1000.0 / Math.max(1, elapsedMs));
+    }
+
+    private static int runCpuFlat(ThreadManager manager, int tasks) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            futures.add(manager.submitTask(() -> compute(20_000)));
+        }
+        awaitAll(futures);
+        return tasks;
+    }
+
+    /**
+     * Parents submit children through the manager and block on their results
+     */
+    private static int runFanOut(ThreadManager manager, int parents, int childrenPerParent) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(parents);
+        for (int p = 0; p < parents; p++) {
+            futures.add(manager.submitTask(() -> {
+                List<Future<Long>> children = new ArrayList<>(childrenPerParent);
+                for (int c = 0; c < childrenPerParent; c++) {
+                    children.add(manager.submitTask(() -> compute(20_000)));
+                }
+                long sum = 0;
+                for (Future<Long> child : children) {
+                    sum += child.get();
+                }
+                return sum;
+            }));
+        }
+        awaitAll(futures);
+        return parents * (childrenPerParent + 1);
+    }
+
+    private static int runIo(ThreadManager manager, int tasks) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            futures.add(manager.submitTask(() -> {
+                Thread.sleep(10);
+                return 0L;
+            }));
+        }
+        awaitAll(futures);
+        return tasks;
+    }
+
+    private static void awaitAll(List<Future<Long>> futures) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STALL_TIMEOUT_SECONDS);
+        try {
+            for (Future<Long> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            // Interrupt blocked parents so the pool can shut down
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    private static long compute(int iterations) {
+        long x = iterations;
+        for (int i = 0; i < iterations; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        return x;
+    }
+}
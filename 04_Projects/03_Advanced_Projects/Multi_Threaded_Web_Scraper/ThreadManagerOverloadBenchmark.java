@@ -0,0 +1,165 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread Manager Overload Benchmark - Latency at twice the pool's capacity
+ *
+ * An open-loop generator submits tasks on a fixed schedule at twice the
+ * rate the pool can serve. Latency is measured from the moment a task was
+ * due to be submitted to the moment it finished, so time a producer
+ * spends blocked or running tasks itself is counted too.
+ *
+ * Compared: the original unbounded queue, a bounded queue with each
+ * rejection policy, and the adaptive pool. I/O-bound tasks sleep, so
+ * more threads really add capacity. A last pair of runs uses CPU-bound
+ * tasks, where extra threads add nothing and the adaptive pool should
+ * not keep growing.
+ *
+ * Usage: java ThreadManagerOverloadBenchmark [threads] [taskMillis] [seconds]
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class ThreadManagerOverloadBenchmark {
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+    private static int threads;
+    private static long taskNanos;
+    private static int seconds;
+    private static long cpuIterations;
+    private static final List<String> rows = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int taskMillis = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        taskNanos = TimeUnit.MILLISECONDS.toNanos(taskMillis);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        cpuIterations = calibrate(taskNanos);
+
+        double ioCapacity = threads * 1e9 / taskNanos;
+        double cpuCapacity = Math.min(threads, cpus) * 1e9 / taskNanos;
+
+        System.out.println("=== ThreadManager Overload Benchmark ===");
+        System.out.printf("CPUs: %d, pool threads: %d, task: %d ms, %d s per run, queue bound: %d%n",
+            cpus, threads, taskMillis, seconds, QUEUE_CAPACITY);
+        System.out.printf("I/O capacity %.0f/s, offered %.0f/s; CPU capacity %.0f/s, offered %.0f/s%n%n",
+            ioCapacity, 2 * ioCapacity, cpuCapacity, 2 * cpuCapacity);
+
+        run("I/O, unbounded queue", false, 2 * ioCapacity, ThreadManager.builder().maxThreads(threads));
+        run("I/O, queue, SHED", false, 2 * ioCapacity, bounded()
+            .rejectionPolicy(ThreadManager.RejectionPolicy.SHED));
+        run("I/O, queue, CALLER_RUNS", false, 2 * ioCapacity, bounded()
+            .rejectionPolicy(ThreadManager.RejectionPolicy.CALLER_RUNS));
+        run("I/O, queue, BLOCK 20 ms", false, 2 * ioCapacity, bounded()
+            .rejectionPolicy(ThreadManager.RejectionPolicy.BLOCK, 20, TimeUnit.MILLISECONDS));
+        run("I/O, adaptive, queue, SHED", false, 2 * ioCapacity, adaptive());
+
+        run("CPU, queue, SHED", true, 2 * cpuCapacity, bounded());
+        run("CPU, adaptive, queue, SHED", true, 2 * cpuCapacity, adaptive());
+
+        System.out.println();
+        System.out.printf("%-30s %8s %8s %10s %10s %10s %10s %6s%n",
+            "Configuration", "Done", "Shed", "p50", "p99", "p999", "max", "Pool");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+        System.out.println("Pool: thread count when the generator stopped");
+    }
+
+    private static ThreadManager.Builder bounded() {
+        return ThreadManager.builder().maxThreads(threads).queueCapacity(QUEUE_CAPACITY);
+    }
+
+    private static ThreadManager.Builder adaptive() {
+        // Start at the fixed pool's size, may grow to 16 times that
+        return ThreadManager.builder()
+            .maxThreads(threads * 16)
+            .adaptivePoolSize(threads)
+            .queueCapacity(QUEUE_CAPACITY)
+            .rejectionPolicy(ThreadManager.RejectionPolicy.SHED);
+    }
+
+    private static void run(String name, boolean cpuBound, double ratePerSecond, ThreadManager.Builder builder)
+            throws Exception {
+        ThreadManager manager = builder
+            .monitorInterval(0, TimeUnit.SECONDS)
+            .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong finished = new AtomicLong();
+        long accepted = 0;
+        long shed = 0;
+
+        manager.start();
+
+        long interval = (long) (1e9 / ratePerSecond);
+        long tasks = (long) (ratePerSecond * seconds);
+        long start = System.nanoTime();
+        for (long i = 0; i < tasks; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            try {
+                manager.submitTask(cpuBound ? "cpu" : "io", () -> {
+                    if (cpuBound) {
+                        compute(cpuIterations);
+                    } else {
+                        LockSupport.parkNanos(taskNanos);
+                    }
+                    latency.record(System.nanoTime() - due);
+                    finished.incrementAndGet();
+                });
+                accepted++;
+            } catch (RejectedExecutionException e) {
+                shed++;
+            }
+        }
+        int poolSize = manager.getStatistics().getCorePoolSize();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        while (finished.get() < accepted && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        manager.stop();
+
+        rows.add(String.format("%-30s %8d %8d %10s %10s %10s %10s %6d", name, finished.get(), shed,
+            LatencyHistogram.format(latency.getValueAtPercentile(50)),
+            LatencyHistogram.format(latency.getValueAtPercentile(99)),
+            LatencyHistogram.format(latency.getValueAtPercentile(99.9)),
+            LatencyHistogram.format(latency.getMax()), poolSize));
+    }
+
+    /**
+     * Iterations of compute() that take about the given time on one core
+     */
+    private static long calibrate(long nanos) {
+        long iterations = 100_000;
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            compute(iterations);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            iterations = Math.max(1, iterations * nanos / elapsed);
+        }
+        return iterations;
+    }
+
+    private static long compute(long iterations) {
+        long x = iterations;
+        for (long i = 0; i < iterations; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,156 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread Manager Priority Benchmark - Probe latency behind a bulk backlog
+ *
+ * A large batch of bulk tasks saturates the pool while probe tasks of
+ * another priority arrive at a steady rate; the benchmark reports how long
+ * the probes take from submission to completion.
+ *
+ * - HIGH probes behind a LOW backlog, with one FIFO queue and with lanes
+ * - LOW probes behind a HIGH backlog, with strict priority (no aging)
+ *   and with aging, which keeps low lanes from starving
+ * - Queueing many small tasks one submitTask at a time vs submitBatch
+ *
+ * Usage: java ThreadManagerPriorityBenchmark [threads] [bulkTasks]
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class ThreadManagerPriorityBenchmark {
+    private static final long TASK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PROBE_INTERVAL_MILLIS = 10;
+    private static final int PROBES = 100;
+    private static final long AGING_MILLIS = 50;
+
+    private static final List<String> rows = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int bulkTasks = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+
+        System.out.println("=== ThreadManager Priority Benchmark ===");
+        System.out.printf("Pool threads: %d, bulk tasks: %d x 2 ms, probes: %d every %d ms, aging after %d ms%n",
+            threads, bulkTasks, PROBES, PROBE_INTERVAL_MILLIS, AGING_MILLIS);
+
+        run("HIGH probes, single FIFO queue", manager(threads, 0), ThreadManager.Priority.LOW,
+            ThreadManager.Priority.HIGH, bulkTasks);
+        run("HIGH probes, priority lanes", manager(threads, AGING_MILLIS), ThreadManager.Priority.LOW,
+            ThreadManager.Priority.HIGH, bulkTasks);
+        run("LOW probes, strict priority", manager(threads, TimeUnit.DAYS.toMillis(1)),
+            ThreadManager.Priority.HIGH, ThreadManager.Priority.LOW, bulkTasks);
+        run("LOW probes, lanes with aging", manager(threads, AGING_MILLIS), ThreadManager.Priority.HIGH,
+            ThreadManager.Priority.LOW, bulkTasks);
+
+        System.out.println();
+        System.out.printf("%-32s %10s %10s %10s %14s%n", "Probe latency", "p50", "p99", "max", "bulk time");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+
+        submissionCost(threads);
+    }
+
+    private static ThreadManager manager(int threads, long agingMillis) {
+        ThreadManager.Builder builder = ThreadManager.builder()
+            .maxThreads(threads)
+            .monitorInterval(0, TimeUnit.SECONDS);
+        if (agingMillis > 0) {
+            builder.priorityLanes(agingMillis, TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    private static void run(String name, ThreadManager manager, ThreadManager.Priority bulkPriority,
+                            ThreadManager.Priority probePriority, int bulkTasks) throws Exception {
+        manager.start();
+        List<Callable<Long>> bulk = new ArrayList<>(bulkTasks);
+        for (int i = 0; i < bulkTasks; i++) {
+            bulk.add(ThreadManagerPriorityBenchmark::work);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Long>> bulkDone = manager.submitBatch("bulk", bulkPriority, bulk);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        List<Future<Long>> probes = new ArrayList<>(PROBES);
+        for (int i = 0; i < PROBES; i++) {
+            long submitted = System.nanoTime();
+            probes.add(manager.submitTask("probe", probePriority, () -> {
+                work();
+                latency.record(System.nanoTime() - submitted);
+                return 0L;
+            }));
+            Thread.sleep(PROBE_INTERVAL_MILLIS);
+        }
+        for (Future<Long> probe : probes) {
+            probe.get();
+        }
+        bulkDone.get();
+        long bulkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        manager.stop();
+
+        rows.add(String.format("%-32s %10s %10s %10s %11d ms", name,
+            LatencyHistogram.format(latency.getValueAtPercentile(50)),
+            LatencyHistogram.format(latency.getValueAtPercentile(99)),
+            LatencyHistogram.format(latency.getMax()), bulkMillis));
+    }
+
+    /**
+     * Time to queue many tiny tasks, and until all of them have finished
+     */
+    private static void submissionCost(int threads) throws Exception {
+        int tasks = 200_000;
+        System.out.println("\nQueueing " + tasks + " empty tasks (priority lanes):");
+        List<Callable<Long>> empty = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            empty.add(() -> 0L);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+
+            ThreadManager manager = manager(threads, AGING_MILLIS);
+            manager.start();
+            long start = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>(tasks);
+            for (Callable<Long> task : empty) {
+                futures.add(manager.submitTask("tiny", ThreadManager.Priority.NORMAL, task));
+            }
+            long queued = System.nanoTime() - start;
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+            long done = System.nanoTime() - start;
+            manager.stop();
+            if (report) {
+                System.out.printf("  submitTask loop: queued in %d ms, all done in %d ms%n",
+                    TimeUnit.NANOSECONDS.toMillis(queued), TimeUnit.NANOSECONDS.toMillis(done));
+            }
+
+            manager = manager(threads, AGING_MILLIS);
+            manager.start();
+            start = System.nanoTime();
+            CompletableFuture<List<Long>> batch = manager.submitBatch("tiny", ThreadManager.Priority.NORMAL, empty);
+            queued = System.nanoTime() - start;
+            batch.get();
+            done = System.nanoTime() - start;
+            manager.stop();
+            if (report) {
+                System.out.printf("  submitBatch:     queued in %d ms, all done in %d ms%n",
+                    TimeUnit.NANOSECONDS.toMillis(queued), TimeUnit.NANOSECONDS.toMillis(done));
+            }
+        }
+    }
+
+    private static long work() {
+        LockSupport.parkNanos(TASK_NANOS);
+        return 0L;
+    }
+}
@@ -0,0 +1,592 @@
+package com.tutorial.projects.advanced.webscraper;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * URL Seen Store - Compact "have we seen this URL?" set for large crawls
+ *
+ * Keeping every URL string in a ConcurrentHashMap costs well over 100 bytes
+ * per URL. This store keeps only a 64-bit fingerprint of the canonical URL:
+ *
+ * 1. URLs are canonicalized (case, default ports, dot segments, fragments,
+ *    tracking parameters, parameter order) so trivial variants collapse
+ * 2. A scalable Bloom filter answers "definitely new" without touching
+ *    the exact set, which is the common case during a crawl. It gets a
+ *    quarter of the memory budget and stops growing there; beyond that its
+ *    false positive rate rises, so more lookups fall through to the exact
+ *    sets, but memory stays within the budget
+ * 3. Fingerprints live in striped primitive open-addressing long sets
+ *    (16 bytes per URL at 50% load) guarded by one lock per stripe
+ * 4. When a stripe exceeds its share of the memory budget its fingerprints
+ *    are sorted and spilled to a memory-mapped run file on disk; lookups
+ *    binary-search the runs, and runs are merged when they pile up
+ *
+ * With 64-bit fingerprints the chance of any collision among 100M URLs is
+ * about 0.03%, and a collision only means one URL is skipped.
+ *
+ * LEARNING OBJECTIVES:
+ * - Canonicalize URLs before de-duplicating them
+ * - Trade exactness for memory with fingerprints and Bloom filters
+ * - Use lock striping for a concurrent primitive collection
+ * - Spill sorted runs to disk and search them with memory mapping
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class UrlSeenStore implements Closeable {
+    private static final int STRIPES = 64;
+    private static final int MAX_RUNS_PER_STRIPE = 8;
+    private static final int BYTES_PER_MEMORY_ENTRY = 16;
+    private static final int BLOOM_BUDGET_SHARE = 4;
+    private static final Set<String> TRACKING_PARAMETERS = Set.of(
+        "utm_source", "utm_medium", "utm_campaign", "utm_term", "utm_content", "gclid", "fbclid");
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ScalableBloomFilter bloomFilter;
+    private final int maxEntriesPerStripe;
+    private final Path spillDirectory;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong bloomNegatives = new AtomicLong();
+    private volatile Path createdSpillDirectory;
+
+    /**
+     * @param memoryBudgetBytes heap budget for the in-memory fingerprint sets
+     *                          and the Bloom filter together
+     * @param spillDirectory where run files go; null for a temp directory
+     */
+    public UrlSeenStore(long memoryBudgetBytes, Path spillDirectory) {
+        long bloomBudget = memoryBudgetBytes / BLOOM_BUDGET_SHARE;
+        this.maxEntriesPerStripe = (int) Math.max(1024,
+            Math.min(Integer.MAX_VALUE / 4, (memoryBudgetBytes - bloomBudget) / BYTES_PER_MEMORY_ENTRY / STRIPES));
+        this.spillDirectory = spillDirectory;
+        // First stage sized for what fits in memory before the first spill
+        this.bloomFilter = new ScalableBloomFilter((long) maxEntriesPerStripe * STRIPES, 0.01, bloomBudget);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Record a URL; returns true if it had not been seen before
+     */
+    public boolean add(String url) {
+        return addFingerprint(fingerprint(canonicalize(url)));
+    }
+
+    public boolean contains(String url) {
+        long fingerprint = fingerprint(canonicalize(url));
+        if (!bloomFilter.mightContain(fingerprint)) return false;
+        Stripe stripe = stripeFor(fingerprint);
+        // The set's table and mask, and the run list, change together under this lock
+        synchronized (stripe) {
+            return stripe.contains(fingerprint);
+        }
+    }
+
+    boolean addFingerprint(long fingerprint) {
+        Stripe stripe = stripeFor(fingerprint);
+
+        synchronized (stripe) {
+            // A Bloom miss proves the fingerprint is new, so the exact lookup is skipped.
+            // Checked under the stripe lock because same-stripe adds happen under it too.
+            boolean maybeSeen = bloomFilter.mightContain(fingerprint);
+            if (!maybeSeen) {
+                bloomNegatives.incrementAndGet();
+            } else if (stripe.contains(fingerprint)) {
+                return false;
+            }
+            if (!stripe.memory.add(fingerprint)) {
+                return false;
+            }
+            bloomFilter.add(fingerprint);
+            size.incrementAndGet();
+
+            if (stripe.memory.size() >= maxEntriesPerStripe) {
+                spill(stripe);
+            }
+            return true;
+        }
+    }
+
+    private Stripe stripeFor(long fingerprint) {
+        return stripes[(int) (fingerprint >>> 58)];
+    }
+
+    /**
+     * Write the stripe's fingerprints as a sorted run and clear its memory set
+     */
+    private void spill(Stripe stripe) {
+        try {
+            long[] sorted = stripe.memory.toSortedArray();
+            stripe.runs.add(SortedRun.write(spillDirectory(), sorted));
+            stripe.memory.clear();
+
+            if (stripe.runs.size() > MAX_RUNS_PER_STRIPE) {
+                SortedRun merged = SortedRun.merge(spillDirectory(), stripe.runs);
+                for (SortedRun run : stripe.runs) {
+                    run.delete();
+                }
+                stripe.runs.clear();
+                stripe.runs.add(merged);
+            }
+        } catch (IOException e) {
+            // Keep everything in memory rather than lose seen URLs
+            System.err.println("Error spilling URL fingerprints: " + e.getMessage());
+        }
+    }
+
+    private Path spillDirectory() throws IOException {
+        if (createdSpillDirectory == null) {
+            synchronized (this) {
+                if (createdSpillDirectory == null) {
+                    createdSpillDirectory = spillDirectory != null
+                        ? Files.createDirectories(spillDirectory)
+                        : Files.createTempDirectory("url-seen");
+                }
+            }
+        }
+        return createdSpillDirectory;
+    }
+
+    public long size() { return size.get(); }
+    public long getBloomNegatives() { return bloomNegatives.get(); }
+
+    /**
+     * Heap used by fingerprint tables and the Bloom filter
+     */
+    public long getMemoryBytes() {
+        long bytes = bloomFilter.getMemoryBytes();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += (long) stripe.memory.capacity() * Long.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    public long getSpilledEntries() {
+        long entries = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (SortedRun run : stripe.runs) {
+                    entries += run.count;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Delete spill files
+     */
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.runs.forEach(SortedRun::delete);
+                stripe.runs.clear();
+            }
+        }
+        if (createdSpillDirectory != null && spillDirectory == null) {
+            try {
+                Files.deleteIfExists(createdSpillDirectory);
+            } catch (IOException e) {
+                System.err.println("Error removing spill directory: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Normalize a URL so equivalent spellings map to the same string.
+     * Unparseable URLs are returned trimmed but otherwise unchanged.
+     */
+    public static String canonicalize(String url) {
+        try {
+            URI uri = new URI(url.trim()).normalize();
+            String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost() == null ? null : uri.getHost().toLowerCase(Locale.ROOT);
+            if (scheme == null || host == null) {
+                return url.trim();
+            }
+
+            int port = uri.getPort();
+            if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) {
+                port = -1;
+            }
+
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            StringBuilder canonical = new StringBuilder(url.length());
+            canonical.append(scheme).append("://").append(host);
+            if (port != -1) {
+                canonical.append(':').append(port);
+            }
+            canonical.append(path);
+
+            String query = uri.getRawQuery();
+            if (query != null && !query.isEmpty()) {
+                List<String> parameters = new ArrayList<>();
+                for (String parameter : query.split("&")) {
+                    String name = parameter.split("=", 2)[0].toLowerCase(Locale.ROOT);
+                    if (!parameter.isEmpty() && !TRACKING_PARAMETERS.contains(name)) {
+                        parameters.add(parameter);
+                    }
+                }
+                if (!parameters.isEmpty()) {
+                    Collections.sort(parameters);
+                    canonical.append('?').append(String.join("&", parameters));
+                }
+            }
+            return canonical.toString();
+        } catch (URISyntaxException e) {
+            return url.trim();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with a MurmurHash3 mix.
+     * Never returns 0, which the open-addressing sets use as "empty".
+     */
+    public static long fingerprint(String canonicalUrl) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : canonicalUrl.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * One lock stripe: in-memory set plus spilled runs
+     */
+    private static class Stripe {
+        private final LongOpenHashSet memory = new LongOpenHashSet(1024);
+        private final List<SortedRun> runs = new ArrayList<>();
+
+        boolean contains(long fingerprint) {
+            if (memory.contains(fingerprint)) return true;
+            for (SortedRun run : runs) {
+                if (run.contains(fingerprint)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Open-addressing (linear probing) set of non-zero longs
+     */
+    static class LongOpenHashSet {
+        private long[] table;
+        private int size;
+        private int mask;
+
+        LongOpenHashSet(int initialCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+            table = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        boolean add(long value) {
+            int index = (int) (value ^ (value >>> 32)) & mask;
+            while (table[index] != 0) {
+                if (table[index] == value) return false;
+                index = (index + 1) & mask;
+            }
+            table[index] = value;
+            if (++size * 2 > table.length) {
+                resize();
+            }
+            return true;
+        }
+
+        boolean contains(long value) {
+            int index = (int) (value ^ (value >>> 32)) & mask;
+            while (table[index] != 0) {
+                if (table[index] == value) return true;
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        private void resize() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            mask = table.length - 1;
+            size = 0;
+            for (long value : old) {
+                if (value != 0) add(value);
+            }
+        }
+
+        long[] toSortedArray() {
+            long[] values = new long[size];
+            int i = 0;
+            for (long value : table) {
+                if (value != 0) values[i++] = value;
+            }
+            Arrays.sort(values);
+            return values;
+        }
+
+        void clear() {
+            table = new long[16];
+            mask = 15;
+            size = 0;
+        }
+
+        int size() { return size; }
+        int capacity() { return table.length; }
+    }
+
+    /**
+     * Open-addressing (linear probing) map from non-zero long keys, such as
+     * URL fingerprints, to long values. Missing keys read as -1, so values
+     * must be non-negative.
+     */
+    static class LongLongMap {
+        private long[] keys;
+        private long[] values;
+        private int size;
+        private int mask;
+
+        LongLongMap(int initialCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+            keys = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        long get(long key) {
+            int index = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[index] != 0) {
+                if (keys[index] == key) return values[index];
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the previous value, or -1 if the key was not present
+         */
+        long put(long key, long value) {
+            int index = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[index] != 0) {
+                if (keys[index] == key) {
+                    long previous = values[index];
+                    values[index] = value;
+                    return previous;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return -1;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            mask = keys.length - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        int size() { return size; }
+
+        /** Number of slots; iterate with keyAt/valueAt, skipping keys of 0 */
+        int capacity() { return keys.length; }
+        long keyAt(int slot) { return keys[slot]; }
+        long valueAt(int slot) { return values[slot]; }
+    }
+
+    /**
+     * Sorted fingerprints in a memory-mapped file
+     */
+    private static class SortedRun {
+        private final Path file;
+        private final LongBuffer values;
+        private final int count;
+
+        private SortedRun(Path file) throws IOException {
+            this.file = file;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                this.values = mapped.order(ByteOrder.nativeOrder()).asLongBuffer();
+                this.count = values.limit();
+            }
+        }
+
+        static SortedRun write(Path directory, long[] sorted) throws IOException {
+            Path file = Files.createTempFile(directory, "run", ".bin");
+            ByteBuffer buffer = ByteBuffer.allocate(sorted.length * Long.BYTES).order(ByteOrder.nativeOrder());
+            buffer.asLongBuffer().put(sorted);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return new SortedRun(file);
+        }
+
+        /**
+         * K-way merge of sorted runs into a single run
+         */
+        static SortedRun merge(Path directory, List<SortedRun> runs) throws IOException {
+            Path file = Files.createTempFile(directory, "run", ".bin");
+            int[] positions = new int[runs.size()];
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.nativeOrder());
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (true) {
+                    int smallest = -1;
+                    for (int i = 0; i < runs.size(); i++) {
+                        if (positions[i] < runs.get(i).count && (smallest == -1 ||
+                                runs.get(i).values.get(positions[i]) < runs.get(smallest).values.get(positions[smallest]))) {
+                            smallest = i;
+                        }
+                    }
+                    if (smallest == -1) break;
+
+                    buffer.putLong(runs.get(smallest).values.get(positions[smallest]++));
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                }
+                flush(channel, buffer);
+            }
+            return new SortedRun(file);
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        boolean contains(long fingerprint) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = values.get(mid);
+                if (value < fingerprint) {
+                    low = mid + 1;
+                } else if (value > fingerprint) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error deleting run file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Memory-per-URL and lookups/sec benchmark against a ConcurrentHashMap
+     * key set of URL strings.
+     *
+     * Usage: java UrlSeenStore [urlCount] [memoryBudgetMB]
+     */
+    public static void main(String[] args) throws Exception {
+        int urlCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long budgetMb = args.length > 1 ? Long.parseLong(args[1]) : 16;
+
+        System.out.println("=== URL Seen Store Benchmark ===");
+        System.out.println("URLs: " + urlCount + ", memory budget: " + budgetMb + " MB");
+
+        // Baseline: full URL strings in a concurrent set
+        long before = usedHeap();
+        Set<String> baseline = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+        for (int i = 0; i < urlCount; i++) {
+            baseline.add(sampleUrl(i));
+        }
+        long baselineInsertNs = System.nanoTime() - start;
+        long baselineBytes = usedHeap() - before;
+        start = System.nanoTime();
+        long hits = 0;
+        for (int i = 0; i < urlCount; i++) {
+            if (baseline.contains(sampleUrl(i * 2))) hits++;
+        }
+        long baselineLookupNs = System.nanoTime() - start;
+        baseline = null;
+
+        // Fingerprint store
+        try (UrlSeenStore store = new UrlSeenStore(budgetMb * 1024 * 1024, null)) {
+            start = System.nanoTime();
+            for (int i = 0; i < urlCount; i++) {
+                store.add(sampleUrl(i));
+            }
+            long storeInsertNs = System.nanoTime() - start;
+            start = System.nanoTime();
+            long storeHits = 0;
+            for (int i = 0; i < urlCount; i++) {
+                if (store.contains(sampleUrl(i * 2))) storeHits++;
+            }
+            long storeLookupNs = System.nanoTime() - start;
+
+            System.out.println("\nConcurrentHashMap<String>:");
+            System.out.printf("  Heap per URL: %.1f bytes%n", (double) baselineBytes / urlCount);
+            System.out.printf("  Inserts/sec: %,.0f%n", urlCount / (baselineInsertNs / 1e9));
+            System.out.printf("  Lookups/sec: %,.0f (hits %d)%n", urlCount / (baselineLookupNs / 1e9), hits);
+
+            System.out.println("\nUrlSeenStore:");
+            System.out.printf("  Heap per URL: %.1f bytes (fingerprint tables + Bloom filter)%n",
+                (double) store.getMemoryBytes() / urlCount);
+            System.out.printf("  Heap total: %.1f MB of a %d MB budget%n", store.getMemoryBytes() / (1024.0 * 1024),
+                budgetMb);
+            System.out.println("  Spilled to disk: " + store.getSpilledEntries() + " fingerprints");
+            System.out.printf("  Inserts/sec: %,.0f%n", urlCount / (storeInsertNs / 1e9));
+            System.out.printf("  Lookups/sec: %,.0f (hits %d)%n", urlCount / (storeLookupNs / 1e9), storeHits);
+            System.out.println("  Bloom filter short-circuits: " + store.getBloomNegatives());
+        }
+    }
+
+    private static String sampleUrl(int i) {
+        return "https://host" + (i % 1000) + ".example.com/articles/" + i + "/index.html?page=" + (i % 10);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
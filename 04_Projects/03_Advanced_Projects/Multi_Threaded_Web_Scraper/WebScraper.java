@@ -2,9 +2,10 @@ package com.tutorial.projects.advanced.webscraper;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.regex.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Web Scraper - Multi-threaded Web Scraping Application
@@ -25,19 +26,54 @@ import java.util.regex.*;
  * @since 2024
  */
 public class WebScraper {
+    /**
+     * How pages are fetched concurrently
+     */
+    public enum FetchEngine {
+        /** Fixed pool of blocking HttpURLConnection workers */
+        THREAD_POOL,
+        /** Non-blocking java.net.http.HttpClient with a global in-flight limit */
+        ASYNC_HTTP_CLIENT
+    }
+    
     private ExecutorService executorService;
-    private Set<String> visitedUrls;
-    private Queue<String> urlQueue;
+    private static final long DEFAULT_CRAWL_DELAY_MS = 250;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+    private static final long DEFAULT_SEEN_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final String RESULTS_FILE = "scraping_results.ndjson";
+    
+    private UrlSeenStore visitedUrls;
+    private CrawlFrontier frontier;
     private List<ScrapedData> scrapedData;
+    private ResultSink resultSink;
+    private final AtomicLong resultCount = new AtomicLong();
+    private CrawlCache crawlCache;
+    private final AtomicLong notModifiedCount = new AtomicLong();
     private int maxThreads;
     private int maxDepth;
+    private FetchEngine fetchEngine;
+    private HtmlStreamExtractor extractor = new HtmlStreamExtractor();
+    private SimHashIndex contentIndex = new SimHashIndex(3);
+    private boolean skipNearDuplicates = true;
+    private long maxPages = Long.MAX_VALUE;
+    private boolean verbose = true;
     
     public WebScraper(int maxThreads, int maxDepth) {
+        this(maxThreads, maxDepth, FetchEngine.THREAD_POOL);
+    }
+    
+    /**
+     * For ASYNC_HTTP_CLIENT, maxThreads is the maximum number of in-flight fetches
+     */
+    public WebScraper(int maxThreads, int maxDepth, FetchEngine fetchEngine) {
         this.maxThreads = maxThreads;
         this.maxDepth = maxDepth;
-        this.executorService = Executors.newFixedThreadPool(maxThreads);
-        this.visitedUrls = ConcurrentHashMap.newKeySet();
-        this.urlQueue = new ConcurrentLinkedQueue<>();
+        this.fetchEngine = fetchEngine;
+        this.executorService = fetchEngine == FetchEngine.THREAD_POOL
+            ? Executors.newFixedThreadPool(maxThreads)
+            : null;
+        this.visitedUrls = new UrlSeenStore(DEFAULT_SEEN_MEMORY_BUDGET, null);
+        this.frontier = new CrawlFrontier(DEFAULT_CRAWL_DELAY_MS, DEFAULT_MAX_CONNECTIONS_PER_HOST);
         this.scrapedData = Collections.synchronizedList(new ArrayList<>());
     }
     
@@ -46,15 +82,27 @@ public class WebScraper {
         
         Scanner scanner = new Scanner(System.in);
         
-        System.out.print("Enter maximum number of threads (default 5): ");
+        System.out.print("Use async HttpClient engine? (y/n): ");
+        boolean async = scanner.next().equalsIgnoreCase("y");
+        
+        System.out.print(async
+            ? "Enter maximum concurrent fetches (default 200): "
+            : "Enter maximum number of threads (default 5): ");
         int maxThreads = scanner.nextInt();
-        if (maxThreads <= 0) maxThreads = 5;
+        if (maxThreads <= 0) maxThreads = async ? 200 : 5;
         
         System.out.print("Enter maximum depth (default 2): ");
         int maxDepth = scanner.nextInt();
         if (maxDepth <= 0) maxDepth = 2;
         
-        WebScraper scraper = new WebScraper(maxThreads, maxDepth);
+        WebScraper scraper = new WebScraper(maxThreads, maxDepth,
+            async ? FetchEngine.ASYNC_HTTP_CLIENT : FetchEngine.THREAD_POOL);
+        try {
+            scraper.setResultSink(new AsyncResultSink(
+                new NdjsonResultSink(java.nio.file.Paths.get(RESULTS_FILE)), 1024));
+        } catch (IOException e) {
+            System.err.println("Error opening results file: " + e.getMessage());
+        }
         
         System.out.print("Enter starting URL: ");
         String startUrl = scanner.next();
@@ -74,30 +122,50 @@ public class WebScraper {
      */
     public void scrape(String startUrl, String keyword) {
         System.out.println("Starting web scraping...");
+        System.out.println("Engine: " + fetchEngine);
         System.out.println("Max threads: " + maxThreads);
         System.out.println("Max depth: " + maxDepth);
         System.out.println("Start URL: " + startUrl);
         System.out.println("Keyword: " + (keyword.isEmpty() ? "None" : keyword));
         
-        urlQueue.offer(startUrl);
+        enqueue(startUrl, 0, keyword);
         
-        List<Future<?>> futures = new ArrayList<>();
-        
-        for (int i = 0; i < maxThreads; i++) {
-            Future<?> future = executorService.submit(new ScrapingWorker(keyword));
-            futures.add(future);
+        if (fetchEngine == FetchEngine.ASYNC_HTTP_CLIENT) {
+            try {
+                new AsyncCrawlEngine(this, maxThreads).crawl(keyword);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Scraping interrupted: " + e.getMessage());
+            }
+        } else {
+            List<Future<?>> futures = new ArrayList<>();
+            
+            for (int i = 0; i < maxThreads; i++) {
+                Future<?> future = executorService.submit(new ScrapingWorker(keyword));
+                futures.add(future);
+            }
+            
+            // Wait for all threads to complete
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error in scraping thread: " + e.getMessage());
+                }
+            }
         }
         
-        // Wait for all threads to complete
-        for (Future<?> future : futures) {
+        if (resultSink != null) {
             try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                System.err.println("Error in scraping thread: " + e.getMessage());
+                resultSink.flush();
+            } catch (IOException e) {
+                System.err.println("Error saving results: " + e.getMessage());
             }
         }
         
-        displayResults();
+        if (verbose) {
+            displayResults();
+        }
     }
     
     /**
@@ -112,18 +180,20 @@ public class WebScraper {
         
         @Override
         public void run() {
-            while (!urlQueue.isEmpty()) {
-                String url = urlQueue.poll();
-                if (url == null) continue;
-                
-                if (visitedUrls.contains(url)) continue;
-                visitedUrls.add(url);
-                
-                try {
-                    scrapeUrl(url, keyword);
-                } catch (Exception e) {
-                    System.err.println("Error scraping URL " + url + ": " + e.getMessage());
+            try {
+                // take() blocks while other workers may still discover links
+                CrawlFrontier.CrawlRequest request;
+                while ((request = frontier.take()) != null) {
+                    try {
+                        scrapeUrl(request, keyword);
+                    } catch (Exception e) {
+                        System.err.println("Error scraping URL " + request.getUrl() + ": " + e.getMessage());
+                    } finally {
+                        frontier.complete(request);
+                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -131,8 +201,11 @@ public class WebScraper {
     /**
      * Scrape a single URL
      */
-    private void scrapeUrl(String url, String keyword) throws IOException {
-        System.out.println("Scraping: " + url);
+    private void scrapeUrl(CrawlFrontier.CrawlRequest request, String keyword) throws IOException {
+        String url = request.getUrl();
+        if (verbose) {
+            System.out.println("Scraping: " + url);
+        }
         
         URL urlObj = new URL(url);
         HttpURLConnection connection = (HttpURLConnection) urlObj.openConnection();
@@ -141,138 +214,135 @@ public class WebScraper {
         connection.setConnectTimeout(5000);
         connection.setReadTimeout(10000);
         
+        // Revalidate pages we already have instead of downloading them again
+        CrawlCache.Entry cached = revalidationEntry(url, keyword);
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                connection.setRequestProperty("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
+        }
+        
         int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            processNotModified(request, cached, keyword);
+            return;
+        }
         if (responseCode != HttpURLConnection.HTTP_OK) {
             System.err.println("HTTP error: " + responseCode + " for URL: " + url);
             return;
         }
         
-        String content = readContent(connection);
-        if (content == null) return;
-        
-        // Extract data from content
-        ScrapedData data = extractData(url, content, keyword);
-        if (data != null) {
-            scrapedData.add(data);
-        }
-        
-        // Extract links for further scraping
-        if (visitedUrls.size() < 100) { // Limit total URLs
-            extractLinks(url, content);
+        // Closing early (when the extractor stops) drops the rest of the body
+        try (InputStream in = connection.getInputStream()) {
+            processPage(request, in, HtmlStreamExtractor.charsetOf(connection.getContentType()), keyword,
+                connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
         }
     }
     
     /**
-     * Read content from HTTP connection
+     * Extract data and follow-up links from a fetched page (shared by all engines)
      */
-    private String readContent(HttpURLConnection connection) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            StringBuilder content = new StringBuilder();
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-            
-            return content.toString();
-        } catch (IOException e) {
-            System.err.println("Error reading content: " + e.getMessage());
-            return null;
+    void processPage(CrawlFrontier.CrawlRequest request, InputStream content, Charset charset, String keyword,
+                     String etag, String lastModified) throws IOException {
+        String url = request.getUrl();
+        
+        // Extract data from content in a single pass
+        ScrapedData data = extractor.extract(url, content, charset, keyword);
+        if (crawlCache != null) {
+            crawlCache.put(url, etag, lastModified, keyword, data);
         }
+        accept(request, data, keyword);
     }
     
     /**
-     * Extract data from HTML content
+     * The server confirmed the cached copy is current: reuse its extraction
      */
-    private ScrapedData extractData(String url, String content, String keyword) {
-        ScrapedData data = new ScrapedData();
-        data.setUrl(url);
-        data.setTimestamp(new Date());
-        
-        // Extract title
-        Pattern titlePattern = Pattern.compile("<title>(.*?)</title>", Pattern.CASE_INSENSITIVE);
-        Matcher titleMatcher = titlePattern.matcher(content);
-        if (titleMatcher.find()) {
-            data.setTitle(titleMatcher.group(1).trim());
-        }
+    void processNotModified(CrawlFrontier.CrawlRequest request, CrawlCache.Entry cached, String keyword)
+            throws IOException {
+        notModifiedCount.incrementAndGet();
+        accept(request, cached.getData(), keyword);
+    }
+    
+    /**
+     * Cache entry to revalidate against, if it was extracted with the same keyword
+     */
+    CrawlCache.Entry revalidationEntry(String url, String keyword) throws IOException {
+        if (crawlCache == null) return null;
+        CrawlCache.Entry cached = crawlCache.get(url);
+        return cached != null && Objects.equals(cached.getKeyword(), keyword) ? cached : null;
+    }
+    
+    /**
+     * Store an extracted page and follow its links
+     */
+    private void accept(CrawlFrontier.CrawlRequest request, ScrapedData data, String keyword) throws IOException {
+        String url = request.getUrl();
         
-        // Extract meta description
-        Pattern descPattern = Pattern.compile("<meta\\s+name=\"description\"\\s+content=\"(.*?)\"", Pattern.CASE_INSENSITIVE);
-        Matcher descMatcher = descPattern.matcher(content);
-        if (descMatcher.find()) {
-            data.setDescription(descMatcher.group(1).trim());
+        // Mirrors and boilerplate variants are neither stored nor followed
+        if (skipNearDuplicates && data.getContentFingerprint() != 0
+                && !contentIndex.addIfUnique(data.getContentFingerprint())) {
+            return;
         }
         
-        // Extract headings
-        Pattern headingPattern = Pattern.compile("<h[1-6][^>]*>(.*?)</h[1-6]>", Pattern.CASE_INSENSITIVE);
-        Matcher headingMatcher = headingPattern.matcher(content);
-        List<String> headings = new ArrayList<>();
-        while (headingMatcher.find()) {
-            String heading = headingMatcher.group(1).replaceAll("<[^>]+>", "").trim();
-            if (!heading.isEmpty()) {
-                headings.add(heading);
-            }
-        }
-        data.setHeadings(headings);
-        
-        // Extract links
-        Pattern linkPattern = Pattern.compile("<a[^>]+href=\"([^\"]+)\"[^>]*>(.*?)</a>", Pattern.CASE_INSENSITIVE);
-        Matcher linkMatcher = linkPattern.matcher(content);
-        List<String> links = new ArrayList<>();
-        while (linkMatcher.find()) {
-            String link = linkMatcher.group(1).trim();
-            if (!link.isEmpty() && !link.startsWith("#")) {
-                links.add(link);
-            }
-        }
-        data.setLinks(links);
-        
-        // Extract images
-        Pattern imgPattern = Pattern.compile("<img[^>]+src=\"([^\"]+)\"[^>]*>", Pattern.CASE_INSENSITIVE);
-        Matcher imgMatcher = imgPattern.matcher(content);
-        List<String> images = new ArrayList<>();
-        while (imgMatcher.find()) {
-            String img = imgMatcher.group(1).trim();
-            if (!img.isEmpty()) {
-                images.add(img);
-            }
+        // Stream to the sink when one is set; it may block to apply backpressure
+        if (resultSink != null) {
+            resultSink.write(data);
+        } else {
+            scrapedData.add(data);
         }
-        data.setImages(images);
+        resultCount.incrementAndGet();
         
-        // Check for keyword
-        if (!keyword.isEmpty()) {
-            boolean containsKeyword = content.toLowerCase().contains(keyword.toLowerCase());
-            data.setContainsKeyword(containsKeyword);
+        // Follow the extracted links
+        if (visitedUrls.size() < maxPages) { // Optional limit on total URLs
+            followLinks(url, data.getLinks(), request.getDepth() + 1, keyword);
         }
+    }
+    
+    /**
+     * Queue a URL at the given depth unless it is too deep or already seen
+     */
+    private void enqueue(String url, int depth, String keyword) {
+        if (depth > maxDepth) return;
         
-        return data;
+        url = UrlSeenStore.canonicalize(url);
+        if (!visitedUrls.add(url)) return;
+        
+        // Links that mention the keyword are fetched first within a depth
+        double score = !keyword.isEmpty() && url.toLowerCase().contains(keyword.toLowerCase()) ? 1.0 : 0.0;
+        frontier.offer(url, depth, score);
+    }
+    
+    CrawlFrontier getFrontier() {
+        return frontier;
     }
     
     /**
-     * Extract links for further scraping
+     * Queue same-host links for further scraping
      */
-    private void extractLinks(String baseUrl, String content) {
+    private void followLinks(String baseUrl, List<String> links, int depth, String keyword) {
+        URL base;
         try {
-            URL base = new URL(baseUrl);
-            Pattern linkPattern = Pattern.compile("<a[^>]+href=\"([^\"]+)\"[^>]*>", Pattern.CASE_INSENSITIVE);
-            Matcher linkMatcher = linkPattern.matcher(content);
-            
-            while (linkMatcher.find()) {
-                String link = linkMatcher.group(1).trim();
-                if (link.isEmpty() || link.startsWith("#")) continue;
-                
+            base = new URL(baseUrl);
+        } catch (MalformedURLException e) {
+            System.err.println("Error processing links: " + e.getMessage());
+            return;
+        }
+        
+        for (String link : links) {
+            try {
                 // Convert relative URLs to absolute
                 URL absoluteUrl = new URL(base, link);
-                String absoluteLink = absoluteUrl.toString();
                 
-                // Only add if not visited and within same domain
-                if (!visitedUrls.contains(absoluteLink) && 
-                    absoluteUrl.getHost().equals(base.getHost())) {
-                    urlQueue.offer(absoluteLink);
+                // Only add if within same domain; enqueue() skips visited URLs
+                if (absoluteUrl.getHost().equals(base.getHost())) {
+                    enqueue(absoluteUrl.toString(), depth, keyword);
                 }
+            } catch (MalformedURLException e) {
+                // Skip links that cannot be resolved
             }
-        } catch (MalformedURLException e) {
-            System.err.println("Error processing links: " + e.getMessage());
         }
     }
     
@@ -282,7 +352,17 @@ public class WebScraper {
     private void displayResults() {
         System.out.println("\n=== Scraping Results ===");
         System.out.println("Total URLs visited: " + visitedUrls.size());
-        System.out.println("Total data extracted: " + scrapedData.size());
+        System.out.println("Total data extracted: " + resultCount.get());
+        System.out.printf("Near-duplicates skipped: %d (%.1f%%)%n",
+            contentIndex.getDuplicates(), contentIndex.getDuplicateRate() * 100);
+        if (crawlCache != null) {
+            System.out.println("Unchanged pages (304 Not Modified): " + notModifiedCount.get());
+        }
+        
+        if (resultSink != null) {
+            System.out.println("Results were streamed to the result sink");
+            return;
+        }
         
         if (scrapedData.isEmpty()) {
             System.out.println("No data extracted.");
@@ -316,6 +396,7 @@ public class WebScraper {
             writer.println("===================");
             writer.println("Total URLs: " + visitedUrls.size());
             writer.println("Total Data: " + scrapedData.size());
+            writer.println("Near-duplicates skipped: " + contentIndex.getDuplicates());
             writer.println();
             
             for (ScrapedData data : scrapedData) {
@@ -325,6 +406,7 @@ public class WebScraper {
                 writer.println("Headings: " + data.getHeadings());
                 writer.println("Links: " + data.getLinks().size());
                 writer.println("Images: " + data.getImages().size());
+                writer.println("Fingerprint: " + Long.toHexString(data.getContentFingerprint()));
                 writer.println("Timestamp: " + data.getTimestamp());
                 writer.println("---");
             }
@@ -335,10 +417,65 @@ public class WebScraper {
         }
     }
     
+    public void setMaxPages(long maxPages) { this.maxPages = maxPages; }
+    
+    /**
+     * Stream results to the sink instead of keeping them in memory;
+     * the scraper closes the sink on shutdown()
+     */
+    public void setResultSink(ResultSink resultSink) { this.resultSink = resultSink; }
+    
+    /**
+     * Revalidate previously crawled pages with conditional requests;
+     * the scraper closes the cache on shutdown()
+     */
+    public void setCrawlCache(CrawlCache crawlCache) { this.crawlCache = crawlCache; }
+    
+    /**
+     * Politeness settings; must be called before scrape()
+     */
+    public void setPoliteness(long crawlDelayMs, int maxConnectionsPerHost) {
+        this.frontier = new CrawlFrontier(crawlDelayMs, maxConnectionsPerHost);
+    }
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+    
+    /**
+     * Skip pages whose SimHash is within 3 bits of an already scraped page
+     */
+    public void setSkipNearDuplicates(boolean skipNearDuplicates) {
+        this.skipNearDuplicates = skipNearDuplicates;
+        extractor.setFingerprintContent(skipNearDuplicates);
+    }
+    boolean isVerbose() { return verbose; }
+    
+    public long getVisitedCount() { return visitedUrls.size(); }
+    public List<ScrapedData> getScrapedData() { return scrapedData; }
+    public long getResultCount() { return resultCount.get(); }
+    public long getNotModifiedCount() { return notModifiedCount.get(); }
+    public long getNearDuplicateCount() { return contentIndex.getDuplicates(); }
+    public double getDuplicateRate() { return contentIndex.getDuplicateRate(); }
+    
     /**
      * Shutdown the scraper
      */
     public void shutdown() {
+        visitedUrls.close();
+        if (resultSink != null) {
+            try {
+                resultSink.close();
+            } catch (IOException e) {
+                System.err.println("Error saving results: " + e.getMessage());
+            }
+        }
+        if (crawlCache != null) {
+            try {
+                crawlCache.close();
+            } catch (IOException e) {
+                System.err.println("Error closing crawl cache: " + e.getMessage());
+            }
+        }
+        if (executorService == null) return;
+        
         executorService.shutdown();
         try {
             if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
@@ -361,6 +498,7 @@ public class WebScraper {
         private List<String> images;
         private boolean containsKeyword;
         private Date timestamp;
+        private long contentFingerprint;
         
         public ScrapedData() {
             this.headings = new ArrayList<>();
@@ -392,5 +530,8 @@ public class WebScraper {
         
         public Date getTimestamp() { return timestamp; }
         public void setTimestamp(Date timestamp) { this.timestamp = timestamp; }
+        
+        public long getContentFingerprint() { return contentFingerprint; }
+        public void setContentFingerprint(long contentFingerprint) { this.contentFingerprint = contentFingerprint; }
     }
 }
@@ -0,0 +1,539 @@
+/**
+ * Batching Pipeline - Bounded read -> transform -> write stages on virtual threads
+ *
+ * One virtual thread per item is the simplest model, but when items are
+ * small and every I/O call has a fixed cost (a round trip, a syscall, a
+ * commit) that cost dominates: 10,000 items mean 10,000 reads and 10,000
+ * writes. A pipeline instead passes items through stages connected by
+ * bounded queues. Each stage has its own workers, and each worker takes a
+ * batch from its queue and handles the whole batch with one call.
+ *
+ * Batching is automatic: a worker takes the first item it can get, then
+ * keeps collecting until the batch is full (size flush) or the stage's
+ * maximum delay has passed since the first item (time flush). Under load
+ * batches fill up at once; when traffic is light an item waits at most the
+ * maximum delay per stage.
+ *
+ * Every queue is bounded. When a stage falls behind its input queue fills,
+ * the stage before it blocks on put, and eventually submit blocks the
+ * caller: backpressure instead of an ever-growing backlog.
+ *
+ * LEARNING OBJECTIVES:
+ * - Amortize per-call I/O cost by batching
+ * - Connect stages with bounded queues for backpressure
+ * - Trade a bounded amount of latency for throughput
+ *
+ * KEY CONCEPTS:
+ * 1. Staged Pipeline: separate concurrency per stage
+ * 2. Size/Time Flush: full batches under load, bounded delay when idle
+ * 3. Backpressure: blocking puts on bounded queues
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class BatchingPipeline<I, O> implements AutoCloseable {
+
+    /**
+     * Handles a whole batch; must return one result per input, in order
+     */
+    @FunctionalInterface
+    public interface BatchFunction<A, B> {
+        List<B> apply(List<A> batch) throws Exception;
+    }
+
+    /**
+     * Handles a single item; see perItem
+     */
+    @FunctionalInterface
+    public interface ItemFunction<A, B> {
+        B apply(A item) throws Exception;
+    }
+
+    /**
+     * An item on its way through the stages; value is replaced by each stage
+     */
+    private static class Envelope {
+        Object value;
+        final CompletableFuture<Object> result;
+
+        Envelope(Object value, CompletableFuture<Object> result) {
+            this.value = value;
+            this.result = result;
+        }
+    }
+
+    // Stops a stage's workers; each worker puts it back for the next one
+    private static final Envelope POISON = new Envelope(null, null);
+
+    private static class Stage {
+        final String name;
+        final int workers;
+        final int maxBatch;
+        final long maxDelayNanos;
+        final BlockingQueue<Envelope> queue;
+        final BatchFunction<Object, Object> function;
+        final List<Thread> threads = new ArrayList<>();
+        final LongAdder items = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder sizeFlushes = new LongAdder();
+        final LongAdder failedBatches = new LongAdder();
+        Stage next;
+
+        Stage(String name, int workers, int maxBatch, long maxDelayNanos, int queueCapacity,
+              BatchFunction<Object, Object> function) {
+            this.name = name;
+            this.workers = workers;
+            this.maxBatch = maxBatch;
+            this.maxDelayNanos = maxDelayNanos;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.function = function;
+        }
+    }
+
+    private final List<Stage> stages;
+    private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private BatchingPipeline(List<Stage> stages) {
+        this.stages = stages;
+        for (int i = 0; i < stages.size() - 1; i++) {
+            stages.get(i).next = stages.get(i + 1);
+        }
+        for (Stage stage : stages) {
+            for (int i = 0; i < stage.workers; i++) {
+                stage.threads.add(Thread.ofVirtual()
+                    .name(stage.name + "-" + i)
+                    .start(() -> runWorker(stage)));
+            }
+        }
+    }
+
+    public static <T> Builder<T, T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Adapt a per-item function to a stage (for stages that gain nothing
+     * from batching, such as a CPU-bound transform)
+     */
+    public static <A, B> BatchFunction<A, B> perItem(ItemFunction<? super A, ? extends B> function) {
+        return batch -> {
+            List<B> results = new ArrayList<>(batch.size());
+            for (A item : batch) {
+                results.add(function.apply(item));
+            }
+            return results;
+        };
+    }
+
+    /**
+     * Queue an item at the first stage, blocking while its queue is full
+     *
+     * @return completed with the last stage's result for this item
+     * @throws RejectedExecutionException if the pipeline is closed
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        submitLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Pipeline is closed");
+            }
+            stages.get(0).queue.put(new Envelope(item, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        return (CompletableFuture<O>) result;
+    }
+
+    private void runWorker(Stage stage) {
+        List<Envelope> batch = new ArrayList<>(stage.maxBatch);
+        boolean stopping = false;
+        while (!stopping) {
+            batch.clear();
+            try {
+                Envelope first = stage.queue.take();
+                if (first == POISON) {
+                    stage.queue.put(POISON);
+                    return;
+                }
+                batch.add(first);
+                stopping = fill(stage, batch);
+                if (batch.size() == stage.maxBatch) {
+                    stage.sizeFlushes.increment();
+                }
+                process(stage, batch);
+                if (stopping) {
+                    stage.queue.put(POISON);
+                }
+            } catch (InterruptedException e) {
+                for (Envelope envelope : batch) {
+                    envelope.result.completeExceptionally(e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collect items until the batch is full or the stage's delay has passed
+     *
+     * @return true if the stage is shutting down
+     */
+    private static boolean fill(Stage stage, List<Envelope> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + stage.maxDelayNanos;
+        while (batch.size() < stage.maxBatch) {
+            Envelope next = stage.queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = stage.queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    return false;
+                }
+            }
+            if (next == POISON) {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private static void process(Stage stage, List<Envelope> batch) throws InterruptedException {
+        List<Object> inputs = new ArrayList<>(batch.size());
+        for (Envelope envelope : batch) {
+            inputs.add(envelope.value);
+        }
+
+        List<Object> outputs;
+        try {
+            outputs = stage.function.apply(inputs);
+            if (outputs == null || outputs.size() != inputs.size()) {
+                throw new IllegalStateException("Stage " + stage.name + " returned "
+                    + (outputs == null ? 0 : outputs.size()) + " results for " + inputs.size() + " items");
+            }
+        } catch (Exception e) {
+            stage.failedBatches.increment();
+            for (Envelope envelope : batch) {
+                envelope.result.completeExceptionally(e);
+            }
+            batch.clear();
+            return;
+        }
+        stage.items.add(batch.size());
+        stage.batches.increment();
+
+        // Hand results on; put blocks while the next stage is full
+        for (int i = 0; i < batch.size(); i++) {
+            Envelope envelope = batch.get(i);
+            if (stage.next == null) {
+                envelope.result.complete(outputs.get(i));
+            } else {
+                envelope.value = outputs.get(i);
+                stage.next.queue.put(envelope);
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Per-stage counters
+     */
+    public List<StageStats> getStageStats() {
+        List<StageStats> stats = new ArrayList<>();
+        for (Stage stage : stages) {
+            stats.add(new StageStats(stage.name, stage.workers, stage.items.sum(), stage.batches.sum(),
+                stage.sizeFlushes.sum(), stage.failedBatches.sum(), stage.queue.size()));
+        }
+        return stats;
+    }
+
+    /**
+     * Stop accepting items, let every queued item run through all stages,
+     * then stop the workers
+     */
+    @Override
+    public void close() {
+        submitLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+
+        try {
+            // Stage by stage, so everything upstream has been handed on first
+            for (Stage stage : stages) {
+                stage.queue.put(POISON);
+                for (Thread thread : stage.threads) {
+                    thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds the stages in order; each stage's input type is the previous
+     * stage's output type
+     */
+    public static class Builder<I, C> {
+        private final List<Stage> stages = new ArrayList<>();
+
+        /**
+         * @param workers       virtual threads working this stage
+         * @param maxBatch      flush once a batch has this many items
+         * @param maxDelay      flush once the first item has waited this long
+         *                      (zero: take whatever is queued, no waiting)
+         * @param queueCapacity bound of the stage's input queue
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public <N> Builder<I, N> stage(String name, int workers, int maxBatch, Duration maxDelay,
+                                       int queueCapacity, BatchFunction<? super C, N> function) {
+            if (workers <= 0 || maxBatch <= 0 || queueCapacity <= 0 || maxDelay.isNegative()) {
+                throw new IllegalArgumentException("Invalid configuration for stage " + name);
+            }
+            stages.add(new Stage(name, workers, maxBatch, maxDelay.toNanos(), queueCapacity,
+                (BatchFunction) function));
+            return (Builder<I, N>) this;
+        }
+
+        public BatchingPipeline<I, C> build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("A pipeline needs at least one stage");
+            }
+            return new BatchingPipeline<>(new ArrayList<>(stages));
+        }
+    }
+
+    /**
+     * Counters of one stage
+     */
+    public static class StageStats {
+        private final String name;
+        private final int workers;
+        private final long items;
+        private final long batches;
+        private final long sizeFlushes;
+        private final long failedBatches;
+        private final int queued;
+
+        public StageStats(String name, int workers, long items, long batches, long sizeFlushes,
+                          long failedBatches, int queued) {
+            this.name = name;
+            this.workers = workers;
+            this.items = items;
+            this.batches = batches;
+            this.sizeFlushes = sizeFlushes;
+            this.failedBatches = failedBatches;
+            this.queued = queued;
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public int getWorkers() { return workers; }
+        public long getItems() { return items; }
+        public long getBatches() { return batches; }
+        /** Batches flushed because they were full; the rest hit the time limit */
+        public long getSizeFlushes() { return sizeFlushes; }
+        public long getFailedBatches() { return failedBatches; }
+        public int getQueued() { return queued; }
+
+        public double getAverageBatchSize() {
+            return batches == 0 ? 0 : (double) items / batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d workers, %d items in %d batches (avg %.1f, %d full), %d failed, %d queued",
+                name, workers, items, batches, getAverageBatchSize(), sizeFlushes, failedBatches, queued);
+        }
+    }
+
+    // --- Benchmark ---
+
+    private static final int CONNECTIONS = 16;
+    private static final long CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_BATCH = 64;
+    private static final Duration MAX_DELAY = Duration.ofMillis(2);
+
+    /**
+     * Per-item model (what VirtualThreadService.processData does: one
+     * virtual thread per item) vs the pipeline, against a stub store with
+     * 16 connections, 1 ms per call plus 1 ns per byte.
+     *
+     * For each item size: items/sec with all items submitted at once, and
+     * latency percentiles at a fixed arrival rate both models can sustain.
+     *
+     * Usage: java BatchingPipeline [items] [ratePerSecond]
+     */
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int[] sizes = {64, 1024, 16 * 1024, 256 * 1024};
+
+        System.out.println("=== Batching Pipeline Benchmark ===");
+        System.out.printf("Stub store: %d connections, %d ms per call + 1 ns per byte%n",
+            CONNECTIONS, TimeUnit.NANOSECONDS.toMillis(CALL_NANOS));
+        System.out.printf("Pipeline: read %d / transform %d / write %d workers, batches up to %d, max delay %d ms%n",
+            CONNECTIONS / 2, Runtime.getRuntime().availableProcessors(), CONNECTIONS / 2, MAX_BATCH,
+            MAX_DELAY.toMillis());
+        System.out.printf("Throughput: %d items at once; latency: %d items/sec for 2 s%n", items, rate);
+
+        List<String> rows = new ArrayList<>();
+        for (int size : sizes) {
+            for (boolean pipelined : new boolean[] {false, true}) {
+                String model = pipelined ? "pipeline" : "per-item";
+                run(pipelined, size, Math.min(items, 2_000), 0);   // warm-up
+                long[] throughput = run(pipelined, size, items, 0);
+                long[] latency = run(pipelined, size, rate * 2, rate);
+                rows.add(String.format("%-8s %-9s %12d %10.1f %10.1f %10.1f", formatSize(size), model,
+                    throughput[0], latency[1] / 1e6, latency[2] / 1e6, latency[3] / 1e6));
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %-9s %12s %10s %10s %10s%n", "Size", "Model", "items/sec", "p50 ms", "p99 ms",
+            "max ms");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * @param rate items per second, or 0 to submit everything at once
+     * @return items/sec, then p50, p99 and max latency in nanoseconds
+     */
+    private static long[] run(boolean pipelined, int size, int count, int rate) throws Exception {
+        StubStore store = new StubStore(CONNECTIONS);
+        String payload = "x".repeat(size);
+        long[] latencies = new long[count];
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(count);
+
+        BatchingPipeline<String, Integer> pipeline = null;
+        ExecutorService executor = null;
+        if (pipelined) {
+            pipeline = BatchingPipeline.<String>builder()
+                .stage("read", CONNECTIONS / 2, MAX_BATCH, MAX_DELAY, 1024, store::read)
+                .stage("transform", Runtime.getRuntime().availableProcessors(), MAX_BATCH, Duration.ZERO, 1024,
+                    perItem(BatchingPipeline::transform))
+                .stage("write", CONNECTIONS / 2, MAX_BATCH, MAX_DELAY, 1024, store::write)
+                .build();
+        } else {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            // Open loop: latency counts from the intended arrival time
+            long arrival = rate == 0 ? System.nanoTime() : start + i * 1_000_000_000L / rate;
+            if (rate > 0) {
+                LockSupport.parkNanos(arrival - System.nanoTime());
+            }
+            String key = payload;
+            CompletableFuture<Integer> future;
+            if (pipelined) {
+                future = pipeline.submit(key);
+            } else {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String read = store.read(List.of(key)).get(0);
+                        return store.write(List.of(transform(read))).get(0);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+            }
+            future.whenComplete((result, error) -> {
+                latencies[done.getAndIncrement()] = System.nanoTime() - arrival;
+                finished.countDown();
+            });
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+
+        if (pipelined) {
+            pipeline.close();
+        } else {
+            executor.close();
+        }
+
+        Arrays.sort(latencies);
+        return new long[] {
+            count * 1_000_000_000L / elapsed,
+            latencies[count / 2],
+            latencies[(int) Math.min(count - 1, Math.ceil(count * 0.99) - 1)],
+            latencies[count - 1]
+        };
+    }
+
+    private static String transform(String data) {
+        return data.toUpperCase();
+    }
+
+    private static String formatSize(int bytes) {
+        return bytes >= 1024 ? (bytes / 1024) + " KB" : bytes + " B";
+    }
+
+    /**
+     * Remote store with a connection limit: every call holds a connection
+     * for a fixed round trip plus transfer time
+     */
+    private static class StubStore {
+        private final Semaphore connections;
+
+        StubStore(int connections) {
+            this.connections = new Semaphore(connections);
+        }
+
+        List<String> read(List<String> keys) throws InterruptedException {
+            call(totalLength(keys));
+            return keys;
+        }
+
+        List<Integer> write(List<String> values) throws InterruptedException {
+            call(totalLength(values));
+            List<Integer> lengths = new ArrayList<>(values.size());
+            for (String value : values) {
+                lengths.add(value.length());
+            }
+            return lengths;
+        }
+
+        private void call(long bytes) throws InterruptedException {
+            connections.acquire();
+            try {
+                LockSupport.parkNanos(CALL_NANOS + bytes);
+            } finally {
+                connections.release();
+            }
+        }
+
+        private static long totalLength(List<String> values) {
+            long bytes = 0;
+            for (String value : values) {
+                bytes += value.length();
+            }
+            return bytes;
+        }
+    }
+}
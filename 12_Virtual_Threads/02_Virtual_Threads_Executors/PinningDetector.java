@@ -0,0 +1,279 @@
+package com.tutorial.virtual.threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Pinning Detector - Find virtual threads pinned to their carrier, in-process
+ *
+ * A virtual thread that blocks while holding a monitor (inside a
+ * synchronized block or method) or inside a native frame cannot unmount:
+ * it keeps its carrier thread blocked too. With only a few carriers (one
+ * per CPU) a little pinning quietly serializes a whole workload.
+ *
+ * The JVM reports each such episode as a JFR jdk.VirtualThreadPinned event
+ * with a stack trace. This utility streams those events in-process with a
+ * RecordingStream (no jcmd or external tools), groups them by the stack
+ * trace of the pinning site and reports the sites with the most pinned
+ * time. It also counts jdk.VirtualThreadSubmitFailed events.
+ *
+ * Usage:
+ *   try (PinningDetector detector = PinningDetector.start()) {
+ *       runWorkload();
+ *       detector.stop().assertNoPinning();   // e.g. in a test
+ *   }
+ *
+ * LEARNING OBJECTIVES:
+ * - Understand when virtual threads get pinned
+ * - Consume JFR events in-process with RecordingStream
+ * - Turn a runtime diagnostic into an assertion
+ *
+ * KEY CONCEPTS:
+ * 1. Pinning: a virtual thread that cannot unmount from its carrier
+ * 2. JFR Event Streaming: reading events while the recording runs
+ * 3. Aggregation: grouping events by stack trace
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class PinningDetector implements AutoCloseable {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+    private static final int STACK_DEPTH = 8;
+
+    private final RecordingStream stream = new RecordingStream();
+    private final Map<String, Site> sites = new HashMap<>();
+    private long submitFailures;
+    private boolean stopped;
+
+    /**
+     * One place in the code where virtual threads were pinned
+     */
+    public static class Site {
+        private final String stackTrace;
+        private long events;
+        private long totalNanos;
+        private long maxNanos;
+
+        Site(String stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+
+        public String getStackTrace() { return stackTrace; }
+        public long getEvents() { return events; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+    }
+
+    private PinningDetector(Duration threshold) {
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.enable(SUBMIT_FAILED_EVENT).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.onEvent(SUBMIT_FAILED_EVENT, event -> {
+            synchronized (sites) {
+                submitFailures++;
+            }
+        });
+    }
+
+    /**
+     * Start recording pinning episodes of 1 ms or longer
+     */
+    public static PinningDetector start() {
+        return start(Duration.ofMillis(1));
+    }
+
+    /**
+     * Start recording pinning episodes that last at least the threshold
+     */
+    public static PinningDetector start(Duration threshold) {
+        PinningDetector detector = new PinningDetector(threshold);
+        detector.stream.startAsync();
+        return detector;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String key = format(event.getStackTrace());
+        long nanos = event.getDuration().toNanos();
+        synchronized (sites) {
+            Site site = sites.computeIfAbsent(key, Site::new);
+            site.events++;
+            site.totalNanos += nanos;
+            site.maxNanos = Math.max(site.maxNanos, nanos);
+        }
+    }
+
+    /**
+     * Stop recording, wait until every recorded event has been processed
+     * and return the report
+     */
+    public PinningReport stop() {
+        if (!stopped) {
+            stopped = true;
+            stream.stop();
+        }
+        synchronized (sites) {
+            List<Site> sorted = new ArrayList<>(sites.values());
+            sorted.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+            return new PinningReport(sorted, submitFailures);
+        }
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "(no stack trace)";
+        }
+        StringBuilder sb = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        int shown = 0;
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            // Skip the JDK's parking frames at the top and lambda glue
+            if ((shown == 0 && type.startsWith("java.lang.VirtualThread")) || type.contains("$$Lambda")) {
+                continue;
+            }
+            if (shown == STACK_DEPTH) {
+                sb.append("    ...\n");
+                break;
+            }
+            sb.append("    at ").append(type)
+              .append('.').append(frame.getMethod().getName())
+              .append(" line ").append(frame.getLineNumber()).append('\n');
+            shown++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pinning sites, worst first (by total pinned time)
+     */
+    public static class PinningReport {
+        private final List<Site> sites;
+        private final long submitFailures;
+
+        PinningReport(List<Site> sites, long submitFailures) {
+            this.sites = sites;
+            this.submitFailures = submitFailures;
+        }
+
+        public List<Site> getSites() { return sites; }
+        public long getSubmitFailures() { return submitFailures; }
+
+        public long getPinnedEvents() {
+            return sites.stream().mapToLong(Site::getEvents).sum();
+        }
+
+        public long getTotalPinnedNanos() {
+            return sites.stream().mapToLong(Site::getTotalNanos).sum();
+        }
+
+        /**
+         * @throws AssertionError listing the worst sites if anything was pinned
+         */
+        public void assertNoPinning() {
+            if (!sites.isEmpty()) {
+                throw new AssertionError("Virtual threads were pinned\n" + format(3));
+            }
+        }
+
+        /**
+         * Summary plus the given number of worst sites
+         */
+        public String format(int top) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Pinned events: %d, pinned time: %.1f ms, pinning sites: %d, submit failures: %d%n",
+                getPinnedEvents(), getTotalPinnedNanos() / 1e6, sites.size(), submitFailures));
+            for (int i = 0; i < Math.min(top, sites.size()); i++) {
+                Site site = sites.get(i);
+                sb.append(String.format("#%d  %d events, %.1f ms total, %.1f ms max%n", i + 1,
+                    site.events, site.totalNanos / 1e6, site.maxNanos / 1e6));
+                sb.append(site.stackTrace);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return format(5);
+        }
+    }
+
+    /**
+     * The same blocking workload guarded by synchronized (pins) and by
+     * ReentrantLock (does not pin), run under the detector.
+     *
+     * Usage: java PinningDetector [tasks] [blockMillis]
+     */
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int blockMillis = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.out.println("=== Virtual Thread Pinning Detector ===");
+        System.out.println("Tasks: " + tasks + ", each blocks " + blockMillis + " ms while holding its own lock, "
+            + "carriers: " + Runtime.getRuntime().availableProcessors());
+
+        for (boolean pinning : new boolean[] {true, false}) {
+            String name = pinning ? "synchronized" : "ReentrantLock";
+            try (PinningDetector detector = PinningDetector.start()) {
+                long start = System.nanoTime();
+                runWorkload(tasks, blockMillis, pinning);
+                long elapsed = System.nanoTime() - start;
+                PinningReport report = detector.stop();
+
+                System.out.println("\nWorkload guarded by " + name + ": "
+                    + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+                System.out.print(report.format(1));
+                try {
+                    report.assertNoPinning();
+                    System.out.println("assertNoPinning: passed");
+                } catch (AssertionError e) {
+                    System.out.println("assertNoPinning: failed");
+                }
+            }
+        }
+    }
+
+    private static void runWorkload(int tasks, int blockMillis, boolean pinning) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                if (pinning) {
+                    Object monitor = new Object();
+                    executor.submit(() -> {
+                        synchronized (monitor) {
+                            Thread.sleep(blockMillis);
+                        }
+                        return null;
+                    });
+                } else {
+                    ReentrantLock lock = new ReentrantLock();
+                    executor.submit(() -> {
+                        lock.lock();
+                        try {
+                            Thread.sleep(blockMillis);
+                        } finally {
+                            lock.unlock();
+                        }
+                        return null;
+                    });
+                }
+            }
+        }
+    }
+}
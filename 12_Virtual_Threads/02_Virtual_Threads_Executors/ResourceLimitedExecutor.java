@@ -0,0 +1,336 @@
+package com.tutorial.virtual.threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resource Limited Executor - Virtual threads with per-resource permits
+ *
+ * Every task still gets its own cheap virtual thread, but a task that uses
+ * a scarce downstream resource (a database, a partner API...) must first
+ * take one of that resource's permits. Each resource is registered by name
+ * with its own fair Semaphore, so 100k tasks can be in flight while the
+ * database never sees more than its connection limit, and waiting tasks
+ * get permits in arrival order.
+ *
+ * Waiting for a permit parks only the virtual thread; no platform thread
+ * is held. If a resource has a maximum wait, a task that cannot get a
+ * permit in time fails with RejectedExecutionException instead of queueing
+ * without bound.
+ *
+ * Per resource the executor tracks permits in use (now and peak), tasks
+ * waiting, time spent waiting for a permit (mean and max) and rejections.
+ *
+ * LEARNING OBJECTIVES:
+ * - Protect scarce resources while keeping the thread-per-task model
+ * - Use fair semaphores for first-come first-served admission
+ * - Measure admission wait separately from execution time
+ *
+ * KEY CONCEPTS:
+ * 1. Bulkheads: a separate permit pool per downstream
+ * 2. Fair Queuing: permits granted in arrival order
+ * 3. Admission Metrics: wait time and permits in use
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class ResourceLimitedExecutor implements AutoCloseable {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, Resource> resources = new ConcurrentHashMap<>();
+
+    /**
+     * One named downstream and its permits
+     */
+    private static class Resource {
+        final String name;
+        final int permits;
+        final Semaphore semaphore;
+        final long maxWaitNanos;
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger peakInUse = new AtomicInteger();
+        final LongAdder acquired = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final AtomicLong maxWait = new AtomicLong();
+
+        Resource(String name, int permits, boolean fair, long maxWaitNanos) {
+            this.name = name;
+            this.permits = permits;
+            this.semaphore = new Semaphore(permits, fair);
+            this.maxWaitNanos = maxWaitNanos;
+        }
+    }
+
+    /**
+     * Register a resource whose tasks wait as long as needed for a permit
+     */
+    public void registerResource(String name, int permits) {
+        registerResource(name, permits, null, true);
+    }
+
+    /**
+     * Register a resource
+     *
+     * @param maxWait longest a task may wait for a permit, or null for no limit
+     * @param fair    grant permits in arrival order
+     */
+    public void registerResource(String name, int permits, Duration maxWait, boolean fair) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        long maxWaitNanos = maxWait == null ? -1 : maxWait.toNanos();
+        if (resources.putIfAbsent(name, new Resource(name, permits, fair, maxWaitNanos)) != null) {
+            throw new IllegalArgumentException("Resource already registered: " + name);
+        }
+    }
+
+    /**
+     * Run the task on its own virtual thread, no permit needed
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Run the task on its own virtual thread while it holds a permit of the resource
+     */
+    public <T> Future<T> submit(String resourceName, Callable<T> task) {
+        Resource resource = resources.get(resourceName);
+        if (resource == null) {
+            throw new IllegalArgumentException("Unknown resource: " + resourceName);
+        }
+        return executor.submit(() -> {
+            acquire(resource);
+            try {
+                return task.call();
+            } finally {
+                resource.inUse.decrementAndGet();
+                resource.semaphore.release();
+            }
+        });
+    }
+
+    private void acquire(Resource resource) throws InterruptedException {
+        long start = System.nanoTime();
+        if (resource.maxWaitNanos < 0) {
+            resource.semaphore.acquire();
+        } else if (!resource.semaphore.tryAcquire(resource.maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            resource.rejected.increment();
+            throw new RejectedExecutionException("No permit for " + resource.name + " within "
+                + TimeUnit.NANOSECONDS.toMillis(resource.maxWaitNanos) + " ms");
+        }
+        long waited = System.nanoTime() - start;
+
+        resource.acquired.increment();
+        resource.waitNanos.add(waited);
+        resource.maxWait.accumulateAndGet(waited, Math::max);
+        resource.peakInUse.accumulateAndGet(resource.inUse.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Snapshot of one resource's metrics
+     */
+    public ResourceStats getStats(String resourceName) {
+        Resource resource = resources.get(resourceName);
+        if (resource == null) {
+            throw new IllegalArgumentException("Unknown resource: " + resourceName);
+        }
+        long acquired = resource.acquired.sum();
+        return new ResourceStats(resource.name, resource.permits, resource.inUse.get(),
+            resource.peakInUse.get(), resource.semaphore.getQueueLength(), acquired, resource.rejected.sum(),
+            acquired == 0 ? 0 : resource.waitNanos.sum() / acquired, resource.maxWait.get());
+    }
+
+    /**
+     * Metrics of all resources, by name
+     */
+    public Map<String, ResourceStats> getAllStats() {
+        Map<String, ResourceStats> stats = new TreeMap<>();
+        for (String name : resources.keySet()) {
+            stats.put(name, getStats(name));
+        }
+        return stats;
+    }
+
+    /**
+     * Wait for submitted tasks to finish, then shut down
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Resource metrics; wait times in nanoseconds
+     */
+    public static class ResourceStats {
+        private final String name;
+        private final int permits;
+        private final int inUse;
+        private final int peakInUse;
+        private final int waiting;
+        private final long acquired;
+        private final long rejected;
+        private final long meanWaitNanos;
+        private final long maxWaitNanos;
+
+        public ResourceStats(String name, int permits, int inUse, int peakInUse, int waiting,
+                             long acquired, long rejected, long meanWaitNanos, long maxWaitNanos) {
+            this.name = name;
+            this.permits = permits;
+            this.inUse = inUse;
+            this.peakInUse = peakInUse;
+            this.waiting = waiting;
+            this.acquired = acquired;
+            this.rejected = rejected;
+            this.meanWaitNanos = meanWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public int getPermits() { return permits; }
+        public int getInUse() { return inUse; }
+        public int getPeakInUse() { return peakInUse; }
+        /** Tasks currently waiting for a permit (an estimate) */
+        public int getWaiting() { return waiting; }
+        public long getAcquired() { return acquired; }
+        public long getRejected() { return rejected; }
+        public long getMeanWaitNanos() { return meanWaitNanos; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: permits %d, in use %d (peak %d), waiting %d, acquired %d, rejected %d, "
+                + "wait mean %.1f ms / max %.1f ms", name, permits, inUse, peakInUse, waiting, acquired,
+                rejected, meanWaitNanos / 1e6, maxWaitNanos / 1e6);
+        }
+    }
+
+    /**
+     * Fan out many tasks against a stub database that fails any call beyond
+     * its connection limit, with and without permits.
+     *
+     * Usage: java ResourceLimitedExecutor [tasks] [connections]
+     */
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long callMillis = 5;
+
+        System.out.println("=== Resource Limited Executor Benchmark ===");
+        System.out.println("Tasks: " + tasks + ", stub database: " + connections + " connections, "
+            + callMillis + " ms per call");
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+
+            // 1. Plain virtual thread per task
+            StubDatabase unbounded = new StubDatabase(connections, callMillis);
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                awaitAll(submitAll(tasks, () -> executor.submit(unbounded::query)));
+            }
+            if (report) {
+                report("Unbounded virtual threads", start, unbounded, null);
+            }
+
+            // 2. Platform thread pool sized to the connection limit
+            StubDatabase pooled = new StubDatabase(connections, callMillis);
+            start = System.nanoTime();
+            try (ExecutorService executor = Executors.newFixedThreadPool(connections)) {
+                awaitAll(submitAll(tasks, () -> executor.submit(pooled::query)));
+            }
+            if (report) {
+                report("Fixed pool of " + connections + " platform threads", start, pooled, null);
+            }
+
+            // 3. Virtual threads with permits, unfair and fair
+            for (boolean fair : new boolean[] {false, true}) {
+                StubDatabase limited = new StubDatabase(connections, callMillis);
+                start = System.nanoTime();
+                ResourceStats stats;
+                try (ResourceLimitedExecutor executor = new ResourceLimitedExecutor()) {
+                    executor.registerResource("database", connections, null, fair);
+                    awaitAll(submitAll(tasks, () -> executor.submit("database", limited::query)));
+                    stats = executor.getStats("database");
+                }
+                if (report) {
+                    report("Virtual threads + " + (fair ? "fair" : "unfair") + " permits", start, limited, stats);
+                }
+            }
+        }
+    }
+
+    private interface Submitter {
+        Future<Integer> submit();
+    }
+
+    private static List<Future<Integer>> submitAll(int tasks, Submitter submitter) {
+        List<Future<Integer>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            futures.add(submitter.submit());
+        }
+        return futures;
+    }
+
+    private static void awaitAll(List<Future<Integer>> futures) throws InterruptedException {
+        for (Future<Integer> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Counted by the stub
+            }
+        }
+    }
+
+    private static void report(String name, long start, StubDatabase database, ResourceStats stats) {
+        System.out.println("\n" + name + ":");
+        System.out.printf("  Time: %d ms, succeeded: %d, refused by database: %d, peak connections: %d%n",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), database.succeeded.get(),
+            database.refused.get(), database.peak.get());
+        if (stats != null) {
+            System.out.println("  " + stats);
+        }
+    }
+
+    /**
+     * Downstream that refuses calls beyond its connection limit
+     */
+    private static class StubDatabase {
+        final int connections;
+        final long callMillis;
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger refused = new AtomicInteger();
+
+        StubDatabase(int connections, long callMillis) {
+            this.connections = connections;
+            this.callMillis = callMillis;
+        }
+
+        int query() throws Exception {
+            int current = open.incrementAndGet();
+            try {
+                peak.accumulateAndGet(current, Math::max);
+                if (current > connections) {
+                    refused.incrementAndGet();
+                    throw new IllegalStateException("too many connections");
+                }
+                Thread.sleep(callMillis);
+                return succeeded.incrementAndGet();
+            } finally {
+                open.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Native Bindings - Resolve each downcall handle once and reuse it
+ *
+ * Looking up a symbol and linking a downcall MethodHandle is expensive
+ * (the linker generates code for the call shape). Doing it on every call,
+ * as a naive wrapper does, costs far more than the native function itself.
+ * This registry resolves a handle once per (symbol, descriptor, options)
+ * and returns the same handle afterwards: a ConcurrentHashMap read by
+ * symbol name, then a descriptor comparison.
+ *
+ * For the fastest calls, keep the handle in a static final field (as
+ * LibC does): the JIT then treats it as a constant and inlines the call
+ * stub. A handle fetched from the map on every call is still correct and
+ * cheap, but has to go through invokeExact on a non-constant handle.
+ *
+ * Every downcall is a Java-to-native transition. libc has no batch entry
+ * points, so bulk work is done by passing whole buffers in one call:
+ * one memcmp over 64 MB instead of a million memcmp calls over 64 bytes,
+ * one strlen over a long string, one qsort over a whole array. Note that
+ * qsort calls back into Java for every comparison (an upcall), so a
+ * native sort with a Java comparator is slower than Arrays.sort.
+ *
+ * LEARNING OBJECTIVES:
+ * - Cache downcall method handles per symbol and signature
+ * - Measure the cost of linking and of native transitions
+ * - Amortize transitions with bulk calls over large segments
+ *
+ * KEY CONCEPTS:
+ * 1. Linking Cost: downcallHandle generates a call stub
+ * 2. Constant Handles: static final MethodHandles are inlined by the JIT
+ * 3. Transitions: per-call overhead vs work done per call
+ * 4. Upcalls: native code calling back into Java
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class NativeBindings {
+
+    private static final NativeBindings LIBC_BINDINGS =
+        new NativeBindings(Linker.nativeLinker(), Linker.nativeLinker().defaultLookup());
+
+    private final Linker linker;
+    private final SymbolLookup lookup;
+    private final ConcurrentHashMap<String, Binding[]> handles = new ConcurrentHashMap<>();
+    private final AtomicLong resolved = new AtomicLong();
+
+    public NativeBindings(Linker linker, SymbolLookup lookup) {
+        this.linker = linker;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Shared registry for the C standard library
+     */
+    public static NativeBindings libc() {
+        return LIBC_BINDINGS;
+    }
+
+    /**
+     * A linked handle with the descriptor and options it was linked for
+     */
+    private static final class Binding {
+        final FunctionDescriptor descriptor;
+        final Linker.Option[] options;
+        final MethodHandle handle;
+
+        Binding(FunctionDescriptor descriptor, Linker.Option[] options, MethodHandle handle) {
+            this.descriptor = descriptor;
+            this.options = options.clone();
+            this.handle = handle;
+        }
+
+        boolean matches(FunctionDescriptor descriptor, Linker.Option[] options) {
+            // Callers usually pass the same descriptor constant, so try identity first
+            return (this.descriptor == descriptor || this.descriptor.equals(descriptor))
+                && Arrays.equals(this.options, options);
+        }
+    }
+
+    /**
+     * Downcall handle for a symbol, linked on first use. A handle is reused
+     * only for the same symbol, descriptor and linker options.
+     *
+     * @throws IllegalArgumentException if the lookup does not find the symbol
+     */
+    public MethodHandle downcall(String symbol, FunctionDescriptor descriptor, Linker.Option... options) {
+        Binding[] bindings = handles.get(symbol);
+        if (bindings != null) {
+            for (Binding binding : bindings) {
+                if (binding.matches(descriptor, options)) {
+                    return binding.handle;
+                }
+            }
+        }
+        return link(symbol, descriptor, options);
+    }
+
+    private synchronized MethodHandle link(String symbol, FunctionDescriptor descriptor, Linker.Option[] options) {
+        Binding[] bindings = handles.getOrDefault(symbol, new Binding[0]);
+        for (Binding binding : bindings) {
+            if (binding.matches(descriptor, options)) {
+                return binding.handle;
+            }
+        }
+        MemorySegment address = lookup.find(symbol)
+            .orElseThrow(() -> new IllegalArgumentException("Native symbol not found: " + symbol));
+        MethodHandle handle = linker.downcallHandle(address, descriptor, options);
+        Binding[] updated = Arrays.copyOf(bindings, bindings.length + 1);
+        updated[bindings.length] = new Binding(descriptor, options, handle);
+        handles.put(symbol, updated);
+        resolved.incrementAndGet();
+        return handle;
+    }
+
+    /**
+     * Number of handles linked so far (cache misses)
+     */
+    public long getResolvedCount() {
+        return resolved.get();
+    }
+
+    public int getCachedCount() {
+        return handles.values().stream().mapToInt(bindings -> bindings.length).sum();
+    }
+
+    /**
+     * libc functions bound once, in constants, with bulk helpers
+     */
+    public static final class LibC {
+        private static final MethodHandle STRLEN = libc().downcall("strlen",
+            FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        private static final MethodHandle MEMCMP = libc().downcall("memcmp",
+            FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        private static final MethodHandle QSORT = libc().downcall("qsort",
+            FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                ValueLayout.ADDRESS));
+
+        private static final FunctionDescriptor INT_COMPARATOR = FunctionDescriptor.of(ValueLayout.JAVA_INT,
+            ValueLayout.ADDRESS.withTargetLayout(ValueLayout.JAVA_INT),
+            ValueLayout.ADDRESS.withTargetLayout(ValueLayout.JAVA_INT));
+        private static final MethodHandle COMPARE_INTS;
+
+        static {
+            try {
+                COMPARE_INTS = MethodHandles.lookup().findStatic(LibC.class, "compareInts",
+                    MethodType.methodType(int.class, MemorySegment.class, MemorySegment.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private LibC() {
+        }
+
+        /**
+         * Length of a NUL-terminated string; the segment must contain the NUL
+         */
+        public static long strlen(MemorySegment string) {
+            try {
+                return (long) STRLEN.invokeExact(string);
+            } catch (Throwable e) {
+                throw new RuntimeException("strlen failed", e);
+            }
+        }
+
+        /**
+         * Compare the first bytes of two segments in one native call
+         */
+        public static int memcmp(MemorySegment a, MemorySegment b, long bytes) {
+            if (bytes > a.byteSize() || bytes > b.byteSize()) {
+                throw new IndexOutOfBoundsException("memcmp of " + bytes + " bytes exceeds a segment");
+            }
+            try {
+                return (int) MEMCMP.invokeExact(a, b, bytes);
+            } catch (Throwable e) {
+                throw new RuntimeException("memcmp failed", e);
+            }
+        }
+
+        /**
+         * Sort a segment of native-order ints with one qsort call; the
+         * comparator is an upcall into Java
+         */
+        public static void qsortInts(MemorySegment ints) {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment comparator = Linker.nativeLinker().upcallStub(COMPARE_INTS, INT_COMPARATOR, arena);
+                QSORT.invokeExact(ints, ints.byteSize() / Integer.BYTES, (long) Integer.BYTES, comparator);
+            } catch (Throwable e) {
+                throw new RuntimeException("qsort failed", e);
+            }
+        }
+
+        private static int compareInts(MemorySegment a, MemorySegment b) {
+            return Integer.compare(a.get(ValueLayout.JAVA_INT, 0), b.get(ValueLayout.JAVA_INT, 0));
+        }
+    }
+
+    // --- Benchmark ---
+
+    private static final FunctionDescriptor STRLEN_DESCRIPTOR =
+        FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS);
+
+    /**
+     * Per-call cost of strlen on a short string with a handle linked on
+     * every call, fetched from the registry on every call, and held in a
+     * constant; then bulk calls over large buffers.
+     */
+    public static void main(String[] args) throws Throwable {
+        System.out.println("=== Native Bindings Benchmark ===");
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment hello = cString(arena, "hello, world");
+            Linker linker = Linker.nativeLinker();
+            SymbolLookup lookup = linker.defaultLookup();
+            NativeBindings bindings = libc();
+
+            for (int round = 0; round < 3; round++) {
+                boolean report = round == 2;
+
+                int linkedCalls = 20_000;
+                long start = System.nanoTime();
+                long sum = 0;
+                for (int i = 0; i < linkedCalls; i++) {
+                    MethodHandle handle = linker.downcallHandle(lookup.find("strlen").orElseThrow(), STRLEN_DESCRIPTOR);
+                    sum += (long) handle.invokeExact(hello);
+                }
+                long linked = System.nanoTime() - start;
+
+                int calls = 20_000_000;
+                start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    MethodHandle handle = bindings.downcall("strlen", STRLEN_DESCRIPTOR);
+                    sum += (long) handle.invokeExact(hello);
+                }
+                long registry = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    sum += LibC.strlen(hello);
+                }
+                long constant = System.nanoTime() - start;
+
+                if (sum == 0) {
+                    throw new IllegalStateException();
+                }
+                if (report) {
+                    System.out.println("\nstrlen(\"hello, world\") per call:");
+                    System.out.printf("  lookup + link every call:   %10.1f ns%n", (double) linked / linkedCalls);
+                    System.out.printf("  registry lookup every call: %10.1f ns%n", (double) registry / calls);
+                    System.out.printf("  static final handle:        %10.1f ns%n", (double) constant / calls);
+                    System.out.println("  handles linked by the registry: " + bindings.getResolvedCount()
+                        + " (cached: " + bindings.getCachedCount() + ")");
+                }
+            }
+
+            benchmarkBulkCalls(arena);
+        }
+    }
+
+    private static void benchmarkBulkCalls(Arena arena) {
+        int bytes = 64 * 1024 * 1024;
+        int record = 64;
+        MemorySegment a = arena.allocate(bytes, 64);
+        MemorySegment b = arena.allocate(bytes, 64);
+        Random random = new Random(42);
+        for (long offset = 0; offset < bytes; offset += 8) {
+            long value = random.nextLong();
+            a.set(ValueLayout.JAVA_LONG, offset, value);
+            b.set(ValueLayout.JAVA_LONG, offset, value);
+        }
+
+        int strings = bytes - 1;
+        MemorySegment text = arena.allocate(bytes);
+        text.fill((byte) 'x');
+        text.set(ValueLayout.JAVA_BYTE, strings, (byte) 0);
+
+        int count = 1_000_000;
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt();
+        }
+        MemorySegment ints = arena.allocate((long) count * Integer.BYTES, Integer.BYTES);
+
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+
+            long start = System.nanoTime();
+            int differences = 0;
+            for (long offset = 0; offset < bytes; offset += record) {
+                differences += LibC.memcmp(a.asSlice(offset, record), b.asSlice(offset, record), record) != 0 ? 1 : 0;
+            }
+            long perRecord = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            differences += LibC.memcmp(a, b, bytes) != 0 ? 1 : 0;
+            long bulk = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            differences += a.mismatch(b) != -1 ? 1 : 0;
+            long mismatch = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long length = LibC.strlen(text);
+            long strlen = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long javaLength = 0;
+            while (text.get(ValueLayout.JAVA_BYTE, javaLength) != 0) {
+                javaLength++;
+            }
+            long javaScan = System.nanoTime() - start;
+
+            MemorySegment.copy(values, 0, ints, ValueLayout.JAVA_INT, 0, count);
+            start = System.nanoTime();
+            LibC.qsortInts(ints);
+            long qsort = System.nanoTime() - start;
+
+            int[] copy = values.clone();
+            start = System.nanoTime();
+            Arrays.sort(copy);
+            long arraysSort = System.nanoTime() - start;
+
+            if (differences != 0 || length != strings || javaLength != strings
+                    || ints.getAtIndex(ValueLayout.JAVA_INT, count / 2) != copy[count / 2]) {
+                throw new IllegalStateException("Bulk call produced a wrong result");
+            }
+            if (report) {
+                System.out.println("\nBulk calls over 64 MB buffers:");
+                System.out.printf("  memcmp, one call per 64-byte record (%d calls): %6.1f ms%n",
+                    bytes / record, perRecord / 1e6);
+                System.out.printf("  memcmp, one call for the whole buffer:            %6.1f ms%n", bulk / 1e6);
+                System.out.printf("  MemorySegment.mismatch (Java):                    %6.1f ms%n", mismatch / 1e6);
+                System.out.printf("  strlen, one call:                                 %6.1f ms%n", strlen / 1e6);
+                System.out.printf("  byte-by-byte Java scan:                           %6.1f ms%n", javaScan / 1e6);
+                System.out.println("\nSorting " + count + " ints:");
+                System.out.printf("  qsort, one downcall with a Java comparator upcall: %6.1f ms%n", qsort / 1e6);
+                System.out.printf("  Arrays.sort:                                       %6.1f ms%n", arraysSort / 1e6);
+            }
+        }
+    }
+
+    /**
+     * NUL-terminated US-ASCII string
+     */
+    static MemorySegment cString(Arena arena, String value) {
+        MemorySegment string = arena.allocate(value.length() + 1L);
+        for (int i = 0; i < value.length(); i++) {
+            string.set(ValueLayout.JAVA_BYTE, i, (byte) value.charAt(i));
+        }
+        string.set(ValueLayout.JAVA_BYTE, value.length(), (byte) 0);
+        return string;
+    }
+}
@@ -0,0 +1,420 @@
+package com.tutorial.foreign.memory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.foreign.*;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mapped File Segment - Zero-copy access to large binary files of records
+ *
+ * Maps a whole file of fixed-size records, described by a StructLayout,
+ * into one MemorySegment with FileChannel.map. Reads go straight to the
+ * page cache: no read() system call per access and no copying into byte[]
+ * buffers. Segment offsets are longs, so a single mapping covers files
+ * larger than 2 GB (MappedByteBuffer is limited to 2 GB).
+ *
+ * The mapping belongs to a shared Arena, so any number of threads can read
+ * it at the same time (slice it with records(from, to) to split a scan).
+ * Closing the file closes the arena, which unmaps the file; a thread that
+ * is still reading fails with IllegalStateException instead of crashing.
+ *
+ * Fields are read in two ways:
+ * - varHandle(field) / fieldHandle(layout, field): a VarHandle from the
+ *   record layout, with coordinates (MemorySegment, long recordIndex).
+ *   Kept in a static final field it is the fastest access path.
+ * - longField/intField/doubleField: typed accessors for code that cannot
+ *   keep handles in constants; they check the layout once and read with
+ *   constant value layouts.
+ *
+ * LEARNING OBJECTIVES:
+ * - Map files into memory segments with FileChannel.map
+ * - Derive VarHandles from struct layouts
+ * - Share mapped memory between threads safely
+ *
+ * KEY CONCEPTS:
+ * 1. Memory-Mapped I/O: the file is the memory
+ * 2. Shared Arena: concurrent access, deterministic unmapping
+ * 3. Record Layouts: typed access to binary data
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class MappedFileSegment implements AutoCloseable {
+    private final Path path;
+    private final StructLayout recordLayout;
+    private final FileChannel.MapMode mode;
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long recordCount;
+
+    private MappedFileSegment(Path path, StructLayout recordLayout, FileChannel.MapMode mode) throws IOException {
+        this.path = path;
+        this.recordLayout = recordLayout;
+        this.mode = mode;
+
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+            ? new StandardOpenOption[] {StandardOpenOption.READ}
+            : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            long size = channel.size();
+            if (size % recordLayout.byteSize() != 0) {
+                throw new IllegalArgumentException(path + " is " + size + " bytes, not a whole number of "
+                    + recordLayout.byteSize() + "-byte records");
+            }
+            this.recordCount = size / recordLayout.byteSize();
+            this.arena = Arena.ofShared();
+            try {
+                // The mapping stays valid after the channel is closed
+                this.segment = channel.map(mode, 0, size, arena);
+            } catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+        }
+    }
+
+    public static MappedFileSegment openReadOnly(Path path, StructLayout recordLayout) throws IOException {
+        return new MappedFileSegment(path, recordLayout, FileChannel.MapMode.READ_ONLY);
+    }
+
+    public static MappedFileSegment openReadWrite(Path path, StructLayout recordLayout) throws IOException {
+        return new MappedFileSegment(path, recordLayout, FileChannel.MapMode.READ_WRITE);
+    }
+
+    /**
+     * Create (or truncate) a file sized for the given number of zeroed
+     * records and map it read-write
+     */
+    public static MappedFileSegment create(Path path, StructLayout recordLayout, long records) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(0);
+            file.setLength(Math.multiplyExact(records, recordLayout.byteSize()));
+        }
+        return openReadWrite(path, recordLayout);
+    }
+
+    /**
+     * VarHandle for one field of every record, coordinates
+     * (MemorySegment segment, long recordIndex); use it with segment()
+     */
+    public VarHandle varHandle(String field) {
+        return fieldHandle(recordLayout, field);
+    }
+
+    /**
+     * Same as varHandle, without a file, e.g. for a static final constant
+     */
+    public static VarHandle fieldHandle(StructLayout recordLayout, String field) {
+        // An open-ended sequence of records: the free sequenceElement() becomes the
+        // long recordIndex coordinate; bounds come from the segment, not the layout
+        MemoryLayout records = MemoryLayout.sequenceLayout(Long.MAX_VALUE / recordLayout.byteSize(), recordLayout);
+        return records.varHandle(MemoryLayout.PathElement.sequenceElement(),
+                MemoryLayout.PathElement.groupElement(field));
+    }
+
+    public LongField longField(String field) {
+        return new LongField(this, checkedOffset(field, long.class));
+    }
+
+    public IntField intField(String field) {
+        return new IntField(this, checkedOffset(field, int.class));
+    }
+
+    public DoubleField doubleField(String field) {
+        return new DoubleField(this, checkedOffset(field, double.class));
+    }
+
+    private long checkedOffset(String field, Class<?> carrier) {
+        MemoryLayout.PathElement element = MemoryLayout.PathElement.groupElement(field);
+        MemoryLayout layout = recordLayout.select(element);
+        if (!(layout instanceof ValueLayout value) || value.carrier() != carrier) {
+            throw new IllegalArgumentException("Field " + field + " is " + layout + ", not " + carrier);
+        }
+        if (value.order() != ByteOrder.nativeOrder()) {
+            throw new IllegalArgumentException("Field " + field + " is not in native byte order; use varHandle");
+        }
+        return recordLayout.byteOffset(element);
+    }
+
+    /**
+     * Typed accessor base: field offset within a record
+     */
+    abstract static class Field {
+        final MemorySegment segment;
+        final long recordSize;
+        final long offset;
+
+        Field(MappedFileSegment file, long offset) {
+            this.segment = file.segment;
+            this.recordSize = file.recordLayout.byteSize();
+            this.offset = offset;
+        }
+
+        final long position(long record) {
+            return record * recordSize + offset;
+        }
+    }
+
+    public static final class LongField extends Field {
+        LongField(MappedFileSegment file, long offset) {
+            super(file, offset);
+        }
+
+        public long get(long record) {
+            return segment.get(ValueLayout.JAVA_LONG_UNALIGNED, position(record));
+        }
+
+        public void set(long record, long value) {
+            segment.set(ValueLayout.JAVA_LONG_UNALIGNED, position(record), value);
+        }
+    }
+
+    public static final class IntField extends Field {
+        IntField(MappedFileSegment file, long offset) {
+            super(file, offset);
+        }
+
+        public int get(long record) {
+            return segment.get(ValueLayout.JAVA_INT_UNALIGNED, position(record));
+        }
+
+        public void set(long record, int value) {
+            segment.set(ValueLayout.JAVA_INT_UNALIGNED, position(record), value);
+        }
+    }
+
+    public static final class DoubleField extends Field {
+        DoubleField(MappedFileSegment file, long offset) {
+            super(file, offset);
+        }
+
+        public double get(long record) {
+            return segment.get(ValueLayout.JAVA_DOUBLE_UNALIGNED, position(record));
+        }
+
+        public void set(long record, double value) {
+            segment.set(ValueLayout.JAVA_DOUBLE_UNALIGNED, position(record), value);
+        }
+    }
+
+    /**
+     * The whole mapping
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /**
+     * One record as its own segment (no copy)
+     */
+    public MemorySegment record(long index) {
+        return segment.asSlice(index * recordLayout.byteSize(), recordLayout);
+    }
+
+    /**
+     * Records [from, to) as a segment (no copy), e.g. one slice per reader thread
+     */
+    public MemorySegment records(long from, long to) {
+        return segment.asSlice(from * recordLayout.byteSize(), (to - from) * recordLayout.byteSize());
+    }
+
+    /**
+     * Write changes of a read-write mapping back to the file
+     */
+    public void force() {
+        if (mode != FileChannel.MapMode.READ_ONLY) {
+            segment.force();
+        }
+    }
+
+    public Path getPath() { return path; }
+    public StructLayout getRecordLayout() { return recordLayout; }
+    public long recordCount() { return recordCount; }
+    public long byteSize() { return segment.byteSize(); }
+
+    /**
+     * Unmap the file; later access from any thread fails
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // --- Benchmark ---
+
+    private static final StructLayout TICK = MemoryLayout.structLayout(
+        ValueLayout.JAVA_LONG.withName("timestamp"),
+        ValueLayout.JAVA_INT.withName("symbol"),
+        ValueLayout.JAVA_INT.withName("volume"),
+        ValueLayout.JAVA_DOUBLE.withName("price"));
+    private static final int TICK_SIZE = (int) TICK.byteSize();
+    private static final long PRICE_OFFSET = TICK.byteOffset(MemoryLayout.PathElement.groupElement("price"));
+
+    private static final VarHandle PRICE = fieldHandle(TICK, "price");
+
+    /**
+     * Write a file of N 24-byte ticks, then compare the mapped segment with
+     * RandomAccessFile for a sequential scan and for random record reads.
+     * The file is freshly written, so it is served from the page cache:
+     * the numbers compare access paths, not disks.
+     *
+     * Usage: java MappedFileSegment [records] [randomReads] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 20_000_000L;
+        int randomReads = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Mapped File Segment Benchmark ===");
+        Path path = Files.createTempFile("ticks", ".bin");
+        try {
+            long start = System.nanoTime();
+            try (MappedFileSegment file = create(path, TICK, records)) {
+                LongField timestamps = file.longField("timestamp");
+                IntField symbols = file.intField("symbol");
+                IntField volumes = file.intField("volume");
+                DoubleField prices = file.doubleField("price");
+                for (long i = 0; i < records; i++) {
+                    timestamps.set(i, i);
+                    symbols.set(i, (int) (i % 500));
+                    volumes.set(i, (int) (i % 1000));
+                    prices.set(i, (i % 10_000) / 100.0);
+                }
+                file.force();
+            }
+            System.out.printf("File: %d records, %.2f GB, written through the mapping in %d ms%n", records,
+                records * TICK_SIZE / 1e9, (System.nanoTime() - start) / 1_000_000);
+
+            long[] offsets = new long[randomReads];
+            Random random = new Random(42);
+            for (int i = 0; i < randomReads; i++) {
+                offsets[i] = (long) (random.nextDouble() * records);
+            }
+
+            for (int round = 0; round < 3; round++) {
+                boolean report = round == 2;
+                try (MappedFileSegment file = openReadOnly(path, TICK)) {
+                    DoubleField prices = file.doubleField("price");
+
+                    timed(report, "Sequential sum, mapped VarHandle", records,
+                        () -> sumWithHandle(file.segment(), file.recordCount()));
+                    timed(report, "Sequential sum, mapped DoubleField", records, () -> {
+                        double sum = 0;
+                        for (long i = 0; i < file.recordCount(); i++) {
+                            sum += prices.get(i);
+                        }
+                        return sum;
+                    });
+                    timed(report, "Sequential sum, mapped, " + threads + " threads", records,
+                        () -> parallelSum(file, threads));
+                    timed(report, "Random reads, mapped DoubleField", randomReads, () -> {
+                        double sum = 0;
+                        for (long offset : offsets) {
+                            sum += prices.get(offset);
+                        }
+                        return sum;
+                    });
+                }
+                timed(report, "Sequential sum, RandomAccessFile", records, () -> sequentialRandomAccessFile(path));
+                timed(report, "Random reads, RandomAccessFile", randomReads,
+                    () -> randomRandomAccessFile(path, offsets));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private interface Scan {
+        double run() throws Exception;
+    }
+
+    private static void timed(boolean report, String name, long operations, Scan scan) throws Exception {
+        long start = System.nanoTime();
+        double result = scan.run();
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("  %-40s %8.1f ms  %8.1f ns/record  (= %.1f)%n", name, elapsed / 1e6,
+                (double) elapsed / operations, result);
+        }
+    }
+
+    private static double sumWithHandle(MemorySegment segment, long records) {
+        double sum = 0;
+        for (long i = 0; i < records; i++) {
+            sum += (double) PRICE.get(segment, i);
+        }
+        return sum;
+    }
+
+    private static double parallelSum(MappedFileSegment file, int threads) throws Exception {
+        long records = file.recordCount();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Double>> parts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long from = records * t / threads;
+                long to = records * (t + 1) / threads;
+                parts.add(executor.submit(() -> {
+                    MemorySegment slice = file.records(from, to);
+                    double sum = 0;
+                    for (long offset = PRICE_OFFSET; offset < slice.byteSize(); offset += TICK_SIZE) {
+                        sum += slice.get(ValueLayout.JAVA_DOUBLE, offset);
+                    }
+                    return sum;
+                }));
+            }
+            double sum = 0;
+            for (Future<Double> part : parts) {
+                sum += part.get();
+            }
+            return sum;
+        }
+    }
+
+    private static double sequentialRandomAccessFile(Path path) throws IOException {
+        byte[] buffer = new byte[TICK_SIZE * 4096];
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.nativeOrder());
+        double sum = 0;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            int read;
+            while ((read = file.read(buffer)) > 0) {
+                // Whole records only; a partial record is read again next time
+                int whole = read - read % TICK_SIZE;
+                for (int offset = 0; offset < whole; offset += TICK_SIZE) {
+                    sum += view.getDouble(offset + (int) PRICE_OFFSET);
+                }
+                if (whole < read) {
+                    file.seek(file.getFilePointer() - (read - whole));
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static double randomRandomAccessFile(Path path, long[] records) throws IOException {
+        byte[] buffer = new byte[TICK_SIZE];
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.nativeOrder());
+        double sum = 0;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            for (long record : records) {
+                file.seek(record * TICK_SIZE);
+                file.readFully(buffer);
+                sum += view.getDouble((int) PRICE_OFFSET);
+            }
+        }
+        return sum;
+    }
+}
@@ -55,6 +55,12 @@ public class MemorySegments {
         
         // 6. Best Practices
         demonstrateBestPractices();
+        
+        // 7. Columnar Record Store
+        demonstrateColumnStore();
+        
+        // 8. Slab Allocation
+        demonstrateSlabAllocator();
     }
     
     /**
@@ -290,6 +296,84 @@ public class MemorySegments {
         System.out.println();
     }
     
+    /**
+     * Demonstrates many records stored column-wise off-heap
+     */
+    private static void demonstrateColumnStore() {
+        System.out.println("7. Columnar Record Store:");
+        System.out.println("========================");
+        
+        StructLayout reading = MemoryLayout.structLayout(
+            ValueLayout.JAVA_LONG.withName("timestamp"),
+            ValueLayout.JAVA_INT.withName("sensor"),
+            MemoryLayout.paddingLayout(4),
+            ValueLayout.JAVA_DOUBLE.withName("value")
+        );
+        
+        try (OffHeapColumnStore store = OffHeapColumnStore.create(reading, 1_000_000)) {
+            OffHeapColumnStore.LongColumn timestamps = store.longColumn("timestamp");
+            OffHeapColumnStore.IntColumn sensors = store.intColumn("sensor");
+            OffHeapColumnStore.DoubleColumn values = store.doubleColumn("value");
+            
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < 1_000_000; i++) {
+                long row = store.appendRow();
+                timestamps.set(row, now + i);
+                sensors.set(row, i % 10);
+                values.set(row, i * 0.5);
+            }
+            
+            System.out.println("Rows stored: " + store.size() + " in " + store.byteSize() + " native bytes");
+            System.out.println("Columns: " + store.getColumns().size() + " (one segment per field)");
+            System.out.println("Sum of values: " + values.sum());
+            System.out.println("Readings from sensors 0-4: " + sensors.countBetween(0, 4));
+            System.out.println("Sum of values from sensors 0-4: " + values.sumWhere(sensors, 0, 4));
+            
+        } catch (Exception e) {
+            System.err.println("Error with column store: " + e.getMessage());
+        }
+        
+        System.out.println();
+    }
+    
+    /**
+     * Demonstrates many small allocations served from one native segment
+     */
+    private static void demonstrateSlabAllocator() {
+        System.out.println("8. Slab Allocation:");
+        System.out.println("===================");
+        
+        try (SlabAllocator allocator = new SlabAllocator(16 * 1024 * 1024)) {
+            MemorySegment[] blocks = new MemorySegment[10_000];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = allocator.allocate(24 + i % 200);
+                blocks[i].set(ValueLayout.JAVA_INT, 0, i);
+            }
+            System.out.println("After 10,000 allocations: " + allocator.getStats());
+            
+            for (MemorySegment block : blocks) {
+                allocator.free(block);
+            }
+            System.out.println("After freeing them: " + allocator.getStats());
+            
+            try (SlabAllocator.Region region = allocator.newRegion()) {
+                MemorySegment point = region.allocate(8, 4);
+                point.setAtIndex(ValueLayout.JAVA_INT, 0, 3);
+                point.setAtIndex(ValueLayout.JAVA_INT, 1, 4);
+                MemorySegment total = region.allocate(ValueLayout.JAVA_LONG);
+                total.set(ValueLayout.JAVA_LONG, 0, 7);
+                System.out.println("Region allocations: " + region.getAllocationCount()
+                    + ", total: " + total.get(ValueLayout.JAVA_LONG, 0));
+            }
+            System.out.println("After closing the region: " + allocator.getStats());
+            
+        } catch (Exception e) {
+            System.err.println("Error with slab allocator: " + e.getMessage());
+        }
+        
+        System.out.println();
+    }
+    
     /**
      * Utility method to create a memory segment with specific size
      */
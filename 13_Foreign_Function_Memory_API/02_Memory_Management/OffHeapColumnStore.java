@@ -0,0 +1,516 @@
+package com.tutorial.foreign.memory;
+
+import java.lang.foreign.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Off-Heap Column Store - Columnar records in native memory
+ *
+ * The schema is a struct layout whose members are named primitive value
+ * layouts, e.g. structLayout(JAVA_LONG.withName("id"), JAVA_INT.withName
+ * ("quantity"), JAVA_DOUBLE.withName("price")). Instead of one struct per
+ * record, every member becomes a column: one MemorySegment holding that
+ * field for all rows, allocated up front from an Arena.
+ *
+ * Records never exist as Java objects, so the heap stays small and the
+ * garbage collector has nothing to scan, however many rows there are;
+ * segment offsets are longs, so a column can exceed 2 GB. A scan reads one
+ * column as a dense array of primitives, which is cache friendly and lets
+ * the JIT unroll the loop. Values are read with getAtIndex and the shared
+ * JAVA_* layout constants, so accesses are bounds checked but not boxed.
+ *
+ * One thread appends; once loading is done any number of threads can scan
+ * (the default arena is shared). Closing the store frees all columns.
+ *
+ * LEARNING OBJECTIVES:
+ * - Describe a record schema with MemoryLayout
+ * - Store data column-wise in MemorySegments
+ * - Scan and aggregate off-heap data without boxing
+ *
+ * KEY CONCEPTS:
+ * 1. Columnar Layout: one contiguous array per field
+ * 2. Arena Lifetime: all columns freed together
+ * 3. GC Pressure: off-heap data is invisible to the collector
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class OffHeapColumnStore implements AutoCloseable {
+    private final StructLayout schema;
+    private final Arena arena;
+    private final boolean ownsArena;
+    private final long capacity;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private long rows;
+
+    /**
+     * Column storage shared by the typed column classes
+     */
+    public abstract static class Column {
+        final String name;
+        final ValueLayout layout;
+        final MemorySegment segment;
+        final OffHeapColumnStore store;
+
+        Column(String name, ValueLayout layout, MemorySegment segment, OffHeapColumnStore store) {
+            this.name = name;
+            this.layout = layout;
+            this.segment = segment;
+            this.store = store;
+        }
+
+        public String getName() { return name; }
+        public ValueLayout getLayout() { return layout; }
+
+        /** Native bytes reserved for this column */
+        public long byteSize() { return segment.byteSize(); }
+    }
+
+    public static final class LongColumn extends Column {
+        LongColumn(String name, ValueLayout layout, MemorySegment segment, OffHeapColumnStore store) {
+            super(name, layout, segment, store);
+        }
+
+        public long get(long row) {
+            return segment.getAtIndex(ValueLayout.JAVA_LONG, row);
+        }
+
+        public void set(long row, long value) {
+            segment.setAtIndex(ValueLayout.JAVA_LONG, row, value);
+        }
+
+        public long sum() {
+            return sum(0, store.rows);
+        }
+
+        public long sum(long from, long to) {
+            long sum = 0;
+            for (long i = from; i < to; i++) {
+                sum += segment.getAtIndex(ValueLayout.JAVA_LONG, i);
+            }
+            return sum;
+        }
+
+        public long max() {
+            long max = Long.MIN_VALUE;
+            for (long i = 0; i < store.rows; i++) {
+                max = Math.max(max, segment.getAtIndex(ValueLayout.JAVA_LONG, i));
+            }
+            return max;
+        }
+    }
+
+    public static final class IntColumn extends Column {
+        IntColumn(String name, ValueLayout layout, MemorySegment segment, OffHeapColumnStore store) {
+            super(name, layout, segment, store);
+        }
+
+        public int get(long row) {
+            return segment.getAtIndex(ValueLayout.JAVA_INT, row);
+        }
+
+        public void set(long row, int value) {
+            segment.setAtIndex(ValueLayout.JAVA_INT, row, value);
+        }
+
+        public long sum() {
+            long sum = 0;
+            for (long i = 0; i < store.rows; i++) {
+                sum += segment.getAtIndex(ValueLayout.JAVA_INT, i);
+            }
+            return sum;
+        }
+
+        /**
+         * Rows whose value lies in [min, max]; 0 for an empty range (min > max)
+         */
+        public long countBetween(int min, int max) {
+            return countBetween(min, max, 0, store.rows);
+        }
+
+        public long countBetween(int min, int max, long from, long to) {
+            if (min > max) {
+                return 0;
+            }
+            // min <= value <= max as one unsigned comparison, no branch
+            long range = Integer.toUnsignedLong(max - min);
+            long count = 0;
+            for (long i = from; i < to; i++) {
+                long offset = Integer.toUnsignedLong(segment.getAtIndex(ValueLayout.JAVA_INT, i) - min);
+                count += (range - offset) >>> 63 ^ 1;
+            }
+            return count;
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+        DoubleColumn(String name, ValueLayout layout, MemorySegment segment, OffHeapColumnStore store) {
+            super(name, layout, segment, store);
+        }
+
+        public double get(long row) {
+            return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, row);
+        }
+
+        public void set(long row, double value) {
+            segment.setAtIndex(ValueLayout.JAVA_DOUBLE, row, value);
+        }
+
+        public double sum() {
+            return sum(0, store.rows);
+        }
+
+        public double sum(long from, long to) {
+            // Four accumulators: independent additions the CPU can overlap
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            long i = from;
+            for (; i + 3 < to; i += 4) {
+                s0 += segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+                s1 += segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i + 1);
+                s2 += segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i + 2);
+                s3 += segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i + 3);
+            }
+            for (; i < to; i++) {
+                s0 += segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        /**
+         * Sum of this column over the rows where filter lies in [min, max];
+         * 0 for an empty range (min > max)
+         */
+        public double sumWhere(IntColumn filter, int min, int max) {
+            if (filter.store != store) {
+                throw new IllegalArgumentException("Filter column belongs to another store");
+            }
+            if (min > max) {
+                return 0;
+            }
+            // Rows outside the range add +0.0: a bit mask instead of a branch
+            // the CPU would mispredict on unsorted data
+            long range = Integer.toUnsignedLong(max - min);
+            double sum = 0;
+            for (long i = 0; i < store.rows; i++) {
+                long offset = Integer.toUnsignedLong(filter.segment.getAtIndex(ValueLayout.JAVA_INT, i) - min);
+                long mask = ((range - offset) >>> 63) - 1;
+                long bits = Double.doubleToRawLongBits(segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i));
+                sum += Double.longBitsToDouble(bits & mask);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Store with its own shared arena, freed by close()
+     */
+    public static OffHeapColumnStore create(StructLayout schema, long capacity) {
+        return new OffHeapColumnStore(schema, capacity, Arena.ofShared(), true);
+    }
+
+    /**
+     * Store whose columns live in the caller's arena; close() does not free them
+     */
+    public static OffHeapColumnStore create(StructLayout schema, long capacity, Arena arena) {
+        return new OffHeapColumnStore(schema, capacity, arena, false);
+    }
+
+    private OffHeapColumnStore(StructLayout schema, long capacity, Arena arena, boolean ownsArena) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.schema = schema;
+        this.arena = arena;
+        this.ownsArena = ownsArena;
+        this.capacity = capacity;
+
+        try {
+            for (MemoryLayout member : schema.memberLayouts()) {
+                if (member instanceof PaddingLayout) {
+                    continue;
+                }
+                if (!(member instanceof ValueLayout layout) || member.name().isEmpty()) {
+                    throw new IllegalArgumentException("Schema members must be named value layouts: " + member);
+                }
+                if (layout.order() != ByteOrder.nativeOrder()) {
+                    throw new IllegalArgumentException("Column " + member.name().get() + " must use native byte order");
+                }
+                String name = layout.name().get();
+                // Zero-filled, aligned to the element size
+                MemorySegment segment = arena.allocate(Math.multiplyExact(capacity, layout.byteSize()),
+                    layout.byteSize());
+                Column column;
+                if (layout.carrier() == long.class) {
+                    column = new LongColumn(name, layout, segment, this);
+                } else if (layout.carrier() == int.class) {
+                    column = new IntColumn(name, layout, segment, this);
+                } else if (layout.carrier() == double.class) {
+                    column = new DoubleColumn(name, layout, segment, this);
+                } else {
+                    throw new IllegalArgumentException("Unsupported column type " + layout.carrier()
+                        + " for " + name + " (long, int and double are supported)");
+                }
+                if (columns.put(name, column) != null) {
+                    throw new IllegalArgumentException("Duplicate column: " + name);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (ownsArena) {
+                arena.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reserve the next row (zero-filled) and return its index; set its
+     * values through the columns
+     *
+     * @throws IllegalStateException if the store is full
+     */
+    public long appendRow() {
+        if (rows == capacity) {
+            throw new IllegalStateException("Column store is full (" + capacity + " rows)");
+        }
+        return rows++;
+    }
+
+    public LongColumn longColumn(String name) {
+        return column(name, LongColumn.class);
+    }
+
+    public IntColumn intColumn(String name) {
+        return column(name, IntColumn.class);
+    }
+
+    public DoubleColumn doubleColumn(String name) {
+        return column(name, DoubleColumn.class);
+    }
+
+    private <C extends Column> C column(String name, Class<C> type) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column " + name + " holds " + column.layout.carrier()
+                + ", not " + type.getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    public List<Column> getColumns() {
+        return new ArrayList<>(columns.values());
+    }
+
+    public StructLayout getSchema() { return schema; }
+    public long size() { return rows; }
+    public long capacity() { return capacity; }
+
+    /**
+     * Native bytes reserved by all columns
+     */
+    public long byteSize() {
+        long bytes = 0;
+        for (Column column : columns.values()) {
+            bytes += column.byteSize();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        if (ownsArena) {
+            arena.close();
+        }
+    }
+
+    // --- Benchmark ---
+
+    private static final StructLayout TRADE = MemoryLayout.structLayout(
+        ValueLayout.JAVA_LONG.withName("id"),
+        ValueLayout.JAVA_INT.withName("quantity"),
+        MemoryLayout.paddingLayout(4),
+        ValueLayout.JAVA_DOUBLE.withName("price"));
+
+    /**
+     * The same record as a heap object
+     */
+    private static final class Trade {
+        final long id;
+        final int quantity;
+        final double price;
+
+        Trade(long id, int quantity, double price) {
+            this.id = id;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    /**
+     * Load N trades into the column store and into an ArrayList of objects,
+     * then compare scans, aggregates, heap use and GC activity.
+     *
+     * Usage: java OffHeapColumnStore [rows]
+     */
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int rounds = 5;
+
+        System.out.println("=== Off-Heap Column Store Benchmark ===");
+        System.out.println("Rows: " + rows + ", schema: " + TRADE);
+
+        // Column store
+        long heapBefore = usedHeap();
+        long gcBefore = gcCount();
+        long start = System.nanoTime();
+        try (OffHeapColumnStore store = OffHeapColumnStore.create(TRADE, rows)) {
+            LongColumn ids = store.longColumn("id");
+            IntColumn quantities = store.intColumn("quantity");
+            DoubleColumn prices = store.doubleColumn("price");
+            Random random = new Random(42);
+            for (int i = 0; i < rows; i++) {
+                long row = store.appendRow();
+                ids.set(row, i);
+                quantities.set(row, random.nextInt(100));
+                prices.set(row, random.nextDouble() * 100);
+            }
+            long loadNanos = System.nanoTime() - start;
+            long gcs = gcCount() - gcBefore;
+            long heapUsed = usedHeap() - heapBefore;
+
+            double[] results = new double[3];
+            long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+            for (int round = 0; round < rounds; round++) {
+                long t = System.nanoTime();
+                results[0] = prices.sum();
+                best[0] = Math.min(best[0], System.nanoTime() - t);
+                t = System.nanoTime();
+                results[1] = quantities.countBetween(50, 99);
+                best[1] = Math.min(best[1], System.nanoTime() - t);
+                t = System.nanoTime();
+                results[2] = prices.sumWhere(quantities, 50, 99);
+                best[2] = Math.min(best[2], System.nanoTime() - t);
+            }
+            report("Column store", rows, loadNanos, store.byteSize(), heapUsed, gcs, best, results);
+            checkRangeScans(quantities, prices);
+        }
+
+        // ArrayList of objects
+        heapBefore = usedHeap();
+        gcBefore = gcCount();
+        start = System.nanoTime();
+        List<Trade> trades = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            trades.add(new Trade(i, random.nextInt(100), random.nextDouble() * 100));
+        }
+        long loadNanos = System.nanoTime() - start;
+        long gcs = gcCount() - gcBefore;
+        long heapUsed = usedHeap() - heapBefore;
+
+        double[] results = new double[3];
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int round = 0; round < rounds; round++) {
+            long t = System.nanoTime();
+            double sum = 0;
+            for (Trade trade : trades) {
+                sum += trade.price;
+            }
+            results[0] = sum;
+            best[0] = Math.min(best[0], System.nanoTime() - t);
+
+            t = System.nanoTime();
+            long count = 0;
+            for (Trade trade : trades) {
+                if (trade.quantity >= 50 && trade.quantity <= 99) {
+                    count++;
+                }
+            }
+            results[1] = count;
+            best[1] = Math.min(best[1], System.nanoTime() - t);
+
+            t = System.nanoTime();
+            sum = 0;
+            for (Trade trade : trades) {
+                if (trade.quantity >= 50 && trade.quantity <= 99) {
+                    sum += trade.price;
+                }
+            }
+            results[2] = sum;
+            best[2] = Math.min(best[2], System.nanoTime() - t);
+        }
+        report("ArrayList<Trade>", rows, loadNanos, 0, heapUsed, gcs, best, results);
+
+        // Time for a full GC with the objects still reachable
+        long t = System.nanoTime();
+        System.gc();
+        System.out.printf("%nFull GC with %d Trade objects live: %.1f ms%n", trades.size(),
+            (System.nanoTime() - t) / 1e6);
+    }
+
+    private static void report(String name, int rows, long loadNanos, long nativeBytes, long heapBytes, long gcs,
+                               long[] best, double[] results) {
+        System.out.println("\n" + name + ":");
+        System.out.printf("  Load: %.0f ms, native memory: %.1f MB, heap growth: %.1f MB, GCs during load: %d%n",
+            loadNanos / 1e6, nativeBytes / 1e6, heapBytes / 1e6, gcs);
+        String[] scans = {"sum(price)", "count(quantity in 50..99)", "sum(price) where quantity in 50..99"};
+        for (int i = 0; i < scans.length; i++) {
+            System.out.printf("  %-38s %8.1f ms  %7.0f M rows/s  (= %.1f)%n", scans[i], best[i] / 1e6,
+                rows / (best[i] / 1e9) / 1e6, results[i]);
+        }
+    }
+
+    /**
+     * Compare the branch-free range scans with plain comparisons, including
+     * an inverted range and the full int range
+     */
+    private static void checkRangeScans(IntColumn quantities, DoubleColumn prices) {
+        int[][] ranges = {{50, 99}, {0, 0}, {99, 50}, {Integer.MIN_VALUE, Integer.MAX_VALUE}};
+        long checkedRows = Math.min(quantities.store.rows, 100_000);
+        boolean ok = true;
+        for (int[] range : ranges) {
+            long expected = 0;
+            for (long i = 0; i < checkedRows; i++) {
+                int value = quantities.get(i);
+                if (value >= range[0] && value <= range[1]) {
+                    expected++;
+                }
+            }
+            long actual = quantities.countBetween(range[0], range[1], 0, checkedRows);
+            if (actual != expected) {
+                System.err.println("Error in countBetween(" + range[0] + ", " + range[1] + "): "
+                    + actual + " != " + expected);
+                ok = false;
+            }
+        }
+        double inverted = prices.sumWhere(quantities, 99, 50);
+        if (inverted != 0) {
+            System.err.println("Error in sumWhere(99, 50): " + inverted + " != 0");
+            ok = false;
+        }
+        System.out.println("  Range scan check (incl. inverted [99, 50]): " + (ok ? "OK" : "FAILED"));
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
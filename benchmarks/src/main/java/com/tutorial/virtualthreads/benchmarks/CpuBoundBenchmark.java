@@ -0,0 +1,64 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CPU-Bound Benchmark - Pure computation, no blocking
+ *
+ * One operation runs 1,000 tasks that only burn CPU. Virtual threads
+ * cannot beat a platform pool sized to the CPU count here (both end up on
+ * the same cores); the benchmark shows what the extra scheduling layer
+ * costs for short and longer tasks.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CpuBoundBenchmark {
+    private static final int TASKS = 1000;
+
+    @Param({"VIRTUAL", "PLATFORM_POOL"})
+    public ThreadModel model;
+
+    /** Blackhole.consumeCPU tokens per task */
+    @Param({"1000", "100000"})
+    public long tokens;
+
+    private ExecutorService executor;
+    private List<Callable<Long>> tasks;
+
+    @Setup
+    public void setup() {
+        executor = model.newExecutor(Runtime.getRuntime().availableProcessors());
+        tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(() -> {
+                Blackhole.consumeCPU(tokens);
+                return 1L;
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public long computeAll() throws InterruptedException, ExecutionException {
+        return ThreadModel.runAll(executor, tasks);
+    }
+}
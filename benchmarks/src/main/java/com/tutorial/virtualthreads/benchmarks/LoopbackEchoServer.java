@@ -0,0 +1,119 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loopback Echo Server - Real sockets for blocking I/O benchmarks
+ *
+ * Accepts connections on the loopback interface and answers every
+ * fixed-size message with the same bytes after a configurable delay, so a
+ * client that writes a request and reads the reply really blocks in the
+ * socket read for at least that long. This stands in for a remote service
+ * without depending on the network. Each connection is served by its own
+ * virtual thread, so the server is never the bottleneck.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class LoopbackEchoServer implements AutoCloseable {
+    public static final int MESSAGE_SIZE = 64;
+
+    private final ServerSocket serverSocket;
+    private final long delayNanos;
+    private final ConcurrentLinkedQueue<Socket> accepted = new ConcurrentLinkedQueue<>();
+    private final List<Socket> clients = new ArrayList<>();
+
+    public LoopbackEchoServer(long delayMicros, int backlog) throws IOException {
+        this.serverSocket = new ServerSocket(0, backlog, InetAddress.getLoopbackAddress());
+        this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        Thread.ofVirtual().name("echo-acceptor").start(this::acceptLoop);
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                accepted.add(socket);
+                Thread.ofVirtual().start(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // Server socket closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        byte[] buffer = new byte[MESSAGE_SIZE];
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            while (in.readNBytes(buffer, 0, MESSAGE_SIZE) == MESSAGE_SIZE) {
+                if (delayNanos > 0) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            // Connection closed
+        }
+    }
+
+    /**
+     * Open client connections to this server; closed with the server
+     */
+    public List<Socket> connect(int connections) throws IOException {
+        List<Socket> sockets = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+        }
+        clients.addAll(sockets);
+        return sockets;
+    }
+
+    /**
+     * Send one message and block until the echo has arrived
+     *
+     * @return a byte of the reply, for the benchmark to consume
+     */
+    public static long roundTrip(Socket socket, byte[] message) throws IOException {
+        socket.getOutputStream().write(message);
+        byte[] reply = new byte[MESSAGE_SIZE];
+        if (socket.getInputStream().readNBytes(reply, 0, MESSAGE_SIZE) != MESSAGE_SIZE) {
+            throw new EOFException("Connection closed by echo server");
+        }
+        return reply[MESSAGE_SIZE - 1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : clients) {
+            closeQuietly(socket);
+        }
+        for (Socket socket : accepted) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mixed Workload Benchmark - Compute, call a service, compute again
+ *
+ * Each of 1,000 tasks burns some CPU, makes one blocking round trip to a
+ * LoopbackEchoServer (1 ms reply delay) and burns the same CPU again, like
+ * a request handler that parses, queries and renders. One operation runs
+ * all tasks. The platform pool has 100 threads, as in SocketIoBenchmark.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MixedWorkloadBenchmark {
+    private static final int TASKS = 1000;
+    private static final int PLATFORM_POOL_SIZE = 100;
+    private static final long SERVER_DELAY_MICROS = 1000;
+
+    @Param({"VIRTUAL", "PLATFORM_POOL"})
+    public ThreadModel model;
+
+    /** Blackhole.consumeCPU tokens before and after the call */
+    @Param({"1000", "20000"})
+    public long tokens;
+
+    private LoopbackEchoServer server;
+    private ExecutorService executor;
+    private List<Callable<Long>> tasks;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackEchoServer(SERVER_DELAY_MICROS, TASKS);
+        executor = model.newExecutor(PLATFORM_POOL_SIZE);
+        byte[] message = new byte[LoopbackEchoServer.MESSAGE_SIZE];
+        tasks = new ArrayList<>(TASKS);
+        for (Socket socket : server.connect(TASKS)) {
+            tasks.add(() -> {
+                Blackhole.consumeCPU(tokens);
+                long reply = LoopbackEchoServer.roundTrip(socket, message);
+                Blackhole.consumeCPU(tokens);
+                return reply;
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long handleAll() throws InterruptedException, ExecutionException {
+        return ThreadModel.runAll(executor, tasks);
+    }
+}
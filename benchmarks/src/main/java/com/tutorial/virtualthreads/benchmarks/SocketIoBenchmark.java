@@ -0,0 +1,71 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Socket I/O Benchmark - Blocking request/response over loopback sockets
+ *
+ * Every connection sends a 64-byte request to a LoopbackEchoServer that
+ * replies after a delay (1 ms by default), and the task blocks reading the
+ * reply. One operation is one round over all connections, each connection
+ * handled by its own task; the score is the time for the whole round.
+ *
+ * Virtual threads run every task at once; the platform pool has 100
+ * threads, a typical size for a blocking-I/O pool, so larger rounds queue.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SocketIoBenchmark {
+    private static final int PLATFORM_POOL_SIZE = 100;
+
+    @Param({"VIRTUAL", "PLATFORM_POOL"})
+    public ThreadModel model;
+
+    @Param({"100", "1000"})
+    public int connections;
+
+    @Param({"1000"})
+    public long serverDelayMicros;
+
+    private LoopbackEchoServer server;
+    private ExecutorService executor;
+    private List<Callable<Long>> round;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackEchoServer(serverDelayMicros, connections);
+        executor = model.newExecutor(PLATFORM_POOL_SIZE);
+        byte[] message = new byte[LoopbackEchoServer.MESSAGE_SIZE];
+        round = new ArrayList<>(connections);
+        for (Socket socket : server.connect(connections)) {
+            round.add(() -> LoopbackEchoServer.roundTrip(socket, message));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long requestRound() throws InterruptedException, ExecutionException {
+        return ThreadModel.runAll(executor, round);
+    }
+}
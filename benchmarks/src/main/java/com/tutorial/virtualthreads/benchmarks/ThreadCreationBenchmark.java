@@ -0,0 +1,74 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Thread Creation Benchmark - Cost of creating and running a thread
+ *
+ * - Creating an unstarted thread object
+ * - Starting a thread that does nothing and joining it
+ * - Submitting an empty task to a virtual-thread-per-task executor vs a
+ *   pool of platform threads that already exist
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadCreationBenchmark {
+    private static final Runnable EMPTY = () -> { };
+
+    private ExecutorService virtualExecutor;
+    private ExecutorService platformPool;
+
+    @Setup
+    public void setup() {
+        virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        platformPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        virtualExecutor.close();
+        platformPool.close();
+    }
+
+    @Benchmark
+    public Thread createPlatformThread() {
+        return Thread.ofPlatform().unstarted(EMPTY);
+    }
+
+    @Benchmark
+    public Thread createVirtualThread() {
+        return Thread.ofVirtual().unstarted(EMPTY);
+    }
+
+    @Benchmark
+    public void startAndJoinPlatformThread() throws InterruptedException {
+        Thread.ofPlatform().start(EMPTY).join();
+    }
+
+    @Benchmark
+    public void startAndJoinVirtualThread() throws InterruptedException {
+        Thread.ofVirtual().start(EMPTY).join();
+    }
+
+    @Benchmark
+    public Object submitToVirtualExecutor() throws InterruptedException, ExecutionException {
+        return virtualExecutor.submit(EMPTY).get();
+    }
+
+    @Benchmark
+    public Object submitToPlatformPool() throws InterruptedException, ExecutionException {
+        return platformPool.submit(EMPTY).get();
+    }
+}
@@ -0,0 +1,121 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Thread Memory Benchmark - Memory per blocked thread at 10k/100k/1M threads
+ *
+ * Starts N threads that all block on a latch, measures memory once every
+ * thread is blocked, then releases them. Reported per thread, as JMH
+ * secondary results:
+ * - heapBytesPerThread: growth of used heap. A blocked virtual thread's
+ *   stack is copied to the heap, so this is its whole footprint.
+ * - rssBytesPerThread: growth of the process resident set (Linux only,
+ *   0 elsewhere). The heap is pre-touched, so this is native memory;
+ *   platform thread stacks show up only here.
+ *
+ * JMH reports these counters as totals over the measured iterations,
+ * hence a single measured iteration (after one warm-up).
+ *
+ * The primary score (time to start, block and finish N threads) includes
+ * the forced GCs of the measurement, so read it as a rough figure.
+ * Platform threads are measured at 10k only; 100k and 1M platform threads
+ * exceed the OS thread limits of a typical machine.
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g", "-XX:+AlwaysPreTouch"})
+public class ThreadMemoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class VirtualThreads {
+        @Param({"10000", "100000", "1000000"})
+        public int virtualThreads;
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlatformThreads {
+        @Param({"10000"})
+        public int platformThreads;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double heapBytesPerThread;
+        public double rssBytesPerThread;
+    }
+
+    @Benchmark
+    public void virtualThreads(VirtualThreads state, Footprint footprint) throws InterruptedException {
+        measure(Thread.ofVirtual(), state.virtualThreads, footprint);
+    }
+
+    @Benchmark
+    public void platformThreads(PlatformThreads state, Footprint footprint) throws InterruptedException {
+        // Small stack request; the OS still commits at least a few pages per thread
+        measure(Thread.ofPlatform().stackSize(256 * 1024), state.platformThreads, footprint);
+    }
+
+    private static void measure(Thread.Builder builder, int threads, Footprint footprint)
+            throws InterruptedException {
+        long rssBefore = residentSetSize();
+
+        CountDownLatch blocked = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        Runnable task = () -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        };
+        for (int i = 0; i < threads; i++) {
+            builder.start(task);
+        }
+        blocked.await();
+        long heapBlocked = usedHeap();
+        long rssBlocked = residentSetSize();
+
+        release.countDown();
+        finished.await();
+
+        // Heap baseline taken once the threads are gone, after the same
+        // full GC, so garbage from earlier iterations does not skew it
+        footprint.heapBytesPerThread = (double) (heapBlocked - usedHeap()) / threads;
+        footprint.rssBytesPerThread = rssBefore < 0 ? 0 : (double) (rssBlocked - rssBefore) / threads;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Resident set size in bytes from /proc, or -1 if not available
+     */
+    private static long residentSetSize() {
+        try {
+            String[] statm = Files.readString(Path.of("/proc/self/statm")).trim().split("\\s+");
+            return Long.parseLong(statm[1]) * 4096;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.tutorial.virtualthreads.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Thread Model - The two ways of running tasks being compared
+ *
+ * VIRTUAL starts one virtual thread per task. PLATFORM_POOL runs tasks on
+ * a fixed pool of platform threads, sized by each benchmark the way such a
+ * pool would be sized in practice (CPU count for CPU work, a connection
+ * pool size for blocking I/O).
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public enum ThreadModel {
+    VIRTUAL,
+    PLATFORM_POOL;
+
+    public ExecutorService newExecutor(int poolSize) {
+        return this == VIRTUAL
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * Run all tasks and wait for every one of them
+     *
+     * @return sum of the results, to be consumed by the benchmark
+     */
+    public static long runAll(ExecutorService executor, List<? extends Callable<Long>> tasks)
+            throws InterruptedException, ExecutionException {
+        long sum = 0;
+        for (Future<Long> future : executor.invokeAll(tasks)) {
+            sum += future.get();
+        }
+        return sum;
+    }
+}
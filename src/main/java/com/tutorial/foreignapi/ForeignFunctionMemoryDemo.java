@@ -404,7 +404,7 @@ public class ForeignFunctionMemoryDemo {
         System.out.println("✓ Use appropriate function descriptors");
         System.out.println("✓ Handle native function errors properly");
         System.out.println("✓ Use method handles for performance");
-        System.out.println("✓ Cache method handles when possible");
+        System.out.println("✓ Cache method handles when possible (see NativeBindings)");
         System.out.println("✓ Validate function parameters");
         
         System.out.println("\nPerformance Best Practices:");
@@ -459,12 +459,20 @@ public class ForeignFunctionMemoryDemo {
  */
 class FFMAPIExample {
     
+    private static final FunctionDescriptor ADD_DESCRIPTOR = FunctionDescriptor.of(
+        ValueLayout.JAVA_INT,
+        ValueLayout.JAVA_INT,
+        ValueLayout.JAVA_INT
+    );
+    
     private final Linker linker;
     private final SymbolLookup lookup;
+    private final NativeBindings bindings;
     
     public FFMAPIExample() {
         this.linker = Linker.nativeLinker();
         this.lookup = SymbolLookup.loaderLookup();
+        this.bindings = new NativeBindings(linker, lookup);
     }
     
     /**
@@ -472,27 +480,25 @@ class FFMAPIExample {
      */
     public int callNativeFunction(int a, int b) {
         try {
-            // Find native function symbol
-            MemorySegment symbol = lookup.find("add").orElseThrow();
-            
-            // Create function descriptor
-            FunctionDescriptor descriptor = FunctionDescriptor.of(
-                ValueLayout.JAVA_INT,
-                ValueLayout.JAVA_INT,
-                ValueLayout.JAVA_INT
-            );
-            
-            // Create method handle
-            MethodHandle handle = linker.downcallHandle(symbol, descriptor);
+            // Symbol lookup and linking happen on the first call only;
+            // later calls reuse the cached method handle
+            MethodHandle handle = bindings.downcall("add", ADD_DESCRIPTOR);
             
             // Call native function
-            return (int) handle.invoke(a, b);
+            return (int) handle.invokeExact(a, b);
             
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function", e);
         }
     }
     
+    /**
+     * Example of one native call over a whole buffer instead of one per element
+     */
+    public boolean sameContent(MemorySegment a, MemorySegment b) {
+        return a.byteSize() == b.byteSize() && NativeBindings.LibC.memcmp(a, b, a.byteSize()) == 0;
+    }
+    
     /**
      * Example of working with structured data
      */
@@ -0,0 +1,884 @@
+package com.tutorial.foreignapi;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Off-Heap Hash Map - Open-addressing hash tables in native memory
+ *
+ * A HashMap<Long,Long> costs about 70 bytes per entry in three heap
+ * objects, and every GC has to trace all of them. These maps keep their
+ * entries in a MemorySegment instead, so the GC sees one small object no
+ * matter how many entries there are:
+ *
+ * - LongMap: long keys to long values, 16-byte slots (key, value).
+ *   Key 0 marks an empty slot, so the entry for key 0 is kept in a field.
+ * - BytesMap: byte[] keys to byte[] values of any length. Slots hold the
+ *   key hash and the offset of the entry in a data area:
+ *   [int keyLength][int valueLength][key bytes][value bytes], 8-byte aligned.
+ *
+ * Both use linear probing with a power-of-two table, grow by rehashing
+ * into a table twice the size once 75% of the slots are used, and remove
+ * entries with backward-shift deletion, so there are no tombstones. A
+ * BytesMap also compacts its data area when it rehashes.
+ *
+ * Persistence: created with a Path, a map lives in a memory-mapped file
+ * (header, table, data). A rehash builds the new table in a temporary file
+ * and renames it over the old one. The header (size, capacity) is written
+ * by force() and close(); open() reads it back.
+ *
+ * The maps are not thread-safe. Segments returned by BytesMap.valueSegment
+ * are valid until the next put or remove; after a rehash they fail with
+ * IllegalStateException rather than reading freed memory.
+ *
+ * LEARNING OBJECTIVES:
+ * - Build an open-addressing hash table on a MemorySegment
+ * - Store variable-length data off-heap
+ * - Persist native data structures with memory-mapped files
+ *
+ * KEY CONCEPTS:
+ * 1. Linear Probing: cache-friendly collision resolution
+ * 2. Backward-Shift Deletion: removal without tombstones
+ * 3. GC Pressure: off-heap data is not traced by the collector
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public final class OffHeapHashMap {
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final long MIN_CAPACITY = 16;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    private OffHeapHashMap() {
+    }
+
+    /**
+     * MurmurHash3 finalizer: spreads key bits over the whole long
+     */
+    static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    /**
+     * Smallest power-of-two table holding the entries below the load factor
+     */
+    static long tableCapacity(long expectedEntries) {
+        long needed = (long) Math.ceil(expectedEntries / LOAD_FACTOR);
+        return Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, needed - 1)) << 1);
+    }
+
+    /**
+     * Header, table and data of a map: native memory or a mapped file
+     */
+    private static final class Storage {
+        final Arena arena;
+        final MemorySegment segment;
+        final Path path;
+
+        private Storage(Arena arena, MemorySegment segment, Path path) {
+            this.arena = arena;
+            this.segment = segment;
+            this.path = path;
+        }
+
+        static Storage allocate(long bytes) {
+            Arena arena = Arena.ofShared();
+            return new Storage(arena, arena.allocate(bytes, 64), null);
+        }
+
+        /**
+         * Map a file; a non-negative size creates (or truncates) it zero-filled
+         */
+        static Storage map(Path path, long bytes) throws IOException {
+            if (bytes >= 0) {
+                try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                    file.setLength(0);
+                    file.setLength(bytes);
+                }
+            }
+            Arena arena = Arena.ofShared();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Storage(arena, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size(), arena), path);
+            } catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Empty storage of the same kind, for a rehash
+         */
+        Storage sibling(long bytes) {
+            if (path == null) {
+                return allocate(bytes);
+            }
+            try {
+                return map(path.resolveSibling(path.getFileName() + ".rehash"), bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create rehash file for " + path, e);
+            }
+        }
+
+        /**
+         * Release this storage; a rehashed file takes over the original name
+         */
+        Storage replaceWith(Storage next) {
+            arena.close();
+            if (path == null) {
+                return next;
+            }
+            try {
+                next.segment.force();
+                Files.move(next.path, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot replace " + path + " after rehash", e);
+            }
+            return new Storage(next.arena, next.segment, path);
+        }
+
+        void force() {
+            if (path != null) {
+                segment.force();
+            }
+        }
+
+        static Storage open(Path path, long magic) throws IOException {
+            Storage storage = map(path, -1);
+            if (storage.segment.byteSize() < HEADER_SIZE || storage.segment.get(LONG, 0) != magic) {
+                storage.arena.close();
+                throw new IOException(path + " is not a map file of this type");
+            }
+            return storage;
+        }
+    }
+
+    // --- long -> long ---
+
+    public static final class LongMap implements AutoCloseable {
+        private static final long MAGIC = 0x3150414D474E4F4CL; // "LONGMAP1"
+
+        private Storage storage;
+        private MemorySegment table;
+        private long capacity;
+        private long mask;
+        private long threshold;
+        private long size;
+        private boolean hasZeroKey;
+        private long zeroValue;
+
+        private LongMap(Storage storage, long capacity) {
+            attach(storage, capacity);
+        }
+
+        public static LongMap create(long expectedEntries) {
+            long capacity = tableCapacity(expectedEntries);
+            return new LongMap(Storage.allocate(HEADER_SIZE + capacity * SLOT_SIZE), capacity);
+        }
+
+        /**
+         * Create (or truncate) a map file
+         */
+        public static LongMap create(Path path, long expectedEntries) throws IOException {
+            long capacity = tableCapacity(expectedEntries);
+            LongMap map = new LongMap(Storage.map(path, HEADER_SIZE + capacity * SLOT_SIZE), capacity);
+            map.writeHeader();
+            return map;
+        }
+
+        public static LongMap open(Path path) throws IOException {
+            Storage storage = Storage.open(path, MAGIC);
+            MemorySegment header = storage.segment;
+            long capacity = header.get(LONG, 8);
+            if (Long.bitCount(capacity) != 1 || storage.segment.byteSize() != HEADER_SIZE + capacity * SLOT_SIZE) {
+                storage.arena.close();
+                throw new IOException(path + " has an invalid header");
+            }
+            LongMap map = new LongMap(storage, capacity);
+            map.size = header.get(LONG, 16);
+            map.hasZeroKey = header.get(LONG, 24) != 0;
+            map.zeroValue = header.get(LONG, 32);
+            return map;
+        }
+
+        private void attach(Storage storage, long capacity) {
+            this.storage = storage;
+            this.table = storage.segment.asSlice(HEADER_SIZE, capacity * SLOT_SIZE);
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.threshold = (long) (capacity * LOAD_FACTOR);
+        }
+
+        public long get(long key, long defaultValue) {
+            if (key == 0) {
+                return hasZeroKey ? zeroValue : defaultValue;
+            }
+            long index = mix(key) & mask;
+            while (true) {
+                long offset = index * SLOT_SIZE;
+                long slotKey = table.get(LONG, offset);
+                if (slotKey == key) {
+                    return table.get(LONG, offset + 8);
+                }
+                if (slotKey == 0) {
+                    return defaultValue;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        public boolean containsKey(long key) {
+            if (key == 0) {
+                return hasZeroKey;
+            }
+            long index = mix(key) & mask;
+            while (true) {
+                long slotKey = table.get(LONG, index * SLOT_SIZE);
+                if (slotKey == key) {
+                    return true;
+                }
+                if (slotKey == 0) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * @return true if the key was not in the map
+         */
+        public boolean put(long key, long value) {
+            if (key == 0) {
+                boolean added = !hasZeroKey;
+                hasZeroKey = true;
+                zeroValue = value;
+                size += added ? 1 : 0;
+                return added;
+            }
+            long index = mix(key) & mask;
+            while (true) {
+                long offset = index * SLOT_SIZE;
+                long slotKey = table.get(LONG, offset);
+                if (slotKey == key) {
+                    table.set(LONG, offset + 8, value);
+                    return false;
+                }
+                if (slotKey == 0) {
+                    table.set(LONG, offset, key);
+                    table.set(LONG, offset + 8, value);
+                    if (++size > threshold) {
+                        rehash(capacity * 2);
+                    }
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * @return true if the key was in the map
+         */
+        public boolean remove(long key) {
+            if (key == 0) {
+                boolean removed = hasZeroKey;
+                hasZeroKey = false;
+                size -= removed ? 1 : 0;
+                return removed;
+            }
+            long index = mix(key) & mask;
+            while (true) {
+                long slotKey = table.get(LONG, index * SLOT_SIZE);
+                if (slotKey == 0) {
+                    return false;
+                }
+                if (slotKey == key) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+
+            // Shift later entries of the probe run back into the hole, unless
+            // the hole lies before their home slot
+            long hole = index;
+            long next = hole;
+            while (true) {
+                next = (next + 1) & mask;
+                long nextKey = table.get(LONG, next * SLOT_SIZE);
+                if (nextKey == 0) {
+                    break;
+                }
+                long home = mix(nextKey) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    table.set(LONG, hole * SLOT_SIZE, nextKey);
+                    table.set(LONG, hole * SLOT_SIZE + 8, table.get(LONG, next * SLOT_SIZE + 8));
+                    hole = next;
+                }
+            }
+            table.set(LONG, hole * SLOT_SIZE, 0L);
+            table.set(LONG, hole * SLOT_SIZE + 8, 0L);
+            size--;
+            return true;
+        }
+
+        private void rehash(long newCapacity) {
+            Storage next = storage.sibling(HEADER_SIZE + newCapacity * SLOT_SIZE);
+            MemorySegment newTable = next.segment.asSlice(HEADER_SIZE, newCapacity * SLOT_SIZE);
+            long newMask = newCapacity - 1;
+            for (long offset = 0; offset < table.byteSize(); offset += SLOT_SIZE) {
+                long key = table.get(LONG, offset);
+                if (key != 0) {
+                    long index = mix(key) & newMask;
+                    while (newTable.get(LONG, index * SLOT_SIZE) != 0) {
+                        index = (index + 1) & newMask;
+                    }
+                    newTable.set(LONG, index * SLOT_SIZE, key);
+                    newTable.set(LONG, index * SLOT_SIZE + 8, table.get(LONG, offset + 8));
+                }
+            }
+            attach(storage.replaceWith(next), newCapacity);
+            writeHeader();
+        }
+
+        private void writeHeader() {
+            MemorySegment header = storage.segment;
+            header.set(LONG, 0, MAGIC);
+            header.set(LONG, 8, capacity);
+            header.set(LONG, 16, size);
+            header.set(LONG, 24, hasZeroKey ? 1 : 0);
+            header.set(LONG, 32, zeroValue);
+        }
+
+        public long size() { return size; }
+        public long capacity() { return capacity; }
+        public long byteSize() { return storage.segment.byteSize(); }
+
+        /**
+         * Write the header and flush a mapped file to disk
+         */
+        public void force() {
+            writeHeader();
+            storage.force();
+        }
+
+        @Override
+        public void close() {
+            force();
+            storage.arena.close();
+        }
+    }
+
+    // --- byte[] -> byte[] ---
+
+    public static final class BytesMap implements AutoCloseable {
+        private static final long MAGIC = 0x3150414D53455442L; // "BYTESMP1"
+        private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+        private Storage storage;
+        private MemorySegment table;
+        private MemorySegment data;
+        private long capacity;
+        private long mask;
+        private long threshold;
+        private long size;
+        private long dataUsed;
+        private long garbage;
+
+        private BytesMap(Storage storage, long capacity, long dataCapacity) {
+            attach(storage, capacity, dataCapacity);
+        }
+
+        /**
+         * @param expectedEntries entries before the first rehash
+         * @param dataBytes initial data area for keys and values
+         */
+        public static BytesMap create(long expectedEntries, long dataBytes) {
+            long capacity = tableCapacity(expectedEntries);
+            long dataCapacity = align(Math.max(dataBytes, 64));
+            return new BytesMap(Storage.allocate(storageSize(capacity, dataCapacity)), capacity, dataCapacity);
+        }
+
+        public static BytesMap create(Path path, long expectedEntries, long dataBytes) throws IOException {
+            long capacity = tableCapacity(expectedEntries);
+            long dataCapacity = align(Math.max(dataBytes, 64));
+            BytesMap map = new BytesMap(Storage.map(path, storageSize(capacity, dataCapacity)), capacity, dataCapacity);
+            map.writeHeader();
+            return map;
+        }
+
+        public static BytesMap open(Path path) throws IOException {
+            Storage storage = Storage.open(path, MAGIC);
+            MemorySegment header = storage.segment;
+            long capacity = header.get(LONG, 8);
+            long dataCapacity = header.get(LONG, 24);
+            if (Long.bitCount(capacity) != 1 || storage.segment.byteSize() != storageSize(capacity, dataCapacity)) {
+                storage.arena.close();
+                throw new IOException(path + " has an invalid header");
+            }
+            BytesMap map = new BytesMap(storage, capacity, dataCapacity);
+            map.size = header.get(LONG, 16);
+            map.dataUsed = header.get(LONG, 32);
+            map.garbage = header.get(LONG, 40);
+            return map;
+        }
+
+        private static long storageSize(long capacity, long dataCapacity) {
+            return HEADER_SIZE + capacity * SLOT_SIZE + dataCapacity;
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+
+        private static long entrySize(long keyLength, long valueLength) {
+            return align(8 + keyLength + valueLength);
+        }
+
+        private void attach(Storage storage, long capacity, long dataCapacity) {
+            this.storage = storage;
+            this.table = storage.segment.asSlice(HEADER_SIZE, capacity * SLOT_SIZE);
+            this.data = storage.segment.asSlice(HEADER_SIZE + capacity * SLOT_SIZE, dataCapacity);
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.threshold = (long) (capacity * LOAD_FACTOR);
+            // Entry offset 0 marks an empty slot
+            this.dataUsed = 8;
+        }
+
+        /**
+         * 64-bit hash of a key, eight bytes at a time
+         */
+        static long hash(byte[] key) {
+            long h = key.length;
+            int i = 0;
+            for (; i + 8 <= key.length; i += 8) {
+                h = (h ^ (long) WORDS.get(key, i)) * 0x9E3779B97F4A7C15L;
+                h ^= h >>> 32;
+            }
+            for (; i < key.length; i++) {
+                h = (h ^ key[i]) * 0x9E3779B97F4A7C15L;
+            }
+            return mix(h);
+        }
+
+        /**
+         * Slot index holding the key, or the empty slot that ends its probe run
+         */
+        private long find(byte[] key, long hash) {
+            MemorySegment keySegment = MemorySegment.ofArray(key);
+            long index = hash & mask;
+            while (true) {
+                long offset = index * SLOT_SIZE;
+                long entry = table.get(LONG, offset + 8);
+                if (entry == 0) {
+                    return index;
+                }
+                if (table.get(LONG, offset) == hash && data.get(INT, entry) == key.length
+                        && MemorySegment.mismatch(data, entry + 8, entry + 8 + key.length,
+                            keySegment, 0, key.length) == -1) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * Zero-copy view of a value, valid until the next put or remove
+         *
+         * @return the value, or null if the key is not in the map
+         */
+        public MemorySegment valueSegment(byte[] key) {
+            long entry = table.get(LONG, find(key, hash(key)) * SLOT_SIZE + 8);
+            if (entry == 0) {
+                return null;
+            }
+            return data.asSlice(entry + 8 + key.length, data.get(INT, entry + 4));
+        }
+
+        public byte[] get(byte[] key) {
+            long entry = table.get(LONG, find(key, hash(key)) * SLOT_SIZE + 8);
+            if (entry == 0) {
+                return null;
+            }
+            byte[] value = new byte[data.get(INT, entry + 4)];
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, entry + 8 + key.length, value, 0, value.length);
+            return value;
+        }
+
+        public boolean containsKey(byte[] key) {
+            return table.get(LONG, find(key, hash(key)) * SLOT_SIZE + 8) != 0;
+        }
+
+        /**
+         * @return true if the key was not in the map
+         */
+        public boolean put(byte[] key, byte[] value) {
+            long space = entrySize(key.length, value.length);
+            if (size + 1 > threshold || dataUsed + space > data.byteSize()) {
+                long live = dataUsed - garbage + space;
+                long dataCapacity = data.byteSize();
+                while (dataCapacity < live + live / 2) {
+                    dataCapacity *= 2;
+                }
+                rehash(size + 1 > threshold ? capacity * 2 : capacity, dataCapacity);
+            }
+
+            long hash = hash(key);
+            long offset = find(key, hash) * SLOT_SIZE;
+            long entry = table.get(LONG, offset + 8);
+            boolean added = entry == 0;
+            if (!added) {
+                long oldSpace = entrySize(key.length, data.get(INT, entry + 4));
+                if (space <= oldSpace) {
+                    // Overwrite in place; the unused tail is reclaimed by the next rehash
+                    data.set(INT, entry + 4, value.length);
+                    MemorySegment.copy(value, 0, data, ValueLayout.JAVA_BYTE, entry + 8 + key.length, value.length);
+                    garbage += oldSpace - space;
+                    return false;
+                }
+                garbage += oldSpace;
+            }
+
+            entry = dataUsed;
+            data.set(INT, entry, key.length);
+            data.set(INT, entry + 4, value.length);
+            MemorySegment.copy(key, 0, data, ValueLayout.JAVA_BYTE, entry + 8, key.length);
+            MemorySegment.copy(value, 0, data, ValueLayout.JAVA_BYTE, entry + 8 + key.length, value.length);
+            dataUsed += space;
+            table.set(LONG, offset, hash);
+            table.set(LONG, offset + 8, entry);
+            size += added ? 1 : 0;
+            return added;
+        }
+
+        /**
+         * @return true if the key was in the map
+         */
+        public boolean remove(byte[] key) {
+            long hole = find(key, hash(key));
+            long entry = table.get(LONG, hole * SLOT_SIZE + 8);
+            if (entry == 0) {
+                return false;
+            }
+            garbage += entrySize(data.get(INT, entry), data.get(INT, entry + 4));
+
+            // Backward-shift deletion, using the stored hashes
+            long next = hole;
+            while (true) {
+                next = (next + 1) & mask;
+                long nextEntry = table.get(LONG, next * SLOT_SIZE + 8);
+                if (nextEntry == 0) {
+                    break;
+                }
+                long nextHash = table.get(LONG, next * SLOT_SIZE);
+                long home = nextHash & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    table.set(LONG, hole * SLOT_SIZE, nextHash);
+                    table.set(LONG, hole * SLOT_SIZE + 8, nextEntry);
+                    hole = next;
+                }
+            }
+            table.set(LONG, hole * SLOT_SIZE, 0L);
+            table.set(LONG, hole * SLOT_SIZE + 8, 0L);
+            size--;
+            return true;
+        }
+
+        /**
+         * Rehash into a new table and copy the live entries into a new,
+         * compacted data area
+         */
+        private void rehash(long newCapacity, long newDataCapacity) {
+            Storage next = storage.sibling(storageSize(newCapacity, newDataCapacity));
+            MemorySegment newTable = next.segment.asSlice(HEADER_SIZE, newCapacity * SLOT_SIZE);
+            MemorySegment newData = next.segment.asSlice(HEADER_SIZE + newCapacity * SLOT_SIZE, newDataCapacity);
+            long newMask = newCapacity - 1;
+            long cursor = 8;
+            for (long offset = 0; offset < table.byteSize(); offset += SLOT_SIZE) {
+                long entry = table.get(LONG, offset + 8);
+                if (entry != 0) {
+                    long hash = table.get(LONG, offset);
+                    long length = entrySize(data.get(INT, entry), data.get(INT, entry + 4));
+                    MemorySegment.copy(data, entry, newData, cursor, length);
+                    long index = hash & newMask;
+                    while (newTable.get(LONG, index * SLOT_SIZE + 8) != 0) {
+                        index = (index + 1) & newMask;
+                    }
+                    newTable.set(LONG, index * SLOT_SIZE, hash);
+                    newTable.set(LONG, index * SLOT_SIZE + 8, cursor);
+                    cursor += length;
+                }
+            }
+            attach(storage.replaceWith(next), newCapacity, newDataCapacity);
+            dataUsed = cursor;
+            garbage = 0;
+            writeHeader();
+        }
+
+        private void writeHeader() {
+            MemorySegment header = storage.segment;
+            header.set(LONG, 0, MAGIC);
+            header.set(LONG, 8, capacity);
+            header.set(LONG, 16, size);
+            header.set(LONG, 24, data.byteSize());
+            header.set(LONG, 32, dataUsed);
+            header.set(LONG, 40, garbage);
+        }
+
+        public long size() { return size; }
+        public long capacity() { return capacity; }
+        public long byteSize() { return storage.segment.byteSize(); }
+        /** Bytes of the data area held by overwritten or removed entries */
+        public long garbageBytes() { return garbage; }
+
+        public void force() {
+            writeHeader();
+            storage.force();
+        }
+
+        @Override
+        public void close() {
+            force();
+            storage.arena.close();
+        }
+    }
+
+    // --- Benchmark ---
+
+    private static final long ESTIMATED_HASHMAP_BYTES_PER_ENTRY = 80;
+
+    /**
+     * Put and get throughput and GC cost of LongMap against
+     * HashMap<Long,Long>, a BytesMap run, and a mapped-file round trip.
+     * HashMap runs are skipped when they would not fit the heap.
+     *
+     * Native segments count against -XX:MaxDirectMemorySize (default: the
+     * heap size); 100M entries need 2 GB, 3 GB while rehashing.
+     *
+     * Usage: java -Xmx2g -XX:MaxDirectMemorySize=4g OffHeapHashMap [entries ...]
+     *        (default 10M and 100M entries)
+     */
+    public static void main(String[] args) throws Exception {
+        long[] sizes = args.length > 0
+            ? java.util.Arrays.stream(args).mapToLong(Long::parseLong).toArray()
+            : new long[]{10_000_000, 100_000_000};
+
+        System.out.println("=== Off-Heap Hash Map Benchmark ===");
+        System.out.printf("Max heap: %.0f MB%n", Runtime.getRuntime().maxMemory() / 1e6);
+
+        for (long entries : sizes) {
+            System.out.println("\n--- " + entries + " entries, random long keys ---");
+            fullGcMillis();
+            try (LongMap map = LongMap.create(16)) {
+                Phase put = Phase.run(() -> {
+                    for (long i = 1; i <= entries; i++) {
+                        map.put(mix(i), i);
+                    }
+                });
+                Phase get = Phase.run(() -> {
+                    Random random = new Random(42);
+                    long sum = 0;
+                    for (long n = 0; n < entries; n++) {
+                        long i = 1 + random.nextLong(entries);
+                        sum += map.get(mix(i), 0);
+                    }
+                    check(sum > 0);
+                });
+                long fullGc = fullGcMillis();
+                report("LongMap", entries, put, get, fullGc,
+                    String.format("%.0f MB native", map.byteSize() / 1e6));
+            }
+
+            if (entries * ESTIMATED_HASHMAP_BYTES_PER_ENTRY > Runtime.getRuntime().maxMemory() * 0.8) {
+                System.out.printf("HashMap<Long,Long>: skipped, needs about %.0f MB of heap%n",
+                    entries * ESTIMATED_HASHMAP_BYTES_PER_ENTRY / 1e6);
+                continue;
+            }
+            fullGcMillis();
+            HashMap<Long, Long> map = new HashMap<>();
+            Phase put = Phase.run(() -> {
+                for (long i = 1; i <= entries; i++) {
+                    map.put(mix(i), i);
+                }
+            });
+            Phase get = Phase.run(() -> {
+                Random random = new Random(42);
+                long sum = 0;
+                for (long n = 0; n < entries; n++) {
+                    long i = 1 + random.nextLong(entries);
+                    sum += map.get(mix(i));
+                }
+                check(sum > 0);
+            });
+            long fullGc = fullGcMillis();
+            report("HashMap<Long,Long>", entries, put, get, fullGc,
+                String.format("%.0f MB heap", usedHeap() / 1e6));
+            map.clear();
+        }
+
+        benchmarkBytesMap(1_000_000);
+        persistence(1_000_000);
+    }
+
+    private static void benchmarkBytesMap(int entries) {
+        System.out.println("\n--- BytesMap, " + entries + " entries, 16-byte keys, 32-byte values ---");
+        fullGcMillis();
+        try (BytesMap map = BytesMap.create(16, 1024)) {
+            Phase put = Phase.run(() -> {
+                for (int i = 0; i < entries; i++) {
+                    map.put(key(i), value(i));
+                }
+            });
+            Phase get = Phase.run(() -> {
+                Random random = new Random(42);
+                long found = 0;
+                for (int n = 0; n < entries; n++) {
+                    found += map.valueSegment(key(random.nextInt(entries))) != null ? 1 : 0;
+                }
+                check(found == entries);
+            });
+            report("BytesMap", entries, put, get, fullGcMillis(),
+                String.format("%.0f MB native", map.byteSize() / 1e6));
+        }
+    }
+
+    /**
+     * "key-000000000042": 16 bytes, without String.format in the timed loop
+     */
+    private static byte[] key(int i) {
+        return digits("key-", i, 16);
+    }
+
+    private static byte[] value(int i) {
+        return digits("value-", i, 32);
+    }
+
+    private static byte[] digits(String prefix, int number, int length) {
+        byte[] bytes = new byte[length];
+        for (int p = 0; p < prefix.length(); p++) {
+            bytes[p] = (byte) prefix.charAt(p);
+        }
+        for (int p = length - 1; p >= prefix.length(); p--) {
+            bytes[p] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        return bytes;
+    }
+
+    private static void persistence(long entries) throws IOException {
+        System.out.println("\n--- Mapped-file persistence, " + entries + " entries ---");
+        Path path = Files.createTempFile("offheap-map", ".bin");
+        try {
+            long start = System.nanoTime();
+            try (LongMap map = LongMap.create(path, 16)) {
+                for (long i = 0; i < entries; i++) {
+                    map.put(mix(i), i);
+                }
+            }
+            long written = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long matches = 0;
+            try (LongMap map = LongMap.open(path)) {
+                for (long i = 0; i < entries; i++) {
+                    matches += map.get(mix(i), -1) == i ? 1 : 0;
+                }
+                System.out.printf("Created with rehashes and closed in %.0f ms (%.0f MB file)%n",
+                    written / 1e6, map.byteSize() / 1e6);
+            }
+            System.out.printf("Reopened and read back in %.0f ms: %d of %d entries match%n",
+                (System.nanoTime() - start) / 1e6, matches, entries);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new IllegalStateException("Benchmark produced an unexpected result");
+        }
+    }
+
+    /**
+     * Wall time plus GC count and time of one benchmark phase
+     */
+    private static final class Phase {
+        final long nanos;
+        final long gcCount;
+        final long gcMillis;
+
+        private Phase(long nanos, long gcCount, long gcMillis) {
+            this.nanos = nanos;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        static Phase run(Runnable work) {
+            long count = gcCount();
+            long millis = gcMillis();
+            long start = System.nanoTime();
+            work.run();
+            long nanos = System.nanoTime() - start;
+            return new Phase(nanos, gcCount() - count, gcMillis() - millis);
+        }
+    }
+
+    private static void report(String name, long entries, Phase put, Phase get, long fullGcMillis, String memory) {
+        System.out.printf("%-19s put %6.1f M ops/s (%3d GCs, %5d ms GC)  get %6.1f M ops/s (%3d GCs, %5d ms GC)"
+                + "  full GC %4d ms  %s%n", name,
+            entries / (put.nanos / 1e3), put.gcCount, put.gcMillis,
+            entries / (get.nanos / 1e3), get.gcCount, get.gcMillis, fullGcMillis, memory);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Duration of a full collection with the map still reachable
+     */
+    private static long fullGcMillis() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
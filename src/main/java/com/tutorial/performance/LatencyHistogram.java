@@ -0,0 +1,367 @@
+package com.tutorial.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency Histogram - Thread-safe, allocation-free latency recording
+ *
+ * Averages hide tail latency: one request in a hundred taking a second
+ * barely moves the mean. This histogram keeps the whole distribution in
+ * log-linear buckets, the layout used by HdrHistogram:
+ *
+ * - Values below 128 get one bucket each.
+ * - Above that, every power of two [2^k, 2^(k+1)) is split into 128 equal
+ *   buckets, so a bucket is never wider than 1/128 (0.8%) of its values.
+ * - Values up to 2^43 ns (about 2.4 hours) fit in 4,736 buckets; larger
+ *   values land in the last bucket but still count for max and total.
+ *
+ * Recording is a few bit operations and atomic adds on an AtomicLongArray.
+ * It takes no lock and allocates nothing. To keep threads from contending
+ * on the same cache lines, counts are striped: each thread adds to the
+ * stripe chosen by its thread id, and queries sum the stripes.
+ *
+ * snapshot() copies the counts into an immutable Snapshot for percentile
+ * queries. intervalSnapshot() does the same while resetting every counter
+ * with getAndSet(0), so each recorded value ends up in exactly one
+ * interval even while other threads keep recording.
+ *
+ * LEARNING OBJECTIVES:
+ * - Record latency distributions instead of averages
+ * - Build log-linear histograms with bounded relative error
+ * - Record from many threads without locks or allocation
+ *
+ * KEY CONCEPTS:
+ * 1. Log-Linear Buckets: constant relative precision over a huge range
+ * 2. Striping: spreading atomic updates over separate counters
+ * 3. Interval Snapshots: per-period percentiles with reset
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class LatencyHistogram {
+    private static final int PRECISION_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    private static final int MAX_MAGNITUDE = 42;
+    private static final long MAX_TRACKABLE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    static final int BUCKETS = (MAX_MAGNITUDE - PRECISION_BITS + 2) * SUB_BUCKETS;
+
+    // Per-stripe slots after the buckets
+    private static final int TOTAL = BUCKETS;
+    private static final int MIN = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+    // Stripes are separate arrays; padding keeps their hot tails apart
+    private static final int STRIPE_LENGTH = BUCKETS + 3 + 8;
+
+    private final String name;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripeCount = Math.min(16, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = newStripe();
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    private static AtomicLongArray newStripe() {
+        AtomicLongArray stripe = new AtomicLongArray(STRIPE_LENGTH);
+        stripe.set(MIN, Long.MAX_VALUE);
+        return stripe;
+    }
+
+    /**
+     * Bucket of a value: exact below 128, then 128 buckets per power of two
+     */
+    static int bucketIndex(long value) {
+        long clamped = Math.min(value, MAX_TRACKABLE);
+        int magnitude = 63 - Long.numberOfLeadingZeros(clamped | 1);
+        int shift = Math.max(0, magnitude - PRECISION_BITS);
+        return (shift << PRECISION_BITS) + (int) (clamped >>> shift);
+    }
+
+    static long bucketLowerBound(int index) {
+        int shift = Math.max(0, (index >> PRECISION_BITS) - 1);
+        return (long) (index - (shift << PRECISION_BITS)) << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        int shift = Math.max(0, (index >> PRECISION_BITS) - 1);
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * Record one latency in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray stripe = stripes[(int) mixThreadId(Thread.currentThread().getId()) & stripeMask];
+        stripe.getAndIncrement(bucketIndex(value));
+        stripe.getAndAdd(TOTAL, value);
+        // Plain reads first: min and max rarely change once warmed up
+        if (value < stripe.get(MIN)) {
+            updateMin(stripe, value);
+        }
+        if (value > stripe.get(MAX)) {
+            updateMax(stripe, value);
+        }
+    }
+
+    private static long mixThreadId(long id) {
+        return (id * 0x9E3779B97F4A7C15L) >>> 32;
+    }
+
+    private static void updateMin(AtomicLongArray stripe, long value) {
+        long current = stripe.get(MIN);
+        while (value < current && !stripe.compareAndSet(MIN, current, value)) {
+            current = stripe.get(MIN);
+        }
+    }
+
+    private static void updateMax(AtomicLongArray stripe, long value) {
+        long current = stripe.get(MAX);
+        while (value > current && !stripe.compareAndSet(MAX, current, value)) {
+            current = stripe.get(MAX);
+        }
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * Number of recorded values since the last interval snapshot
+     */
+    public long getCount() {
+        long count = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                count += stripe.get(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copy of the current counts; recording continues undisturbed
+     */
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Copy of the counts since the previous interval snapshot, resetting
+     * them; values recorded concurrently go to this interval or the next
+     */
+    public Snapshot intervalSnapshot() {
+        return collect(true);
+    }
+
+    private Snapshot collect(boolean reset) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += reset ? stripe.getAndSet(i, 0) : stripe.get(i);
+            }
+            total += reset ? stripe.getAndSet(TOTAL, 0) : stripe.get(TOTAL);
+            min = Math.min(min, reset ? stripe.getAndSet(MIN, Long.MAX_VALUE) : stripe.get(MIN));
+            max = Math.max(max, reset ? stripe.getAndSet(MAX, 0) : stripe.get(MAX));
+        }
+        return new Snapshot(name, counts, total, min, max);
+    }
+
+    /**
+     * Immutable copy of a histogram for queries
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long min;
+        private final long max;
+
+        Snapshot(String name, long[] counts, long total, long min, long max) {
+            long count = 0;
+            for (long bucket : counts) {
+                count += bucket;
+            }
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.min = count == 0 ? 0 : min;
+            this.max = count == 0 ? 0 : max;
+        }
+
+        /**
+         * Snapshot with no recorded values, for a timer that does not exist
+         */
+        static Snapshot empty(String name) {
+            return new Snapshot(name, new long[0], 0, 0, 0);
+        }
+
+        /**
+         * Smallest recorded value such that the given percentage of values
+         * are at or below it, within the bucket precision (0.8%)
+         *
+         * @param percentile 0 to 100, e.g. 99.9
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double bounded = Math.min(100, Math.max(0, percentile));
+            long rank = Math.max(1, (long) Math.ceil(bounded / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, bucketUpperBound(i)));
+                }
+            }
+            return max;
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getTotal() { return total; }
+        public long getMin() { return min; }
+        public long getMax() { return max; }
+        public double getMean() { return count == 0 ? 0 : (double) total / count; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d mean=%.0f ns p50=%d p90=%d p99=%d p99.9=%d max=%d ns", name, count,
+                getMean(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+                getValueAtPercentile(99.9), max);
+        }
+    }
+
+    // --- Benchmark ---
+
+    /**
+     * Cost of record() for 1 to 8 threads sharing one histogram, against a
+     * synchronized min/max/total recorder, plus a percentile accuracy check.
+     *
+     * Usage: java LatencyHistogram [records per thread]
+     */
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        System.out.println("=== Latency Histogram Benchmark ===");
+        System.out.println("Processors: " + Runtime.getRuntime().availableProcessors()
+            + ", records per thread: " + records);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            if (report) {
+                System.out.println("\nThreads  LatencyHistogram            synchronized recorder");
+            }
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                LatencyHistogram histogram = new LatencyHistogram("benchmark");
+                long histogramNanos = runThreads(threads, records, histogram::record);
+
+                SynchronizedRecorder baseline = new SynchronizedRecorder();
+                long baselineNanos = runThreads(threads, records, baseline::record);
+
+                long expected = (long) threads * records;
+                if (histogram.snapshot().getCount() != expected || baseline.count != expected) {
+                    throw new IllegalStateException("Lost updates");
+                }
+                if (report) {
+                    int busy = Math.min(threads, processors);
+                    System.out.printf("%7d  %5.1f ns/record %7.1f M/s    %5.1f ns/record %7.1f M/s%n", threads,
+                        (double) histogramNanos * busy / expected, expected / (histogramNanos / 1e3),
+                        (double) baselineNanos * busy / expected, expected / (baselineNanos / 1e3));
+                }
+            }
+        }
+        System.out.println("(ns/record = wall time x busy CPUs / records: CPU time per record)");
+
+        accuracy();
+    }
+
+    private interface Recorder {
+        void record(long nanos);
+    }
+
+    /**
+     * Old-style metrics: total, min and max under one lock
+     */
+    private static final class SynchronizedRecorder {
+        private long count;
+        private long total;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        synchronized void record(long nanos) {
+            count++;
+            total += nanos;
+            min = Math.min(min, nanos);
+            max = Math.max(max, nanos);
+        }
+    }
+
+    private static long runThreads(int threads, int records, Recorder recorder) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t + 1;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Cheap pseudo-random latencies from 0 to about 1 ms
+                long x = seed;
+                for (int i = 0; i < records; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                    recorder.record((x >>> 44) & 0xFFFFF);
+                }
+            }, "recorder-" + t);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * Percentiles of a known distribution, and interval reset
+     */
+    private static void accuracy() {
+        LatencyHistogram histogram = new LatencyHistogram("uniform");
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value * 1000);
+        }
+        Snapshot interval = histogram.intervalSnapshot();
+        System.out.println("\nUniform 1 us .. 1 s (1M values):");
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long expected = (long) (percentile * 10_000) * 1000;
+            long actual = interval.getValueAtPercentile(percentile);
+            System.out.printf("  p%-5s %,14d ns  (exact %,14d, error %.2f%%)%n", percentile, actual, expected,
+                100.0 * Math.abs(actual - expected) / expected);
+        }
+        System.out.println("After intervalSnapshot(): count = " + histogram.getCount());
+    }
+}
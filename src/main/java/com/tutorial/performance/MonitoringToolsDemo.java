@@ -2,6 +2,7 @@ package com.tutorial.performance;
 
 import java.lang.management.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Monitoring Tools Demo - JVM and Application Monitoring
@@ -283,6 +284,17 @@ public class MonitoringToolsDemo {
         System.out.println("  Max Time: " + metrics.getMaxTime() + " ns");
         System.out.println("  Total Time: " + metrics.getTotalTime() + " ns");
         
+        // Latency distribution per operation
+        LatencyHistogram.Snapshot work = metrics.snapshot("simulated_work");
+        System.out.println("  Percentiles (simulated_work):");
+        System.out.println("    p50:   " + work.getValueAtPercentile(50) + " ns");
+        System.out.println("    p99:   " + work.getValueAtPercentile(99) + " ns");
+        System.out.println("    p99.9: " + work.getValueAtPercentile(99.9) + " ns");
+        
+        // Interval reporting: each snapshot covers the time since the previous one
+        metrics.intervalSnapshots().values().forEach(snapshot -> System.out.println("  Interval: " + snapshot));
+        System.out.println("  Operations after interval reset: " + metrics.getTotalOperations());
+        
         System.out.println();
     }
     
@@ -320,27 +332,72 @@ public class MonitoringToolsDemo {
     }
     
     /**
-     * Custom performance metrics class
+     * Custom performance metrics: one latency histogram per named timer
      */
     public static class PerformanceMetrics {
-        private long totalOperations = 0;
-        private long totalTime = 0;
-        private long minTime = Long.MAX_VALUE;
-        private long maxTime = 0;
+        private final ConcurrentHashMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+        
+        /**
+         * Timer for an operation name, created on first use. Keep the
+         * returned histogram to skip the map lookup on hot paths.
+         */
+        public LatencyHistogram timer(String operationName) {
+            LatencyHistogram timer = timers.get(operationName);
+            return timer != null ? timer : timers.computeIfAbsent(operationName, LatencyHistogram::new);
+        }
         
+        /**
+         * Thread-safe; allocation-free once the timer exists
+         */
         public void recordOperation(String operationName, long duration) {
-            totalOperations++;
-            totalTime += duration;
-            minTime = Math.min(minTime, duration);
-            maxTime = Math.max(maxTime, duration);
+            timer(operationName).record(duration);
+        }
+        
+        public Set<String> getOperationNames() {
+            return new TreeSet<>(timers.keySet());
+        }
+        
+        /**
+         * Current snapshot of a timer, or an empty one (count 0) if nothing
+         * was recorded under that name; never registers a new timer
+         */
+        public LatencyHistogram.Snapshot snapshot(String operationName) {
+            LatencyHistogram timer = timers.get(operationName);
+            return timer != null ? timer.snapshot() : LatencyHistogram.Snapshot.empty(operationName);
         }
         
-        public long getTotalOperations() { return totalOperations; }
-        public long getTotalTime() { return totalTime; }
-        public long getMinTime() { return minTime == Long.MAX_VALUE ? 0 : minTime; }
-        public long getMaxTime() { return maxTime; }
+        /**
+         * Snapshots of every timer since the previous call, resetting them
+         */
+        public Map<String, LatencyHistogram.Snapshot> intervalSnapshots() {
+            Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+            timers.forEach((name, timer) -> snapshots.put(name, timer.intervalSnapshot()));
+            return snapshots;
+        }
+        
+        // Totals over all operations since the last interval snapshot
+        public long getTotalOperations() {
+            return allSnapshots().stream().mapToLong(LatencyHistogram.Snapshot::getCount).sum();
+        }
+        public long getTotalTime() {
+            return allSnapshots().stream().mapToLong(LatencyHistogram.Snapshot::getTotal).sum();
+        }
+        public long getMinTime() {
+            return allSnapshots().stream().filter(snapshot -> snapshot.getCount() > 0)
+                .mapToLong(LatencyHistogram.Snapshot::getMin).min().orElse(0);
+        }
+        public long getMaxTime() {
+            return allSnapshots().stream().mapToLong(LatencyHistogram.Snapshot::getMax).max().orElse(0);
+        }
         public double getAverageTime() { 
-            return totalOperations > 0 ? (double) totalTime / totalOperations : 0; 
+            long operations = getTotalOperations();
+            return operations > 0 ? (double) getTotalTime() / operations : 0; 
+        }
+        
+        private List<LatencyHistogram.Snapshot> allSnapshots() {
+            List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+            timers.values().forEach(timer -> snapshots.add(timer.snapshot()));
+            return snapshots;
         }
     }
 }
@@ -0,0 +1,119 @@
+package com.tutorial.projects;
+
+/**
+ * Adaptive Pool Sizer - Picks a thread count from observed load
+ *
+ * Called once per sampling interval with what happened during it:
+ *
+ * - Little's law: to keep up with arrivals at rate L, each taking S
+ *   seconds of a thread, the pool needs L * S busy threads. The sizer
+ *   aims a little above that so a short burst does not queue at once.
+ * - Queue latency: when tasks waited longer in the queue (p90) than they
+ *   took to run, the pool is behind whatever the rate estimate says, so
+ *   it grows by at least a quarter.
+ * - Stall: when work is queued but nothing completed, every thread is
+ *   stuck (a hung call, a lock). There is no service time to go on, so
+ *   the pool doubles, up to maxThreads, to get the queue moving again.
+ * - Gradient check: when the pool grew while work was queued, the next
+ *   interval must show more throughput. If it does not, threads are not
+ *   the bottleneck (CPU, a database, a rate limit...). The size falls
+ *   back and is capped there for a while, instead of piling up threads
+ *   that only add contention.
+ *
+ * The pool grows in one step, so a backlog is worked off quickly. It
+ * shrinks by at most a quarter per interval, so it does not oscillate.
+ *
+ * LEARNING OBJECTIVES:
+ * - Apply Little's law to size a thread pool
+ * - Use a throughput gradient to detect a saturated resource
+ * - Damp a feedback loop so it converges instead of oscillating
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class AdaptivePoolSizer {
+    private static final double HEADROOM = 1.2;
+    private static final double MIN_GAIN = 0.05;
+    private static final int HOLD_INTERVALS = 25;
+
+    private final int minThreads;
+    private final int maxThreads;
+    private int ceiling;
+    private int holdIntervals;
+
+    // The last growth step, checked against the next interval
+    private boolean grew;
+    private int sizeBeforeGrowth;
+    private double throughputBeforeGrowth;
+
+    public AdaptivePoolSizer(int minThreads, int maxThreads) {
+        if (minThreads <= 0 || minThreads > maxThreads) {
+            throw new IllegalArgumentException("Need 0 < minThreads <= maxThreads");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.ceiling = maxThreads;
+    }
+
+    /**
+     * Pool size for the next interval
+     *
+     * @param currentSize   threads in the pool now
+     * @param arrivals      tasks submitted during the interval, including rejected ones
+     * @param completions   tasks that finished during the interval
+     * @param busyNanos     execution time summed over those tasks
+     * @param queued        tasks waiting in the queue at the end of the interval
+     * @param queueWaitNanos p90 queue wait of the tasks that started during the interval
+     * @param intervalNanos length of the interval
+     */
+    public int nextSize(int currentSize, long arrivals, long completions, long busyNanos,
+                        int queued, long queueWaitNanos, long intervalNanos) {
+        if (completions == 0) {
+            grew = false;
+            if (queued > 0 && currentSize < maxThreads) {
+                // Stalled: grow past the held ceiling too, this is not saturation
+                return Math.min(maxThreads, currentSize * 2);
+            }
+            // Idle: no service time to go on
+            return currentSize;
+        }
+
+        double seconds = intervalNanos / 1e9;
+        double throughput = completions / seconds;
+
+        if (grew && throughput < throughputBeforeGrowth * (1 + MIN_GAIN)) {
+            ceiling = Math.max(minThreads, sizeBeforeGrowth);
+            holdIntervals = HOLD_INTERVALS;
+        } else if (holdIntervals > 0 && --holdIntervals == 0) {
+            ceiling = maxThreads;
+        }
+
+        double arrivalRate = arrivals / seconds;
+        double serviceSeconds = busyNanos / 1e9 / completions;
+        int target = (int) Math.ceil(arrivalRate * serviceSeconds * HEADROOM);
+        if (queueWaitNanos > busyNanos / completions) {
+            target = Math.max(target, currentSize + Math.max(1, currentSize / 4));
+        }
+        target = Math.max(minThreads, Math.min(ceiling, target));
+
+        if (target < currentSize) {
+            target = Math.max(target, currentSize - Math.max(1, currentSize / 4));
+        }
+
+        // Only a growth step taken under backlog can be judged by throughput
+        grew = target > currentSize && queued > 0;
+        if (grew) {
+            sizeBeforeGrowth = currentSize;
+            throughputBeforeGrowth = throughput;
+        }
+        return target;
+    }
+
+    /**
+     * Current upper bound; below maxThreads while a failed growth step is held
+     */
+    public int getCeiling() {
+        return ceiling;
+    }
+}
@@ -0,0 +1,132 @@
+package com.tutorial.projects;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * Async Crawl Engine - Non-blocking fetch engine for WebScraper
+ *
+ * The thread-pool engine ties up one platform thread per in-flight request,
+ * so the pool size caps concurrency. This engine uses java.net.http.HttpClient
+ * instead: requests are sent asynchronously, connections are pooled and
+ * reused (HTTP/2 is negotiated where the server supports it) and a single
+ * semaphore caps the number of in-flight fetches across all hosts, while the
+ * CrawlFrontier applies the per-host politeness limits.
+ * Thousands of requests can be in flight with a handful of threads.
+ *
+ * Parsing happens on a small CPU-sized pool so the HttpClient threads only
+ * do I/O.
+ *
+ * LEARNING OBJECTIVES:
+ * - Use HttpClient.sendAsync and CompletableFuture pipelines
+ * - Bound concurrency with a Semaphore instead of a thread pool size
+ * - Drive an asynchronous pipeline from a blocking work source
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+class AsyncCrawlEngine {
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    private final WebScraper scraper;
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final ExecutorService parseExecutor;
+
+    AsyncCrawlEngine(WebScraper scraper, int maxConcurrency) {
+        this.scraper = scraper;
+        this.permits = new Semaphore(maxConcurrency);
+        this.parseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    /**
+     * Dispatch requests until the frontier reports the crawl is finished
+     */
+    void crawl(String keyword) throws InterruptedException {
+        CrawlFrontier frontier = scraper.getFrontier();
+        try {
+            while (true) {
+                permits.acquire();
+                CrawlFrontier.CrawlRequest request = frontier.take();
+                if (request == null) {
+                    permits.release();
+                    break;
+                }
+                dispatch(request, keyword);
+            }
+        } finally {
+            parseExecutor.shutdown();
+        }
+    }
+
+    private void dispatch(CrawlFrontier.CrawlRequest request, String keyword) {
+        fetch(request, keyword).whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Error scraping URL " + request.getUrl() + ": " + error.getMessage());
+            }
+            // Links were offered during processing, before the request completes
+            scraper.getFrontier().complete(request);
+            permits.release();
+        });
+    }
+
+    private CompletableFuture<Void> fetch(CrawlFrontier.CrawlRequest crawlRequest, String keyword) {
+        String url = crawlRequest.getUrl();
+        if (scraper.isVerbose()) {
+            System.out.println("Scraping: " + url);
+        }
+
+        HttpRequest request;
+        CrawlCache.Entry cached;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("User-Agent", USER_AGENT)
+                .timeout(Duration.ofSeconds(10))
+                .GET();
+            cached = scraper.revalidationEntry(url, keyword);
+            if (cached != null) {
+                if (cached.getEtag() != null) builder.header("If-None-Match", cached.getEtag());
+                if (cached.getLastModified() != null) builder.header("If-Modified-Since", cached.getLastModified());
+            }
+            request = builder.build();
+        } catch (IllegalArgumentException | IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Raw bytes: the extractor decodes and parses them in one pass
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenAcceptAsync(response -> {
+                try {
+                    if (response.statusCode() == 304 && cached != null) {
+                        scraper.processNotModified(crawlRequest, cached, keyword);
+                        return;
+                    }
+                    if (response.statusCode() != 200) {
+                        System.err.println("HTTP error: " + response.statusCode() + " for URL: " + url);
+                        return;
+                    }
+                    Charset charset = HtmlStreamExtractor.charsetOf(
+                        response.headers().firstValue("Content-Type").orElse(null));
+                    scraper.processPage(crawlRequest, new ByteArrayInputStream(response.body()), charset, keyword,
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, parseExecutor);
+    }
+}
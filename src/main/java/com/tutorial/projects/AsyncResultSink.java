@@ -0,0 +1,355 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Async Result Sink - Bounded queue and a single writer thread
+ *
+ * Scraping threads only enqueue records; one writer thread drains the
+ * queue in batches into the wrapped sink. This keeps serialization,
+ * compression and disk I/O off the fetch path and means the wrapped sink
+ * never sees concurrent callers.
+ *
+ * The queue is bounded. When the writer falls behind, write() blocks
+ * until there is room again (backpressure), so a slow disk slows the crawl
+ * down instead of letting memory grow without limit. The writer flushes
+ * whenever the queue runs dry for FLUSH_INTERVAL_MS, which bounds how many
+ * records a crash can lose.
+ *
+ * An error in the writer thread, checked or not, is reported to the next
+ * write(), flush() or close() call; the writer keeps draining either way. write() and flush() enqueue under the read side
+ * of a lock whose write side close() holds while it queues the stop
+ * command, so nothing can land behind the stop command and wait forever;
+ * calls after close() throw IllegalStateException.
+ *
+ * LEARNING OBJECTIVES:
+ * - Build a multi-producer, single-consumer pipeline with a BlockingQueue
+ * - Apply backpressure with a bounded queue
+ * - Batch work with drainTo
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class AsyncResultSink implements ResultSink {
+    private static final int MAX_BATCH = 256;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final ResultSink delegate;
+    private final BlockingQueue<Object> queue;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed; // guarded by closeLock
+
+    private final AtomicLong recordsQueued = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong blockedWrites = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    /**
+     * Queue entry asking the writer to flush, or to flush and stop
+     */
+    private static class Command {
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean stop;
+
+        Command(boolean stop) {
+            this.stop = stop;
+        }
+    }
+
+    public AsyncResultSink(ResultSink delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::drain, "result-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(WebScraper.ScrapedData data) throws IOException {
+        closeLock.readLock().lock();
+        try {
+            checkOpen();
+            if (!queue.offer(data)) {
+                long start = System.nanoTime();
+                enqueue(data);
+                blockedWrites.incrementAndGet();
+                blockedNanos.addAndGet(System.nanoTime() - start);
+            }
+            recordsQueued.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wait until everything queued so far has been flushed to the wrapped sink
+     */
+    @Override
+    public void flush() throws IOException {
+        Command command = new Command(false);
+        closeLock.readLock().lock();
+        try {
+            checkOpen();
+            enqueue(command);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        await(command);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Command stop = new Command(true);
+        closeLock.writeLock().lock();
+        try {
+            if (closed) return;
+            // Blocked writers hold the read lock, so they are all queued by now
+            enqueue(stop);
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        await(stop);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getRecordsQueued() { return recordsQueued.get(); }
+    public long getRecordsWritten() { return recordsWritten.get(); }
+    public int getQueueDepth() { return queue.size(); }
+    public long getBlockedWrites() { return blockedWrites.get(); }
+    public long getBlockedMillis() { return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get()); }
+
+    private void await(Command command) throws IOException {
+        try {
+            command.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing results");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(Object entry) throws IOException {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing result");
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+    }
+
+    /**
+     * Writer thread: drain in batches, flush when idle
+     */
+    private void drain() {
+        List<Object> batch = new ArrayList<>(MAX_BATCH);
+        boolean dirty = false;
+        while (true) {
+            Object first;
+            try {
+                first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Only close() stops the writer
+                continue;
+            }
+            if (first == null) {
+                if (dirty) {
+                    flushDelegate();
+                    dirty = false;
+                }
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Object entry : batch) {
+                if (entry instanceof Command) {
+                    Command command = (Command) entry;
+                    flushDelegate();
+                    dirty = false;
+                    command.done.countDown();
+                    if (command.stop) {
+                        return;
+                    }
+                } else {
+                    writeDelegate((WebScraper.ScrapedData) entry);
+                    dirty = true;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeDelegate(WebScraper.ScrapedData data) {
+        if (failure != null) return; // keep draining so producers never block forever
+        try {
+            delegate.write(data);
+            recordsWritten.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            fail("writing", e);
+        }
+    }
+
+    private void flushDelegate() {
+        if (failure != null) return;
+        try {
+            delegate.flush();
+        } catch (IOException | RuntimeException e) {
+            fail("flushing", e);
+        }
+    }
+
+    /**
+     * Remember the first error for the callers. Unchecked ones (a serializer
+     * bug, UncheckedIOException from a stream) are wrapped: letting them end
+     * the writer thread would leave producers blocked on a full queue.
+     */
+    private void fail(String action, Exception e) {
+        failure = e instanceof IOException ? (IOException) e : new IOException("Error " + action + " results", e);
+        System.err.println("Error " + action + " results: " + e.getMessage());
+    }
+
+    /**
+     * Producers writing scraped records: in-memory list + write at the end
+     * (original), a shared synchronized NDJSON writer, and the async queue
+     * in front of a plain NDJSON file and of the rotating gzip sink.
+     *
+     * Usage: java AsyncResultSink [records] [producers]
+     */
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Path directory = Files.createTempDirectory("result-sink-bench");
+
+        System.out.println("=== Result Sink Benchmark ===");
+        System.out.println("Records: " + records + ", producer threads: " + producers);
+
+        // 1. Collect everything, then write it out (the original behaviour)
+        System.gc();
+        long heapBefore = usedHeap();
+        List<WebScraper.ScrapedData> collected = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        produce(records, producers, collected::add);
+        long heapCollected = usedHeap() - heapBefore;
+        try (NdjsonResultSink sink = new NdjsonResultSink(directory.resolve("collected.ndjson"))) {
+            for (WebScraper.ScrapedData data : collected) {
+                sink.write(data);
+            }
+        }
+        report("In-memory list + final write", System.nanoTime() - start, records);
+        System.out.printf("  Heap held until the end: %.1f MB%n", heapCollected / (1024.0 * 1024));
+        collected.clear();
+
+        // 2. Producers share one synchronized writer
+        start = System.nanoTime();
+        try (NdjsonResultSink sink = new NdjsonResultSink(directory.resolve("shared.ndjson"))) {
+            produce(records, producers, sink::write);
+        }
+        report("Shared synchronized NDJSON writer", System.nanoTime() - start, records);
+
+        // 3. Bounded queue -> single writer -> NDJSON file
+        AsyncResultSink queued = new AsyncResultSink(new NdjsonResultSink(directory.resolve("async.ndjson")), 4096);
+        start = System.nanoTime();
+        produce(records, producers, queued::write);
+        queued.close();
+        report("Async queue + NDJSON", System.nanoTime() - start, records);
+        printQueueStats(queued);
+
+        // 4. Bounded queue -> single writer -> rotating gzip files
+        RotatingFileSink rotating = new RotatingFileSink(directory, "results", 16L * 1024 * 1024, true);
+        AsyncResultSink async = new AsyncResultSink(rotating, 4096);
+        start = System.nanoTime();
+        produce(records, producers, async::write);
+        async.close();
+        report("Async queue + rotating gzip", System.nanoTime() - start, records);
+        printQueueStats(async);
+        System.out.printf("  Files: %d, JSON %.1f MB -> %.1f MB on disk%n", rotating.getFilesCompleted(),
+            rotating.getUncompressedBytes() / (1024.0 * 1024), rotating.getBytesOnDisk() / (1024.0 * 1024));
+
+        try (java.util.stream.Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void printQueueStats(AsyncResultSink sink) {
+        System.out.println("  Records written: " + sink.getRecordsWritten());
+        System.out.println("  Producer waits (queue full): " + sink.getBlockedWrites()
+            + ", " + sink.getBlockedMillis() + " ms summed over producers");
+    }
+
+    private interface RecordConsumer {
+        void accept(WebScraper.ScrapedData data) throws IOException;
+    }
+
+    /**
+     * Each producer builds fresh records, as scraping threads would
+     */
+    private static void produce(int records, int producers, RecordConsumer consumer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            futures.add(pool.submit(() -> {
+                for (int i = producer; i < records; i += producers) {
+                    consumer.accept(sampleRecord(i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    private static void report(String name, long nanos, int records) {
+        System.out.println("\n" + name + ":");
+        System.out.printf("  Time: %d ms, %,.0f records/sec%n",
+            TimeUnit.NANOSECONDS.toMillis(nanos), records / (nanos / 1e9));
+    }
+
+    private static WebScraper.ScrapedData sampleRecord(int i) {
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+        data.setUrl("https://example.com/articles/" + i);
+        data.setTitle("Article " + i + " - Example Site");
+        data.setDescription("A \"quoted\" description of article " + i);
+        for (int h = 0; h < 5; h++) data.getHeadings().add("Section " + h + " of article " + i);
+        for (int l = 0; l < 40; l++) data.getLinks().add("/articles/" + (i * 40 + l));
+        for (int m = 0; m < 5; m++) data.getImages().add("/images/" + i + "_" + m + ".png");
+        data.setTimestamp(new Date());
+        data.setContentFingerprint(i * 0x9E3779B97F4A7C15L);
+        return data;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -24,6 +24,12 @@ import java.util.stream.Collectors;
  * @since 2024
  */
 public class FileOrganizer {
+    /**
+     * Directory names produced by organize-by-type
+     */
+    static final List<String> FILE_TYPE_CATEGORIES = List.of(
+        "Images", "Videos", "Audio", "Documents", "Archives", "Executables", "Other");
+    
     private Scanner scanner;
     
     public FileOrganizer() {
@@ -31,6 +37,12 @@ public class FileOrganizer {
     }
     
     public static void main(String[] args) {
+        if (args.length >= 2 && args[0].equals("--watch")) {
+            // Daemon mode: keep the directory organized as files arrive
+            FileWatchOrganizer.watch(Paths.get(args[1]));
+            return;
+        }
+        
         FileOrganizer organizer = new FileOrganizer();
         organizer.run();
     }
@@ -69,6 +81,9 @@ public class FileOrganizer {
                     analyzeDirectory();
                     break;
                 case 8:
+                    watchDirectory();
+                    break;
+                case 9:
                     running = false;
                     System.out.println("Thank you for using File Organizer Utility!");
                     break;
@@ -92,7 +107,8 @@ public class FileOrganizer {
         System.out.println("5. Clean Duplicate Files");
         System.out.println("6. Organize by Custom Criteria");
         System.out.println("7. Analyze Directory");
-        System.out.println("8. Exit");
+        System.out.println("8. Watch Directory (Daemon Mode)");
+        System.out.println("9. Exit");
         System.out.print("Enter your choice: ");
     }
     
@@ -362,10 +378,29 @@ public class FileOrganizer {
         }
     }
     
+    /**
+     * Watch a directory and organize new files by type as they arrive
+     */
+    private void watchDirectory() {
+        System.out.println("\n=== Watch Directory (Daemon Mode) ===");
+        
+        String sourcePath = getDirectoryPath("Enter directory path to watch: ");
+        if (sourcePath == null) return;
+        
+        Path source = Paths.get(sourcePath);
+        if (!Files.exists(source) || !Files.isDirectory(source)) {
+            System.out.println("Invalid directory path!");
+            return;
+        }
+        
+        System.out.println("Watching " + source + " (press Ctrl+C to stop)...");
+        FileWatchOrganizer.watch(source);
+    }
+    
     /**
      * Get file type based on extension
      */
-    private String getFileType(Path file) {
+    static String getFileType(Path file) {
         String extension = getFileExtension(file).toLowerCase();
         
         if (Arrays.asList("jpg", "jpeg", "png", "gif", "bmp", "svg").contains(extension)) {
@@ -388,7 +423,7 @@ public class FileOrganizer {
     /**
      * Get file extension
      */
-    private String getFileExtension(Path file) {
+    static String getFileExtension(Path file) {
         String fileName = file.getFileName().toString();
         int lastDotIndex = fileName.lastIndexOf('.');
         return lastDotIndex > 0 ? fileName.substring(lastDotIndex + 1) : "no_extension";
@@ -413,88 +448,59 @@ public class FileOrganizer {
      * Organize files by type
      */
     private void organizeFilesByType(Path source, Map<String, List<Path>> filesByType) {
-        filesByType.forEach((type, files) -> {
-            try {
-                Path typeDir = source.resolve(type);
-                Files.createDirectories(typeDir);
-                
-                for (Path file : files) {
-                    Path target = typeDir.resolve(file.getFileName());
-                    if (!Files.exists(target)) {
-                        Files.move(file, target);
-                        System.out.println("Moved: " + file.getFileName() + " to " + type);
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error organizing files by type: " + e.getMessage());
-            }
-        });
+        executeMovePlan(source, filesByType, type -> type);
     }
     
     /**
      * Organize files by date
      */
     private void organizeFilesByDate(Path source, Map<String, List<Path>> filesByDate) {
-        filesByDate.forEach((date, files) -> {
-            try {
-                Path dateDir = source.resolve(date);
-                Files.createDirectories(dateDir);
-                
-                for (Path file : files) {
-                    Path target = dateDir.resolve(file.getFileName());
-                    if (!Files.exists(target)) {
-                        Files.move(file, target);
-                        System.out.println("Moved: " + file.getFileName() + " to " + date);
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error organizing files by date: " + e.getMessage());
-            }
-        });
+        executeMovePlan(source, filesByDate, date -> date);
     }
     
     /**
      * Organize files by size
      */
     private void organizeFilesBySize(Path source, Map<String, List<Path>> filesBySize) {
-        filesBySize.forEach((category, files) -> {
-            try {
-                Path sizeDir = source.resolve(category.replaceAll("[<>()]", "").trim());
-                Files.createDirectories(sizeDir);
-                
-                for (Path file : files) {
-                    Path target = sizeDir.resolve(file.getFileName());
-                    if (!Files.exists(target)) {
-                        Files.move(file, target);
-                        System.out.println("Moved: " + file.getFileName() + " to " + category);
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error organizing files by size: " + e.getMessage());
-            }
-        });
+        executeMovePlan(source, filesBySize, category -> category.replaceAll("[<>()]", "").trim());
     }
     
     /**
      * Organize files by extension
      */
     private void organizeFilesByExtension(Path source, Map<String, List<Path>> filesByExtension) {
-        filesByExtension.forEach((extension, files) -> {
-            try {
-                Path extDir = source.resolve(extension.toUpperCase());
-                Files.createDirectories(extDir);
-                
-                for (Path file : files) {
-                    Path target = extDir.resolve(file.getFileName());
-                    if (!Files.exists(target)) {
-                        Files.move(file, target);
-                        System.out.println("Moved: " + file.getFileName() + " to " + extension.toUpperCase());
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error organizing files by extension: " + e.getMessage());
+        executeMovePlan(source, filesByExtension, String::toUpperCase);
+    }
+    
+    /**
+     * Plan all moves up front, create each directory once and move in parallel.
+     * A run interrupted earlier in the same directory is finished first.
+     */
+    private void executeMovePlan(Path source, Map<String, List<Path>> groups,
+                                 java.util.function.Function<String, String> dirName) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        
+        try {
+            MovePlanner interrupted = MovePlanner.resume(source);
+            if (interrupted != null) {
+                System.out.println("Resuming interrupted run (" + interrupted.getPlannedMoves() + " planned moves)...");
+                interrupted.execute(parallelism);
             }
-        });
+            
+            MovePlanner planner = MovePlanner.plan(source, groups, dirName);
+            planner.execute(parallelism);
+            
+            System.out.println("Moved " + planner.getMoved() + " files into " +
+                              planner.getDirectoryCount() + " directories" +
+                              (planner.getSkipped() + planner.getCollisions() > 0
+                                  ? " (" + (planner.getSkipped() + planner.getCollisions()) + " skipped)" : ""));
+            if (planner.getFailed() > 0) {
+                System.err.println(planner.getFailed() + " files could not be moved" +
+                                  (planner.getRetryable() > 0 ? ". Run again to resume." : "."));
+            }
+        } catch (IOException e) {
+            System.err.println("Error organizing files: " + e.getMessage());
+        }
     }
     
     /**
@@ -605,7 +611,7 @@ public class FileOrganizer {
         Map<String, Long> fileTypes = Files.walk(source)
             .filter(Files::isRegularFile)
             .collect(Collectors.groupingBy(
-                this::getFileType,
+                FileOrganizer::getFileType,
                 Collectors.counting()
             ));
         
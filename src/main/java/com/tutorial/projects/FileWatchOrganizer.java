@@ -0,0 +1,428 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * File Watch Organizer - Incremental Daemon Mode for FileOrganizer
+ *
+ * This class keeps a directory tree organized continuously instead of
+ * rescanning the whole tree on a schedule. A WatchService is registered on
+ * every sub-directory and files are moved into their category folder as
+ * soon as their events settle down.
+ *
+ * HOW IT WORKS:
+ * - Events are coalesced per path, so CREATE + MODIFY bursts become one move
+ * - A path is organized once it has been quiet for the debounce period
+ *   (or once the maximum delay is reached for files that keep changing)
+ * - New sub-directories are registered and scanned as they appear
+ * - On OVERFLOW only the affected directory is rescanned, not the whole tree
+ * - Category directories (Images, Documents, ...) are never watched
+ * - A category directory deleted while running is recreated on the next move
+ * - Files whose name is already taken in the category are left in place
+ *
+ * LEARNING OBJECTIVES:
+ * - Use WatchService for event-driven file processing
+ * - Debounce and coalesce bursts of file system events
+ * - Recover from lost events with targeted rescans
+ * - Measure latency and throughput of a long-running daemon
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class FileWatchOrganizer implements Closeable {
+    private static final long DEFAULT_QUIET_PERIOD_MS = 200;
+    private static final long DEFAULT_MAX_DELAY_MS = 2000;
+    private static final long IDLE_POLL_MS = 1000;
+
+    private final Path root;
+    private final Function<Path, String> categorizer;
+    private final Set<String> categoryNames;
+    private final long quietPeriodNanos;
+    private final long maxDelayNanos;
+    private final WatchService watchService;
+
+    // Only touched by the thread running the event loop
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> registeredDirs = new HashSet<>();
+    private final Map<Path, PendingFile> pending = new LinkedHashMap<>();
+    private final Set<Path> createdDirs = new HashSet<>();
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong filesOrganized = new AtomicLong();
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong rescans = new AtomicLong();
+
+    private volatile boolean running;
+    private boolean verbose = true;
+    private ObjLongConsumer<Path> moveListener;
+
+    public FileWatchOrganizer(Path root, Function<Path, String> categorizer, Collection<String> categoryNames)
+            throws IOException {
+        this(root, categorizer, categoryNames, DEFAULT_QUIET_PERIOD_MS, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public FileWatchOrganizer(Path root, Function<Path, String> categorizer, Collection<String> categoryNames,
+                              long quietPeriodMs, long maxDelayMs) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.categorizer = categorizer;
+        this.categoryNames = new HashSet<>(categoryNames);
+        this.quietPeriodNanos = TimeUnit.MILLISECONDS.toNanos(quietPeriodMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.watchService = this.root.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Run the organizer by file type until the JVM is stopped
+     */
+    public static void watch(Path root) {
+        try (FileWatchOrganizer organizer = new FileWatchOrganizer(
+                root, FileOrganizer::getFileType, FileOrganizer.FILE_TYPE_CATEGORIES)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(organizer::close));
+            organizer.run();
+        } catch (IOException e) {
+            System.err.println("Error watching directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Event loop: register the tree, organize what is already there,
+     * then react to events until closed
+     */
+    public void run() throws IOException {
+        running = true;
+        rescan(root);
+
+        try {
+            while (running) {
+                long timeout = pending.isEmpty() ? IDLE_POLL_MS : TimeUnit.NANOSECONDS.toMillis(quietPeriodNanos);
+                WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+
+                // Drain everything that is already queued before flushing
+                while (key != null) {
+                    processKey(key);
+                    key = watchService.poll();
+                }
+
+                flushReady(System.nanoTime());
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called from another thread
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Handle all events of a single watch key
+     */
+    private void processKey(WatchKey key) {
+        Path dir = watchedDirs.get(key);
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            eventsReceived.incrementAndGet();
+
+            if (event.kind() == OVERFLOW) {
+                // Events for this directory were lost - rescan just this directory
+                overflows.incrementAndGet();
+                rescanQuietly(dir);
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_DELETE) {
+                pending.remove(child);
+                createdDirs.remove(child);
+            } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (event.kind() == ENTRY_CREATE && !isCategoryDir(child)) {
+                    // Files may have landed before the directory was registered
+                    rescanQuietly(child);
+                }
+            } else {
+                markPending(child, System.nanoTime());
+            }
+        }
+
+        if (!key.reset()) {
+            registeredDirs.remove(watchedDirs.remove(key));
+        }
+    }
+
+    /**
+     * Register a directory (and any unregistered sub-directories) and
+     * queue the files it contains
+     */
+    private void rescan(Path dir) throws IOException {
+        rescans.incrementAndGet();
+        long now = System.nanoTime();
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                if (isCategoryDir(subDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                // Already-registered sub-directories still deliver their own events
+                if (!subDir.equals(dir) && registeredDirs.contains(subDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                register(subDir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    markPending(file, now);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void rescanQuietly(Path dir) {
+        try {
+            rescan(dir);
+        } catch (IOException e) {
+            System.err.println("Error rescanning " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        if (registeredDirs.add(dir)) {
+            WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            watchedDirs.put(key, dir);
+        }
+    }
+
+    private boolean isCategoryDir(Path dir) {
+        return root.equals(dir.getParent()) && categoryNames.contains(dir.getFileName().toString());
+    }
+
+    private void markPending(Path file, long now) {
+        pending.computeIfAbsent(file, k -> new PendingFile(now)).lastSeen = now;
+    }
+
+    /**
+     * Organize every pending file whose events have settled
+     */
+    private void flushReady(long now) {
+        Iterator<Map.Entry<Path, PendingFile>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = it.next();
+            PendingFile state = entry.getValue();
+
+            if (now - state.lastSeen >= quietPeriodNanos || now - state.firstSeen >= maxDelayNanos) {
+                it.remove();
+                organize(entry.getKey(), state.firstSeen);
+            }
+        }
+    }
+
+    /**
+     * Move a single file into its category directory
+     */
+    private void organize(Path file, long firstSeen) {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) return;
+
+        String category = categorizer.apply(file);
+        Path categoryDir = root.resolve(category);
+        if (categoryDir.equals(file.getParent())) return;
+
+        try {
+            ensureDirectory(categoryDir);
+
+            Path target = categoryDir.resolve(file.getFileName());
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                filesSkipped.incrementAndGet();
+                System.out.println("Skipped: " + file.getFileName() + " already exists in " + category);
+                return;
+            }
+
+            try {
+                Files.move(file, target);
+            } catch (NoSuchFileException e) {
+                // The category directory may have been deleted since it was cached
+                if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) throw e;
+                createdDirs.remove(categoryDir);
+                ensureDirectory(categoryDir);
+                Files.move(file, target);
+            }
+            filesOrganized.incrementAndGet();
+
+            if (verbose) {
+                System.out.println("Moved: " + file.getFileName() + " to " + category);
+            }
+            if (moveListener != null) {
+                moveListener.accept(target, System.nanoTime() - firstSeen);
+            }
+        } catch (IOException e) {
+            System.err.println("Error organizing " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a category directory unless this loop already did
+     */
+    private void ensureDirectory(Path dir) throws IOException {
+        if (createdDirs.add(dir)) {
+            try {
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                createdDirs.remove(dir);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stop the event loop
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing watch service: " + e.getMessage());
+        }
+    }
+
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+
+    /**
+     * Called on the event loop thread with the target path and the
+     * nanoseconds between the first event and the completed move
+     */
+    public void setMoveListener(ObjLongConsumer<Path> moveListener) { this.moveListener = moveListener; }
+
+    public boolean isRunning() { return running; }
+    public long getEventsReceived() { return eventsReceived.get(); }
+    public long getFilesOrganized() { return filesOrganized.get(); }
+    public long getFilesSkipped() { return filesSkipped.get(); }
+    public long getOverflows() { return overflows.get(); }
+    public long getRescans() { return rescans.get(); }
+
+    /**
+     * Debounce state for one path
+     */
+    private static class PendingFile {
+        private final long firstSeen;
+        private long lastSeen;
+
+        PendingFile(long firstSeen) {
+            this.firstSeen = firstSeen;
+            this.lastSeen = firstSeen;
+        }
+    }
+
+    /**
+     * Latency and throughput check: drops thousands of files into a watched
+     * directory and reports how quickly they are organized.
+     *
+     * Usage: java FileWatchOrganizer [fileCount]
+     */
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        String[] extensions = {"jpg", "mp4", "mp3", "pdf", "zip", "exe", "dat"};
+
+        System.out.println("=== File Watch Organizer Benchmark ===");
+        System.out.println("Files: " + fileCount);
+
+        Path dir = Files.createTempDirectory("watch-organizer");
+        List<Long> latencies = new ArrayList<>(fileCount);
+
+        FileWatchOrganizer organizer = new FileWatchOrganizer(
+            dir, FileOrganizer::getFileType, FileOrganizer.FILE_TYPE_CATEGORIES, 50, 500);
+        organizer.setVerbose(false);
+        organizer.setMoveListener((path, latency) -> latencies.add(latency));
+
+        Thread loop = new Thread(() -> {
+            try {
+                organizer.run();
+            } catch (IOException e) {
+                System.err.println("Watcher failed: " + e.getMessage());
+            }
+        }, "file-watch-organizer");
+        loop.start();
+
+        // Give the watcher time to register the root directory
+        while (organizer.getRescans() == 0) {
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        byte[] content = "sample content".getBytes();
+        for (int i = 0; i < fileCount; i++) {
+            Files.write(dir.resolve("file_" + i + "." + extensions[i % extensions.length]), content);
+        }
+        long writeTime = System.nanoTime() - start;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (organizer.getFilesOrganized() < fileCount && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long totalTime = System.nanoTime() - start;
+
+        organizer.close();
+        loop.join();
+
+        Collections.sort(latencies);
+        System.out.println("Write time: " + TimeUnit.NANOSECONDS.toMillis(writeTime) + " ms");
+        System.out.println("Total time: " + TimeUnit.NANOSECONDS.toMillis(totalTime) + " ms");
+        System.out.println("Organized: " + organizer.getFilesOrganized() + "/" + fileCount
+            + ", skipped: " + organizer.getFilesSkipped());
+        System.out.printf("Throughput: %.0f files/sec%n", organizer.getFilesOrganized() / (totalTime / 1e9));
+        System.out.println("Events received: " + organizer.getEventsReceived());
+        System.out.println("Overflows: " + organizer.getOverflows() + ", rescans: " + organizer.getRescans());
+        if (!latencies.isEmpty()) {
+            System.out.println("Latency p50: " + percentileMillis(latencies, 0.50) + " ms");
+            System.out.println("Latency p99: " + percentileMillis(latencies, 0.99) + " ms");
+            System.out.println("Latency max: " + percentileMillis(latencies, 1.0) + " ms");
+        }
+
+        deleteTree(dir);
+    }
+
+    private static long percentileMillis(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
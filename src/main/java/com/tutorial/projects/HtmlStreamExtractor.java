@@ -0,0 +1,522 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * HTML Stream Extractor - Single-pass page extraction for WebScraper
+ *
+ * The regex approach builds the whole page as a String, compiles several
+ * Patterns per page and scans the content once per pattern. This extractor
+ * reads the decoded stream once, character by character, with a small tag
+ * state machine and collects everything WebScraper needs on the way:
+ *
+ * - title, meta description and h1-h6 text (nested tags stripped)
+ * - a href and img src attributes (single, double or unquoted values)
+ * - a case-insensitive keyword match over the raw content (KMP automaton)
+ * - a SimHash fingerprint of the visible words for near-duplicate detection
+ *   (nav, header, footer and aside text excluded)
+ *
+ * Comments, script and style bodies are skipped. Reading stops as soon as
+ * the character budget is used up. By default the list limits are combined
+ * with AND: reading also stops once every list limit is reached and the
+ * keyword question is answered, so nothing WebScraper needs is cut short.
+ * With setStopOnAnyLimit(true) it stops as soon as any one list limit is
+ * reached instead, so oversized pages are never fully read.
+ *
+ * LEARNING OBJECTIVES:
+ * - Write a pull parser as a state machine over a Reader
+ * - Avoid repeated Pattern compilation and multi-pass scans
+ * - Match a pattern incrementally with the KMP failure function
+ * - Stop I/O early once the needed data has been collected
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class HtmlStreamExtractor {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxLinks;
+    private final int maxImages;
+    private final int maxHeadings;
+    private final long maxChars;
+    private volatile boolean fingerprintContent = true;
+    private volatile boolean stopOnAnyLimit;
+
+    public HtmlStreamExtractor() {
+        this(1000, 500, 200, 5_000_000);
+    }
+
+    /**
+     * maxChars always ends the page. The list limits end it only when all of
+     * them are reached and the keyword is found, unless setStopOnAnyLimit is
+     * on. A limit of 0 skips that list and never counts as reached.
+     */
+    public HtmlStreamExtractor(int maxLinks, int maxImages, int maxHeadings, long maxChars) {
+        this.maxLinks = maxLinks;
+        this.maxImages = maxImages;
+        this.maxHeadings = maxHeadings;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Compute a SimHash fingerprint of the visible text (on by default)
+     */
+    public void setFingerprintContent(boolean fingerprintContent) {
+        this.fingerprintContent = fingerprintContent;
+    }
+
+    public boolean isFingerprintContent() {
+        return fingerprintContent;
+    }
+
+    /**
+     * Stop reading when any list limit is reached rather than all of them
+     * (off by default). Lists still below their limit, the keyword match and
+     * the fingerprint then only cover the part of the page read so far.
+     */
+    public void setStopOnAnyLimit(boolean stopOnAnyLimit) {
+        this.stopOnAnyLimit = stopOnAnyLimit;
+    }
+
+    public boolean isStopOnAnyLimit() {
+        return stopOnAnyLimit;
+    }
+
+    /**
+     * Extract page data from a byte stream in a single pass
+     */
+    public WebScraper.ScrapedData extract(String url, InputStream in, Charset charset, String keyword)
+            throws IOException {
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+        data.setUrl(url);
+        data.setTimestamp(new Date());
+
+        Parser parser = new Parser(new InputStreamReader(in, charset), data, keyword);
+        parser.run();
+        return data;
+    }
+
+    /**
+     * Charset from a Content-Type header value, UTF-8 if absent or unknown
+     */
+    public static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String part : contentType.split(";")) {
+                String trimmed = part.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Per-page parsing state
+     */
+    private class Parser {
+        private final Reader reader;
+        private final WebScraper.ScrapedData data;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private long consumed;
+        private boolean stopped;
+        private int pushedBack = -1;
+        private final boolean anyLimitStops;
+
+        // Keyword matching (KMP over lower-cased characters)
+        private final char[] keyword;
+        private final int[] failure;
+        private int matched;
+        private boolean keywordFound;
+
+        // Text capture for title and headings
+        private final StringBuilder text = new StringBuilder();
+        private boolean inTitle;
+        private int headingLevel;
+
+        // Content fingerprint over visible words, hashed as they stream past
+        private final SimHash.Builder simHash;
+        private long wordHash = SimHash.WORD_HASH_SEED;
+        private boolean inWord;
+        private int boilerplateDepth;
+
+        Parser(Reader reader, WebScraper.ScrapedData data, String keyword) {
+            this.reader = reader;
+            this.data = data;
+            this.keyword = keyword == null ? new char[0] : keyword.toLowerCase(Locale.ROOT).toCharArray();
+            this.failure = buildFailure(this.keyword);
+            this.keywordFound = this.keyword.length == 0;
+            this.simHash = fingerprintContent ? new SimHash.Builder() : null;
+            this.anyLimitStops = stopOnAnyLimit;
+        }
+
+        void run() throws IOException {
+            int c;
+            while (!stopped && (c = next()) != -1) {
+                if (c == '<') {
+                    endWord();
+                    tag();
+                } else {
+                    if (inTitle || headingLevel > 0) {
+                        text.append((char) c);
+                    }
+                    if (simHash != null && boilerplateDepth == 0) {
+                        wordChar((char) c);
+                    }
+                }
+            }
+            if (keyword.length > 0) {
+                data.setContainsKeyword(keywordFound);
+            }
+            if (simHash != null) {
+                // After an early stop this covers the part of the page that was read
+                endWord();
+                data.setContentFingerprint(simHash.build());
+            }
+        }
+
+        private void wordChar(char c) {
+            if (c < 128) {
+                // ASCII fast path; most page text never reaches the Character tables
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                } else if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9')) {
+                    endWord();
+                    return;
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+            } else {
+                endWord();
+                return;
+            }
+            wordHash = SimHash.hashWordChar(wordHash, c);
+            inWord = true;
+        }
+
+        private void endWord() {
+            if (inWord) {
+                simHash.addWordHash(wordHash);
+                wordHash = SimHash.WORD_HASH_SEED;
+                inWord = false;
+            }
+        }
+
+        private int next() throws IOException {
+            if (pushedBack != -1) {
+                int c = pushedBack;
+                pushedBack = -1;
+                return c;
+            }
+            if (position == limit) {
+                if (consumed >= maxChars) {
+                    stopped = true;
+                    return -1;
+                }
+                limit = reader.read(buffer, 0, (int) Math.min(buffer.length, maxChars - consumed));
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+                consumed += limit;
+            }
+            char c = buffer[position++];
+            if (!keywordFound) {
+                matchKeyword(c);
+            }
+            return c;
+        }
+
+        private void matchKeyword(char c) {
+            char lower = Character.toLowerCase(c);
+            while (matched > 0 && keyword[matched] != lower) {
+                matched = failure[matched - 1];
+            }
+            if (keyword[matched] == lower && ++matched == keyword.length) {
+                keywordFound = true;
+                checkDone();
+            }
+        }
+
+        /**
+         * Called after '<'
+         */
+        private void tag() throws IOException {
+            int c = next();
+            if (c == '!') {
+                skipDeclarationOrComment();
+            } else if (c == '?') {
+                skipPast('>');
+            } else if (c == '/') {
+                String name = readName(next());
+                skipPast('>');
+                endTag(name);
+            } else if (Character.isLetter(c)) {
+                String name = readName(c);
+                startTag(name);
+            } else {
+                // A bare '<' in text: the next character goes back to the
+                // text loop, which also picks up a following '<' as a tag
+                if (inTitle || headingLevel > 0) {
+                    text.append('<');
+                }
+                pushBack(c);
+            }
+        }
+
+        private void startTag(String name) throws IOException {
+            switch (name) {
+                case "a":
+                    addLimited(data.getLinks(), readAttributes("href"), maxLinks, true);
+                    break;
+                case "img":
+                    addLimited(data.getImages(), readAttributes("src"), maxImages, false);
+                    break;
+                case "meta": {
+                    Map<String, String> attributes = readAllAttributes();
+                    if ("description".equalsIgnoreCase(attributes.get("name")) && data.getDescription() == null) {
+                        String content = attributes.get("content");
+                        if (content != null) data.setDescription(content.trim());
+                    }
+                    break;
+                }
+                case "title":
+                    skipAttributes();
+                    if (data.getTitle() == null) {
+                        inTitle = true;
+                        text.setLength(0);
+                    }
+                    break;
+                case "script":
+                case "style":
+                    skipAttributes();
+                    skipRawText(name);
+                    break;
+                case "nav":
+                case "header":
+                case "footer":
+                case "aside":
+                    // Site chrome is left out of the fingerprint so mirrors with
+                    // different templates still match
+                    skipAttributes();
+                    boilerplateDepth++;
+                    break;
+                default:
+                    skipAttributes();
+                    int level = headingLevel(name);
+                    if (level > 0 && headingLevel == 0) {
+                        headingLevel = level;
+                        text.setLength(0);
+                    }
+            }
+        }
+
+        private void endTag(String name) {
+            if (boilerplateDepth > 0 && isBoilerplate(name)) {
+                boilerplateDepth--;
+            }
+            if (inTitle && name.equals("title")) {
+                inTitle = false;
+                data.setTitle(collapse(text));
+            } else if (headingLevel > 0 && headingLevel(name) == headingLevel) {
+                headingLevel = 0;
+                String heading = collapse(text);
+                if (!heading.isEmpty()) {
+                    addLimited(data.getHeadings(), heading, maxHeadings, false);
+                }
+            }
+        }
+
+        private void addLimited(List<String> list, String value, int max, boolean skipFragments) {
+            if (value == null || list.size() >= max) return;
+            value = value.trim();
+            if (value.isEmpty() || (skipFragments && value.startsWith("#"))) return;
+            list.add(value);
+            if (list.size() == max) {
+                if (anyLimitStops) {
+                    stopped = true;
+                } else {
+                    checkDone();
+                }
+            }
+        }
+
+        /**
+         * Stop reading once nothing more can be collected: every list limit
+         * reached and the keyword answered
+         */
+        private void checkDone() {
+            if (keywordFound
+                    && data.getLinks().size() >= maxLinks
+                    && data.getImages().size() >= maxImages
+                    && data.getHeadings().size() >= maxHeadings) {
+                stopped = true;
+            }
+        }
+
+        private String readName(int c) throws IOException {
+            StringBuilder name = new StringBuilder(8);
+            while (c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == ':')) {
+                name.append(Character.toLowerCase((char) c));
+                c = next();
+            }
+            pushBack(c);
+            return name.toString();
+        }
+
+        /**
+         * Read attributes up to '>' and return the value of one of them
+         */
+        private String readAttributes(String wanted) throws IOException {
+            return readAllAttributes().get(wanted);
+        }
+
+        private Map<String, String> readAllAttributes() throws IOException {
+            Map<String, String> attributes = new HashMap<>(4);
+            int c = next();
+            while (c != -1 && c != '>') {
+                if (Character.isWhitespace(c) || c == '/') {
+                    c = next();
+                    continue;
+                }
+                StringBuilder name = new StringBuilder();
+                while (c != -1 && c != '=' && c != '>' && !Character.isWhitespace(c)) {
+                    name.append(Character.toLowerCase((char) c));
+                    c = next();
+                }
+                while (c != -1 && Character.isWhitespace(c)) c = next();
+                if (c != '=') {
+                    attributes.putIfAbsent(name.toString(), "");
+                    continue;
+                }
+                c = next();
+                while (c != -1 && Character.isWhitespace(c)) c = next();
+
+                StringBuilder value = new StringBuilder();
+                if (c == '"' || c == '\'') {
+                    int quote = c;
+                    while ((c = next()) != -1 && c != quote) value.append((char) c);
+                    c = next();
+                } else {
+                    while (c != -1 && c != '>' && !Character.isWhitespace(c)) {
+                        value.append((char) c);
+                        c = next();
+                    }
+                }
+                attributes.putIfAbsent(name.toString(), value.toString());
+            }
+            return attributes;
+        }
+
+        /**
+         * Skip to the end of the tag, honouring quoted values that contain '>'
+         */
+        private void skipAttributes() throws IOException {
+            int c;
+            int quote = 0;
+            while ((c = next()) != -1) {
+                if (quote != 0) {
+                    if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return;
+                }
+            }
+        }
+
+        private void skipDeclarationOrComment() throws IOException {
+            int c = next();
+            if (c == '-' && (c = next()) == '-') {
+                // Comment: skip to "-->"
+                int dashes = 0;
+                while ((c = next()) != -1) {
+                    if (c == '>' && dashes >= 2) return;
+                    dashes = c == '-' ? dashes + 1 : 0;
+                }
+            } else if (c != '>') {
+                skipPast('>');
+            }
+        }
+
+        /**
+         * Skip a script/style body up to its closing tag
+         */
+        private void skipRawText(String name) throws IOException {
+            String closing = "</" + name;
+            int matchedChars = 0;
+            int c;
+            while ((c = next()) != -1) {
+                if (Character.toLowerCase(c) == closing.charAt(matchedChars)) {
+                    if (++matchedChars == closing.length()) {
+                        skipPast('>');
+                        return;
+                    }
+                } else {
+                    matchedChars = c == '<' ? 1 : 0;
+                }
+            }
+        }
+
+        private void skipPast(char target) throws IOException {
+            int c;
+            while ((c = next()) != -1 && c != target) {
+                // skip
+            }
+        }
+
+        private void pushBack(int c) {
+            // Replayed without feeding the keyword matcher a second time
+            pushedBack = c;
+        }
+
+        private boolean isBoilerplate(String name) {
+            return name.equals("nav") || name.equals("header") || name.equals("footer") || name.equals("aside");
+        }
+
+        private int headingLevel(String name) {
+            if (name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6') {
+                return name.charAt(1) - '0';
+            }
+            return 0;
+        }
+
+        private String collapse(StringBuilder raw) {
+            StringBuilder result = new StringBuilder(raw.length());
+            boolean space = false;
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    space = result.length() > 0;
+                } else {
+                    if (space) result.append(' ');
+                    result.append(c);
+                    space = false;
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    private static int[] buildFailure(char[] pattern) {
+        int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[k] != pattern[i]) k = failure[k - 1];
+            if (pattern[k] == pattern[i]) k++;
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
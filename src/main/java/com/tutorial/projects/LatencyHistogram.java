@@ -0,0 +1,226 @@
+package com.tutorial.projects;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency Histogram - Lock-free log-bucketed histogram of nanosecond values
+ *
+ * Every power of two is split into 16 linear sub-buckets, so any recorded
+ * value is reported with at most 1/16 (6.25%) relative error, from
+ * nanoseconds up to centuries, in 976 fixed buckets (under 8 KB).
+ *
+ * Recording is one index computation (a leading-zero count and a shift)
+ * and one atomic increment; there are no locks and no allocation, so
+ * many threads can record into the same histogram on a hot path.
+ * Percentiles are computed by scanning the buckets when they are read.
+ *
+ * LEARNING OBJECTIVES:
+ * - Use log-linear bucketing to bound relative error
+ * - Record metrics lock-free with AtomicLongArray
+ * - Compute percentiles from a bucketed distribution
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Record one value in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(nanos));
+    }
+
+    /**
+     * Number of recorded values
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Value at the given percentile (0-100) in nanoseconds, 0 if empty.
+     * Reported as the upper bound of the bucket holding that value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        addCountsTo(snapshot);
+        return valueAtPercentile(snapshot, percentile);
+    }
+
+    /**
+     * Add the bucket counts to counts (bucketCount() long). The difference
+     * of two such snapshots is the histogram of the values in between.
+     */
+    void addCountsTo(long[] counts) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += this.counts.get(i);
+        }
+    }
+
+    static int bucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * Percentile of a bucket count snapshot, 0 if it is empty
+     */
+    static long valueAtPercentile(long[] snapshot, double percentile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        rank = Math.max(1, Math.min(total, rank));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Largest recorded value (bucket upper bound), 0 if empty
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) return bucketUpperBound(i);
+        }
+        return 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Format nanoseconds with a readable unit
+     */
+    public static String format(long nanos) {
+        if (nanos < 10_000) return nanos + "ns";
+        if (nanos < 10_000_000) return String.format("%.1fus", nanos / 1e3);
+        if (nanos < 10_000_000_000L) return String.format("%.1fms", nanos / 1e6);
+        return String.format("%.1fs", nanos / 1e9);
+    }
+
+    /**
+     * Cost of recording, alone and as ThreadManager does it per task:
+     * the submit path reads the clock and looks up the task type, the run
+     * path reads the clock twice and updates two histograms.
+     *
+     * Usage: java LatencyHistogram [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int iterations = 20_000_000;
+
+        System.out.println("=== Latency Histogram Overhead ===");
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram wait = new LatencyHistogram();
+        LatencyHistogram execution = new LatencyHistogram();
+        ConcurrentHashMap<String, LatencyHistogram> types = new ConcurrentHashMap<>();
+        types.put("fetch", wait);
+
+        for (int round = 0; round < 3; round++) {
+            recordLoop(histogram, iterations);
+            submitPathLoop(types, iterations);
+            runPathLoop(wait, execution, 0, iterations);
+        }
+
+        long start = System.nanoTime();
+        recordLoop(histogram, iterations);
+        report("record(), 1 thread", start, iterations);
+
+        start = System.nanoTime();
+        long clock = 0;
+        for (int i = 0; i < iterations; i++) {
+            clock += System.nanoTime();
+        }
+        report("System.nanoTime() alone", start, iterations);
+
+        start = System.nanoTime();
+        clock += submitPathLoop(types, iterations);
+        report("Submit path (type lookup + clock read)", start, iterations);
+
+        start = System.nanoTime();
+        runPathLoop(wait, execution, clock, iterations);
+        report("Run path (2 clock reads + 2 records)", start, iterations);
+
+        LatencyHistogram shared = new LatencyHistogram();
+        CountDownLatch done = new CountDownLatch(threads);
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                recordLoop(shared, iterations / threads);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        report("record(), " + threads + " threads on one histogram (wall clock)", start, iterations);
+
+        System.out.println("\nRecorded values p50/p99/p999: " + format(histogram.getValueAtPercentile(50))
+            + " / " + format(histogram.getValueAtPercentile(99))
+            + " / " + format(histogram.getValueAtPercentile(99.9)));
+    }
+
+    private static void report(String name, long start, int iterations) {
+        System.out.printf("%-58s %6.1f ns/op%n", name + ":", (System.nanoTime() - start) / (double) iterations);
+    }
+
+    private static void recordLoop(LatencyHistogram histogram, int iterations) {
+        long value = 1;
+        for (int i = 0; i < iterations; i++) {
+            value = value * 6364136223846793005L + 1442695040888963407L;
+            histogram.record((value >>> 40) & 0xFFFFFF);
+        }
+    }
+
+    private static long submitPathLoop(ConcurrentHashMap<String, LatencyHistogram> types,
+                                       int iterations) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += System.nanoTime() + types.get("fetch").hashCode();
+        }
+        return sum;
+    }
+
+    private static void runPathLoop(LatencyHistogram wait, LatencyHistogram execution, long submitted,
+                                    int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            wait.record(started - submitted);
+            execution.record(System.nanoTime() - started);
+        }
+    }
+}
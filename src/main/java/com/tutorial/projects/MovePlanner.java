@@ -0,0 +1,432 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Move Planner - Batched, Resumable File Moves for FileOrganizer
+ *
+ * Instead of creating directories and moving files one by one inside a loop,
+ * the planner works in three stages:
+ *
+ * 1. Plan: compute every (source, target) pair up front and drop conflicts
+ * 2. Prepare: create each target directory exactly once
+ * 3. Execute: run the moves in parallel in chunks
+ *
+ * Moves never replace an existing file, even one that appears after planning:
+ * on the same file system a file is hard-linked under its new name (which
+ * fails atomically if the name is taken) and the old name is removed. Across
+ * file systems it is copied with FileChannel.transferTo and the copy is
+ * linked into place the same way. A target that exists at move time is
+ * skipped and recorded as a collision. A journal in the source directory
+ * records the plan and every completed, skipped or permanently failed move
+ * (source gone, access denied), so an interrupted run can be resumed and
+ * the journal is removed once no retryable move is left; planning again
+ * replaces the journal.
+ *
+ * LEARNING OBJECTIVES:
+ * - Separate planning from execution for bulk file operations
+ * - Use atomic moves and zero-copy channel transfers
+ * - Make long-running batch jobs resumable with a journal
+ * - Parallelize I/O-bound work with an ExecutorService
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class MovePlanner {
+    static final String JOURNAL_NAME = ".organizer-journal";
+    private static final int CHUNK_SIZE = 256;
+
+    private final Path source;
+    private final Path journal;
+    private final List<Move> moves;
+    private final Set<Path> directories;
+    private final int skipped;
+    private final BitSet alreadyDone;
+    private final boolean resumed;
+    private final Set<Path> crossDevice = new HashSet<>();
+
+    private final AtomicInteger moved = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger retryable = new AtomicInteger();
+    private final AtomicInteger copied = new AtomicInteger();
+    private final AtomicInteger collisions = new AtomicInteger();
+
+    private MovePlanner(Path source, List<Move> moves, Set<Path> directories, int skipped, BitSet alreadyDone,
+                        boolean resumed) {
+        this.source = source;
+        this.journal = source.resolve(JOURNAL_NAME);
+        this.moves = moves;
+        this.directories = directories;
+        this.skipped = skipped;
+        this.alreadyDone = alreadyDone;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Plan the moves for grouped files: each group goes into
+     * source/dirName(group). Targets that already exist or that another
+     * planned move claims are skipped, matching the one-by-one behaviour.
+     */
+    public static MovePlanner plan(Path source, Map<String, List<Path>> groups, Function<String, String> dirName) {
+        List<Move> moves = new ArrayList<>();
+        Set<Path> directories = new LinkedHashSet<>();
+        Set<Path> claimedTargets = new HashSet<>();
+        int skipped = 0;
+
+        for (Map.Entry<String, List<Path>> group : groups.entrySet()) {
+            Path dir = source.resolve(dirName.apply(group.getKey()));
+
+            for (Path file : group.getValue()) {
+                if (file.getFileName().toString().equals(JOURNAL_NAME)) continue;
+
+                Path target = dir.resolve(file.getFileName());
+                if (target.equals(file) || !claimedTargets.add(target) || Files.exists(target)) {
+                    skipped++;
+                    continue;
+                }
+                directories.add(dir);
+                moves.add(new Move(file, target));
+            }
+        }
+
+        return new MovePlanner(source, moves, directories, skipped, new BitSet(), false);
+    }
+
+    /**
+     * Load the journal left behind by an interrupted run, or null if there is none
+     */
+    public static MovePlanner resume(Path source) throws IOException {
+        Path journal = source.resolve(JOURNAL_NAME);
+        if (!Files.exists(journal)) return null;
+
+        List<Move> moves = new ArrayList<>();
+        Set<Path> directories = new LinkedHashSet<>();
+        BitSet done = new BitSet();
+        boolean planComplete = false;
+
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("END")) {
+                    planComplete = true;
+                } else if (line.startsWith("M\t")) {
+                    String[] parts = line.split("\t", 3);
+                    Move move = new Move(Paths.get(parts[1]), Paths.get(parts[2]));
+                    moves.add(move);
+                    directories.add(move.target.getParent());
+                } else if (line.startsWith("D\t") || line.startsWith("S\t") || line.startsWith("F\t")) {
+                    done.set(Integer.parseInt(line.substring(2)));
+                }
+            }
+        }
+
+        if (!planComplete) {
+            // The plan was never fully written, so no move was started
+            Files.delete(journal);
+            return null;
+        }
+
+        return new MovePlanner(source, moves, directories, 0, done, true);
+    }
+
+    /**
+     * Create the directories once, then move everything in parallel
+     */
+    public void execute(int parallelism) throws IOException {
+        writePlan();
+
+        FileStore sourceStore = Files.getFileStore(source);
+        for (Path dir : directories) {
+            Files.createDirectories(dir);
+            if (!Files.getFileStore(dir).equals(sourceStore)) {
+                crossDevice.add(dir);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (BufferedWriter log = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND)) {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int start = 0; start < moves.size(); start += CHUNK_SIZE) {
+                int from = start;
+                int to = Math.min(start + CHUNK_SIZE, moves.size());
+                futures.add(executor.submit(() -> executeChunk(from, to, log)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while moving files");
+        } catch (ExecutionException e) {
+            throw new IOException("Error executing move plan", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        if (retryable.get() == 0) {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    private void executeChunk(int from, int to, BufferedWriter log) {
+        StringBuilder completed = new StringBuilder();
+
+        for (int i = from; i < to; i++) {
+            if (alreadyDone.get(i)) continue;
+
+            Move move = moves.get(i);
+            try {
+                if (!Files.exists(move.source) && Files.exists(move.target)) {
+                    // Finished by the interrupted run before it could journal it
+                    moved.incrementAndGet();
+                } else {
+                    moveFile(move.source, move.target);
+                    moved.incrementAndGet();
+                }
+                completed.append("D\t").append(i).append('\n');
+            } catch (FileAlreadyExistsException e) {
+                // The target appeared after planning: never overwrite it
+                collisions.incrementAndGet();
+                completed.append("S\t").append(i).append('\n');
+                System.err.println("Skipped " + move.source + ": " + move.target + " already exists");
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                if (e instanceof AccessDeniedException || !Files.exists(move.source)) {
+                    // Retrying cannot help: journal it so a resume moves on
+                    completed.append("F\t").append(i).append('\n');
+                } else {
+                    retryable.incrementAndGet();
+                }
+                System.err.println("Error moving " + move.source + ": " + e.getMessage());
+            }
+        }
+
+        // One journal write per chunk keeps the log cheap
+        synchronized (log) {
+            try {
+                log.write(completed.toString());
+                log.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing move journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rename on the same file system, channel copy across devices; never
+     * replaces an existing target (FileAlreadyExistsException instead)
+     */
+    private void moveFile(Path from, Path to) throws IOException {
+        if (crossDevice.contains(to.getParent())) {
+            copyAcrossDevices(from, to);
+            copied.incrementAndGet();
+        } else {
+            renameNoReplace(from, to);
+        }
+    }
+
+    /**
+     * Hard-link the file under its new name, then drop the old name. Unlike
+     * Files.move(ATOMIC_MOVE), the link fails if the target already exists.
+     */
+    private static void renameNoReplace(Path from, Path to) throws IOException {
+        try {
+            Files.createLink(to, from);
+        } catch (FileAlreadyExistsException e) {
+            // An interrupted run may have linked the file but not removed the source
+            if (!Files.isSameFile(from, to)) throw e;
+        } catch (UnsupportedOperationException e) {
+            moveWithoutLink(from, to);
+            return;
+        } catch (FileSystemException e) {
+            // Anything else (source gone, access denied...) is a real failure
+            if (!linksUnsupported(e)) throw e;
+            moveWithoutLink(from, to);
+            return;
+        }
+        Files.delete(from);
+    }
+
+    /**
+     * No hard links here: a plain move, which refuses an existing target
+     * but checks it just before renaming
+     */
+    private static void moveWithoutLink(Path from, Path to) throws IOException {
+        Files.move(from, to);
+    }
+
+    /**
+     * True if link() failed because the file system cannot hard-link these
+     * files (EOPNOTSUPP, EPERM on file systems such as FAT, EXDEV), not
+     * because of the files themselves. Those errors have no subclass of
+     * their own, so the OS reason string is all there is to go on.
+     */
+    private static boolean linksUnsupported(FileSystemException e) {
+        if (e.getClass() != FileSystemException.class || e.getReason() == null) return false;
+        String reason = e.getReason().toLowerCase(Locale.ROOT);
+        return reason.contains("not supported") || reason.contains("not permitted")
+            || reason.contains("cross-device");
+    }
+
+    private static void copyAcrossDevices(Path from, Path to) throws IOException {
+        Path temp = to.resolveSibling("." + to.getFileName() + ".part");
+
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.force(true);
+        }
+
+        // Keep the timestamp so organize-by-date still sees the original date
+        Files.setLastModifiedTime(temp, Files.getLastModifiedTime(from));
+        try {
+            renameNoReplace(temp, to);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.delete(from);
+    }
+
+    /**
+     * Persist the full plan before the first move so a crash can be resumed.
+     * A new plan replaces any earlier journal, whose move indices would no
+     * longer match; a resumed plan keeps appending to its own journal.
+     */
+    private void writePlan() throws IOException {
+        if (resumed) return;
+
+        Path temp = source.resolve(JOURNAL_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Move move : moves) {
+                writer.write("M\t" + move.source.toAbsolutePath() + "\t" + move.target.toAbsolutePath());
+                writer.newLine();
+            }
+            writer.write("END");
+            writer.newLine();
+        }
+        Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public int getPlannedMoves() { return moves.size(); }
+    public int getDirectoryCount() { return directories.size(); }
+    public int getSkipped() { return skipped; }
+    public int getMoved() { return moved.get(); }
+    public int getFailed() { return failed.get(); }
+    /** Failed moves a resumed run will try again; the others are journaled as final */
+    public int getRetryable() { return retryable.get(); }
+    public int getCopiedAcrossDevices() { return copied.get(); }
+    /** Moves skipped because the target appeared between planning and moving */
+    public int getCollisions() { return collisions.get(); }
+
+    /**
+     * A single planned move
+     */
+    private static class Move {
+        private final Path source;
+        private final Path target;
+
+        Move(Path source, Path target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    /**
+     * Before/after timings: one-by-one moves versus the planner.
+     *
+     * Usage: java MovePlanner [fileCount] [parallelism]
+     */
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Move Planner Benchmark ===");
+        System.out.println("Files: " + fileCount + ", parallelism: " + parallelism);
+
+        // Before: directory creation and Files.move inside the loop
+        Path before = createSampleTree(fileCount);
+        Map<String, List<Path>> groups = groupByType(before);
+        long start = System.nanoTime();
+        for (Map.Entry<String, List<Path>> group : groups.entrySet()) {
+            Path dir = before.resolve(group.getKey());
+            Files.createDirectories(dir);
+            for (Path file : group.getValue()) {
+                Path target = dir.resolve(file.getFileName());
+                if (!Files.exists(target)) {
+                    Files.move(file, target);
+                }
+            }
+        }
+        long sequentialMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        deleteTree(before);
+
+        // After: plan once, create directories once, move in parallel
+        Path after = createSampleTree(fileCount);
+        groups = groupByType(after);
+        start = System.nanoTime();
+        MovePlanner planner = MovePlanner.plan(after, groups, type -> type);
+        long planMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        planner.execute(parallelism);
+        long plannedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        deleteTree(after);
+
+        System.out.println("One-by-one moves: " + sequentialMs + " ms");
+        System.out.println("Planned moves: " + plannedMs + " ms (planning " + planMs + " ms)");
+        System.out.println("Moved: " + planner.getMoved() + ", directories: " + planner.getDirectoryCount());
+        System.out.printf("Speedup: %.2fx%n", (double) sequentialMs / Math.max(1, plannedMs));
+    }
+
+    private static Path createSampleTree(int fileCount) throws IOException {
+        String[] extensions = {"jpg", "mp4", "mp3", "pdf", "zip", "exe", "dat"};
+        Path dir = Files.createTempDirectory("move-planner");
+        byte[] content = "x".getBytes();
+        for (int i = 0; i < fileCount; i++) {
+            Files.write(dir.resolve("file_" + i + "." + extensions[i % extensions.length]), content);
+        }
+        return dir;
+    }
+
+    private static Map<String, List<Path>> groupByType(Path dir) throws IOException {
+        Map<String, List<Path>> groups = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                groups.computeIfAbsent(FileOrganizer.getFileType(file), k -> new ArrayList<>()).add(file);
+            }
+        }
+        return groups;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * NDJSON Result Sink - Newline-delimited JSON writer for scraped records
+ *
+ * Every record becomes one self-contained JSON line, so a file can be
+ * processed line by line, appended to across runs and is still readable
+ * up to the last complete line after a crash.
+ *
+ * Each record is serialized into a reused StringBuilder and written with a
+ * single call to a large BufferedWriter.
+ *
+ * LEARNING OBJECTIVES:
+ * - Stream records to disk instead of collecting them in memory
+ * - Escape strings correctly for JSON
+ * - Reuse buffers on a hot write path
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class NdjsonResultSink implements ResultSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(1024);
+    private long records;
+    private long charsWritten;
+
+    /**
+     * Append to the given file, creating it if needed
+     */
+    public NdjsonResultSink(Path file) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+    }
+
+    public NdjsonResultSink(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void write(WebScraper.ScrapedData data) throws IOException {
+        line.setLength(0);
+        appendJson(line, data);
+        line.append('\n');
+        writer.append(line);
+        records++;
+        charsWritten += line.length();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    public synchronized long getRecords() { return records; }
+    public synchronized long getCharsWritten() { return charsWritten; }
+
+    /**
+     * A record as a single JSON line (without the trailing newline)
+     */
+    public static String toJson(WebScraper.ScrapedData data) {
+        StringBuilder json = new StringBuilder(512);
+        appendJson(json, data);
+        return json.toString();
+    }
+
+    static void appendJson(StringBuilder json, WebScraper.ScrapedData data) {
+        json.append('{');
+        appendField(json, "url", data.getUrl());
+        json.append(',');
+        appendField(json, "title", data.getTitle());
+        json.append(',');
+        appendField(json, "description", data.getDescription());
+        json.append(',');
+        appendArray(json, "headings", data.getHeadings());
+        json.append(',');
+        appendArray(json, "links", data.getLinks());
+        json.append(',');
+        appendArray(json, "images", data.getImages());
+        json.append(",\"containsKeyword\":").append(data.isContainsKeyword());
+        json.append(",\"timestamp\":").append(data.getTimestamp() == null ? 0 : data.getTimestamp().getTime());
+        // Hex string: 64-bit values do not survive JSON number parsing in every reader
+        json.append(",\"contentFingerprint\":\"").append(Long.toHexString(data.getContentFingerprint())).append('"');
+        json.append('}');
+    }
+
+    private static void appendField(StringBuilder json, String name, String value) {
+        json.append('"').append(name).append("\":");
+        appendString(json, value);
+    }
+
+    private static void appendArray(StringBuilder json, String name, List<String> values) {
+        json.append('"').append(name).append("\":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) json.append(',');
+            appendString(json, values.get(i));
+        }
+        json.append(']');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,33 @@
+package com.tutorial.projects;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Result Sink - Destination for scraped records
+ *
+ * WebScraper hands every extracted page to a sink as soon as it is
+ * produced instead of keeping all results in memory until the end of the
+ * crawl. Implementations:
+ *
+ * - NdjsonResultSink: one JSON object per line through a buffered writer
+ * - RotatingFileSink: NDJSON split over size-limited, optionally gzip'd files
+ * - AsyncResultSink: bounded queue in front of another sink, drained by a
+ *   single writer thread
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public interface ResultSink extends Closeable {
+
+    /**
+     * Write one record; may block when the sink applies backpressure
+     */
+    void write(WebScraper.ScrapedData data) throws IOException;
+
+    /**
+     * Push buffered records to the underlying storage
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,142 @@
+package com.tutorial.projects;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rotating File Sink - NDJSON split over size-limited, compressed files
+ *
+ * Records are written to prefix-00001.ndjson.gz, prefix-00002.ndjson.gz, ...
+ * A new file is started once the current one has received maxBytesPerFile
+ * of uncompressed JSON (counted in characters, i.e. bytes for ASCII). The
+ * file being written carries a ".part" suffix and is renamed when it is
+ * complete, so readers only ever pick up finished files. Numbering
+ * continues after the highest existing file, so a restarted crawl never
+ * overwrites earlier output.
+ *
+ * Scraped pages are repetitive JSON and typically compress several times
+ * over with gzip.
+ *
+ * LEARNING OBJECTIVES:
+ * - Rotate output files by size
+ * - Publish files atomically with a rename
+ * - Stack buffering and compression streams
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class RotatingFileSink implements ResultSink {
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxBytesPerFile;
+    private final boolean compress;
+
+    private NdjsonResultSink current;
+    private Path currentPath;
+    private int sequence;
+    private int filesCompleted;
+    private long recordsWritten;
+    private long uncompressedBytes;
+    private long bytesOnDisk;
+
+    public RotatingFileSink(Path directory, String prefix, long maxBytesPerFile, boolean compress) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxBytesPerFile = maxBytesPerFile;
+        this.compress = compress;
+        Files.createDirectories(directory);
+        this.sequence = highestSequence();
+    }
+
+    @Override
+    public synchronized void write(WebScraper.ScrapedData data) throws IOException {
+        if (current == null) {
+            openNext();
+        }
+        current.write(data);
+        recordsWritten++;
+        if (current.getCharsWritten() >= maxBytesPerFile) {
+            finishCurrent();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            finishCurrent();
+        }
+    }
+
+    public synchronized int getFilesCompleted() { return filesCompleted; }
+    public synchronized long getRecordsWritten() { return recordsWritten; }
+    public synchronized long getUncompressedBytes() { return uncompressedBytes; }
+
+    /**
+     * Size of all completed files
+     */
+    public synchronized long getBytesOnDisk() { return bytesOnDisk; }
+
+    private void openNext() throws IOException {
+        sequence++;
+        currentPath = directory.resolve(fileName(sequence) + PART_SUFFIX);
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(currentPath), BUFFER_SIZE);
+        if (compress) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    // Fastest level: still compresses well, keeps the writer ahead of producers
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        current = new NdjsonResultSink(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            BUFFER_SIZE));
+    }
+
+    private void finishCurrent() throws IOException {
+        uncompressedBytes += current.getCharsWritten();
+        current.close();
+        current = null;
+
+        Path finished = directory.resolve(fileName(sequence));
+        Files.move(currentPath, finished, StandardCopyOption.ATOMIC_MOVE);
+        bytesOnDisk += Files.size(finished);
+        filesCompleted++;
+    }
+
+    private String fileName(int number) {
+        return String.format("%s-%05d.ndjson%s", prefix, number, compress ? ".gz" : "");
+    }
+
+    private int highestSequence() throws IOException {
+        int highest = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(prefix + "-")) continue;
+                int end = name.indexOf('.', prefix.length() + 1);
+                if (end < 0) continue;
+                try {
+                    highest = Math.max(highest, Integer.parseInt(name.substring(prefix.length() + 1, end)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return highest;
+    }
+}
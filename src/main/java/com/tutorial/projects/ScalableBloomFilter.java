@@ -0,0 +1,157 @@
+package com.tutorial.projects;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable Bloom Filter - Lock-free membership filter over 64-bit fingerprints
+ *
+ * A plain Bloom filter must be sized up front. A scalable Bloom filter
+ * starts small and appends a new, larger filter (with a tighter false
+ * positive rate) whenever the current one is full, so the overall false
+ * positive rate stays bounded no matter how many items are added.
+ *
+ * An optional byte cap bounds the growth: once the next stage would not
+ * fit, the last stage keeps taking items and the false positive rate
+ * rises instead of the memory. There are still no false negatives.
+ *
+ * Bits live in AtomicLongArrays, so add() and mightContain() never lock.
+ * The k bit positions come from double hashing the two halves of the
+ * fingerprint, which is already well mixed.
+ *
+ * LEARNING OBJECTIVES:
+ * - Understand Bloom filter sizing (bits per item, hash count)
+ * - Grow a probabilistic structure without rebuilding it
+ * - Build lock-free data structures with atomic arrays
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class ScalableBloomFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final CopyOnWriteArrayList<Filter> filters = new CopyOnWriteArrayList<>();
+    private final long maxBytes;
+    private volatile Filter current;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this(initialCapacity, falsePositiveRate, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxBytes cap on all bit arrays together; the first stage is
+     *                 always allocated, later ones only while they fit
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate, long maxBytes) {
+        this.maxBytes = maxBytes;
+        current = new Filter(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO));
+        filters.add(current);
+    }
+
+    /**
+     * True if the fingerprint may have been added, false if it definitely was not
+     */
+    public boolean mightContain(long fingerprint) {
+        for (Filter filter : filters) {
+            if (filter.mightContain(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(long fingerprint) {
+        Filter filter = current;
+        filter.add(fingerprint);
+
+        if (filter.count.incrementAndGet() == filter.capacity) {
+            // Exactly one thread sees the capacity being reached and grows the filter
+            long capacity = filter.capacity * GROWTH_FACTOR;
+            double falsePositiveRate = filter.falsePositiveRate * TIGHTENING_RATIO;
+            if (getMemoryBytes() + Filter.words(capacity, falsePositiveRate) * Long.BYTES <= maxBytes) {
+                Filter next = new Filter(capacity, falsePositiveRate);
+                filters.add(next);
+                current = next;
+            }
+        }
+    }
+
+    /**
+     * Total size of all bit arrays in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Filter filter : filters) {
+            bytes += (long) filter.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public int getFilterCount() {
+        return filters.size();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * One fixed-size Bloom filter
+     */
+    private static class Filter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final AtomicLong count = new AtomicLong();
+
+        Filter(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+
+            int words = words(capacity, falsePositiveRate);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        /**
+         * Bit array size: m = -n ln(p) / (ln 2)^2 bits, k = (m / n) ln 2
+         */
+        static int words(long capacity, double falsePositiveRate) {
+            long bitsNeeded = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            return (int) Math.min(Integer.MAX_VALUE - 8, (bitsNeeded + 63) / 64);
+        }
+
+        void add(long fingerprint) {
+            long h1 = fingerprint;
+            long h2 = (fingerprint >>> 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+
+                long value = bits.get(word);
+                while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask)) {
+                    value = bits.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(long fingerprint) {
+            long h1 = fingerprint;
+            long h2 = (fingerprint >>> 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.tutorial.projects;
+
+/**
+ * SimHash - 64-bit content fingerprints for near-duplicate detection
+ *
+ * Ordinary hashes change completely when one character changes. SimHash
+ * is built so that similar documents get fingerprints that differ in only
+ * a few bits:
+ *
+ * 1. The text is split into overlapping word shingles (3 words by default)
+ * 2. Every shingle is hashed to 64 bits
+ * 3. For each bit position, count the shingle hashes that have the bit set
+ * 4. The fingerprint has a 1 wherever more than half of the shingles had it
+ *
+ * Two pages are near-duplicates when the Hamming distance between their
+ * fingerprints is small (typically 3 bits or fewer).
+ *
+ * The Builder is fed one word at a time, so it can run inside a streaming
+ * parser without keeping the page text around.
+ *
+ * LEARNING OBJECTIVES:
+ * - Understand locality-sensitive hashing
+ * - Compute a fingerprint incrementally from a token stream
+ * - Compare fingerprints with XOR and Long.bitCount
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public final class SimHash {
+    public static final int DEFAULT_SHINGLE_SIZE = 3;
+
+    private SimHash() {
+    }
+
+    /**
+     * Number of differing bits
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Incremental fingerprint over a stream of words
+     */
+    public static class Builder {
+        // Bit-sliced counters: bit b of planes[i] is bit i of the count for
+        // hash bit b, so adding a shingle is a short ripple-carry add
+        // instead of 64 separate counter updates
+        private final long[] planes = new long[32];
+        private final long[] window;
+        private int words;
+        private int shingles;
+
+        public Builder() {
+            this(DEFAULT_SHINGLE_SIZE);
+        }
+
+        public Builder(int shingleSize) {
+            this.window = new long[shingleSize];
+        }
+
+        /**
+         * Add one lower-cased word
+         */
+        public void addWord(CharSequence word) {
+            addWordHash(hashWord(word));
+        }
+
+        public void addWordHash(long wordHash) {
+            window[words % window.length] = wordHash;
+            words++;
+            if (words >= window.length) {
+                addShingle(window.length);
+            }
+        }
+
+        /**
+         * Fingerprint of everything added so far; 0 for empty input
+         */
+        public long build() {
+            if (shingles == 0 && words > 0) {
+                // Fewer words than one shingle: use them all as a single shingle
+                addShingle(words);
+            }
+            long fingerprint = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                long ones = 0;
+                for (int i = 0; i < planes.length; i++) {
+                    ones |= ((planes[i] >>> bit) & 1) << i;
+                }
+                // Set where more shingles had the bit set than clear
+                if (ones * 2 > shingles) {
+                    fingerprint |= 1L << bit;
+                }
+            }
+            return fingerprint;
+        }
+
+        public int getWordCount() {
+            return words;
+        }
+
+        private void addShingle(int size) {
+            shingles++;
+            // Combine the last `size` words in order
+            long hash = 0x9e3779b97f4a7c15L;
+            int index = words - size;
+            for (int i = 0; i < size; i++, index++) {
+                hash = (hash ^ window[index % window.length]) * 0x100000001b3L;
+            }
+            hash = mix(hash);
+
+            long carry = hash;
+            for (int i = 0; carry != 0; i++) {
+                long next = planes[i] & carry;
+                planes[i] ^= carry;
+                carry = next;
+            }
+        }
+    }
+
+    /**
+     * FNV-1a seed for hashing a word one character at a time
+     */
+    static final long WORD_HASH_SEED = 0xcbf29ce484222325L;
+
+    static long hashWordChar(long hash, char c) {
+        return (hash ^ c) * 0x100000001b3L;
+    }
+
+    static long hashWord(CharSequence word) {
+        long hash = WORD_HASH_SEED;
+        for (int i = 0; i < word.length(); i++) {
+            hash = hashWordChar(hash, word.charAt(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,209 @@
+package com.tutorial.projects;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SimHash Index - Banded index for fast near-duplicate lookups
+ *
+ * Comparing a new fingerprint against every stored one is O(n). The index
+ * splits each 64-bit fingerprint into 4 bands of 16 bits. If two
+ * fingerprints differ in at most 3 bits, at least one band must be
+ * identical (pigeonhole principle), so only fingerprints that share a band
+ * value are compared. With random fingerprints a band bucket holds about
+ * n / 65536 entries.
+ *
+ * A 16-bit band value indexes its bucket directly: each band is an array
+ * of 65536 growable long arrays (about 1 MB of references for all four
+ * bands), so neither the band values nor the fingerprints are boxed.
+ *
+ * LEARNING OBJECTIVES:
+ * - Turn a Hamming-distance search into exact hash lookups
+ * - Apply the pigeonhole principle to index design
+ * - Store primitive values compactly without boxing
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class SimHashIndex {
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private final int maxDistance;
+    private final LongList[][] bands = new LongList[BANDS][1 << BAND_BITS];
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private int size;
+
+    /**
+     * @param maxDistance Hamming distance that still counts as a near-duplicate (at most 3)
+     */
+    public SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance >= BANDS) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + (BANDS - 1));
+        }
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Add the fingerprint unless a near-duplicate is already indexed.
+     * Returns true if it was added (i.e. the content is new).
+     */
+    public synchronized boolean addIfUnique(long fingerprint) {
+        checked.incrementAndGet();
+        if (findNearDuplicate(fingerprint).isPresent()) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            LongList[] buckets = bands[band];
+            int value = bandValue(fingerprint, band);
+            if (buckets[value] == null) {
+                buckets[value] = new LongList();
+            }
+            buckets[value].add(fingerprint);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * An indexed fingerprint within maxDistance, or empty
+     */
+    public synchronized OptionalLong findNearDuplicate(long fingerprint) {
+        for (int band = 0; band < BANDS; band++) {
+            LongList candidates = bands[band][bandValue(fingerprint, band)];
+            if (candidates == null) continue;
+
+            for (int i = 0; i < candidates.size; i++) {
+                if (SimHash.distance(fingerprint, candidates.values[i]) <= maxDistance) {
+                    return OptionalLong.of(candidates.values[i]);
+                }
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    public synchronized int size() { return size; }
+    public long getChecked() { return checked.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+
+    /**
+     * Fraction of checked fingerprints that were near-duplicates
+     */
+    public double getDuplicateRate() {
+        long total = checked.get();
+        return total == 0 ? 0 : (double) duplicates.get() / total;
+    }
+
+    private static int bandValue(long fingerprint, int band) {
+        return (int) ((fingerprint >>> (band * BAND_BITS)) & ((1L << BAND_BITS) - 1));
+    }
+
+    /**
+     * Growable array of longs
+     */
+    private static class LongList {
+        private long[] values = new long[2];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Dedupe rate and per-page fingerprinting cost on a corpus with mirrors
+     * and lightly edited copies.
+     *
+     * Usage: java SimHashIndex [uniquePages] [variantsPerPage]
+     */
+    public static void main(String[] args) throws Exception {
+        int uniquePages = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int variants = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        System.out.println("=== SimHash Near-Duplicate Benchmark ===");
+        System.out.println("Unique pages: " + uniquePages + ", near-duplicate variants per page: " + variants);
+
+        Random random = new Random(7);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "word" + i;
+        }
+
+        List<byte[]> pages = new ArrayList<>();
+        for (int p = 0; p < uniquePages; p++) {
+            String[] words = new String[800];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = vocabulary[random.nextInt(vocabulary.length)];
+            }
+            pages.add(toHtml(p, words, "Original"));
+
+            // Mirrors with different boilerplate; variant v also has v edited words
+            for (int v = 0; v < variants; v++) {
+                String[] edited = words.clone();
+                for (int e = 0; e < v; e++) {
+                    edited[random.nextInt(edited.length)] = vocabulary[random.nextInt(vocabulary.length)];
+                }
+                pages.add(toHtml(p, edited, "Mirror " + v));
+            }
+        }
+        Collections.shuffle(pages, random);
+
+        HtmlStreamExtractor plain = new HtmlStreamExtractor();
+        plain.setFingerprintContent(false);
+        HtmlStreamExtractor fingerprinting = new HtmlStreamExtractor();
+
+        // Warm up, then time extraction with and without fingerprinting
+        for (int round = 0; round < 3; round++) {
+            timeExtraction(plain, pages);
+            timeExtraction(fingerprinting, pages);
+        }
+        long plainNs = timeExtraction(plain, pages);
+        long fingerprintNs = timeExtraction(fingerprinting, pages);
+
+        SimHashIndex index = new SimHashIndex(3);
+        long start = System.nanoTime();
+        for (byte[] page : pages) {
+            WebScraper.ScrapedData data = fingerprinting.extract("http://example.com/",
+                new java.io.ByteArrayInputStream(page), java.nio.charset.StandardCharsets.UTF_8, "");
+            index.addIfUnique(data.getContentFingerprint());
+        }
+        long indexedNs = System.nanoTime() - start;
+
+        int expectedDuplicates = uniquePages * variants;
+        System.out.println("\nPages: " + pages.size());
+        System.out.printf("Near-duplicates skipped: %d (%.1f%%), expected %d%n",
+            index.getDuplicates(), index.getDuplicateRate() * 100, expectedDuplicates);
+        System.out.printf("Extraction without fingerprint: %.1f us/page%n", plainNs / 1000.0 / pages.size());
+        System.out.printf("Extraction with fingerprint: %.1f us/page%n", fingerprintNs / 1000.0 / pages.size());
+        System.out.printf("Fingerprinting cost: %.1f us/page%n", (fingerprintNs - plainNs) / 1000.0 / pages.size());
+        System.out.printf("Extract + index lookup: %.1f us/page%n", indexedNs / 1000.0 / pages.size());
+        System.out.println("Total time: " + TimeUnit.NANOSECONDS.toMillis(indexedNs) + " ms");
+    }
+
+    private static long timeExtraction(HtmlStreamExtractor extractor, List<byte[]> pages) throws Exception {
+        long start = System.nanoTime();
+        for (byte[] page : pages) {
+            extractor.extract("http://example.com/", new java.io.ByteArrayInputStream(page),
+                java.nio.charset.StandardCharsets.UTF_8, "");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static byte[] toHtml(int page, String[] words, String boilerplate) {
+        StringBuilder html = new StringBuilder();
+        html.append("<html><head><title>Page ").append(page).append("</title></head><body>");
+        html.append("<nav><a href=\"/\">").append(boilerplate).append("</a></nav><p>");
+        for (String word : words) {
+            html.append(word).append(' ');
+        }
+        html.append("</p></body></html>");
+        return html.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.tutorial.projects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Web Scraper Benchmark - Compares WebScraper fetch engines
+ *
+ * Crawls a local StubWebSite that injects a fixed latency per request, once
+ * with the thread-pool engine and once with the async HttpClient engine,
+ * and reports crawl time and pages per second.
+ *
+ * Usage: java WebScraperBenchmark [pages] [latencyMs] [poolThreads] [asyncConcurrency]
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class WebScraperBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int poolThreads = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int asyncConcurrency = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        System.out.println("=== Web Scraper Engine Benchmark ===");
+        System.out.println("Pages: " + pages + ", latency: " + latencyMs + " ms");
+
+        try (StubWebSite site = StubWebSite.start(pages, 10, latencyMs)) {
+            runEngine(site, pages, WebScraper.FetchEngine.THREAD_POOL, poolThreads);
+            runEngine(site, pages, WebScraper.FetchEngine.ASYNC_HTTP_CLIENT, asyncConcurrency);
+        }
+    }
+
+    private static void runEngine(StubWebSite site, int pages, WebScraper.FetchEngine engine, int concurrency) {
+        WebScraper scraper = new WebScraper(concurrency, Integer.MAX_VALUE, engine);
+        scraper.setVerbose(false);
+        scraper.setMaxPages(pages);
+        // One stub host: lift the per-host politeness limits to compare raw engine throughput
+        scraper.setPoliteness(0, concurrency);
+
+        long start = System.nanoTime();
+        scraper.scrape(site.pageUrl(0), "");
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        scraper.shutdown();
+
+        System.out.println("\n" + engine + " (concurrency " + concurrency + "):");
+        System.out.println("  Pages fetched: " + scraper.getVisitedCount());
+        System.out.println("  Near-duplicates skipped: " + scraper.getNearDuplicateCount());
+        System.out.println("  Time: " + elapsedMs + " ms");
+        System.out.printf("  Throughput: %.1f pages/sec%n", scraper.getVisitedCount() * 1000.0 / elapsedMs);
+    }
+}
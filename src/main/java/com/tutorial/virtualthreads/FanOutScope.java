@@ -0,0 +1,434 @@
+package com.tutorial.virtualthreads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fan-Out Scope - Structured scatter-gather on virtual threads
+ *
+ * Forks each subtask on its own virtual thread and joins them as a group,
+ * in the spirit of StructuredTaskScope (a preview API in Java 21):
+ *
+ * - allSuccessful: join() returns when every subtask has succeeded; the
+ *   first failure cancels the siblings and join() throws it at once
+ * - firstSuccess: join() returns as soon as any subtask succeeds and
+ *   cancels the rest; it throws only if all of them fail
+ * - Deadline: the whole scope has one deadline; when it passes, join()
+ *   cancels whatever is still running and throws TimeoutException
+ *
+ * Cancelling interrupts the subtask's virtual thread, so blocking calls in
+ * siblings stop early instead of running to completion for nothing.
+ * close() cancels anything left and waits for every forked thread to end,
+ * so no subtask outlives the try-with-resources block that created it.
+ *
+ * LEARNING OBJECTIVES:
+ * - Structure concurrent fan-out so subtasks never outlive their scope
+ * - Short-circuit on first failure or first success
+ * - Apply one deadline to a group of subtasks
+ * - Cancel siblings by interrupting their virtual threads
+ *
+ * KEY CONCEPTS:
+ * 1. Structured Concurrency: subtasks are confined to a lexical scope
+ * 2. Short-Circuiting: stop waiting as soon as the outcome is known
+ * 3. Cancellation: interrupting virtual threads blocked in I/O or sleep
+ *
+ * @author Rahul Kant Jha
+ * @version 1.0
+ * @since 2024
+ */
+public class FanOutScope<T> implements AutoCloseable {
+
+    /**
+     * When join() stops waiting
+     */
+    public enum Policy {
+        /** All subtasks must succeed; stop at the first failure */
+        ALL_SUCCESSFUL,
+        /** One success is enough; stop at the first success */
+        FIRST_SUCCESS
+    }
+
+    /**
+     * State of a forked subtask
+     */
+    public enum State { RUNNING, SUCCESS, FAILED, CANCELLED }
+
+    /**
+     * Handle to one forked subtask
+     */
+    public static class Subtask<T> {
+        private final Callable<T> task;
+        private volatile State state = State.RUNNING;
+        private volatile T result;
+        private volatile Throwable exception;
+        private volatile Thread thread;
+
+        private Subtask(Callable<T> task) {
+            this.task = task;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        /**
+         * Result of a successful subtask
+         */
+        public T get() {
+            if (state != State.SUCCESS) {
+                throw new IllegalStateException("Subtask state is " + state);
+            }
+            return result;
+        }
+
+        /**
+         * Exception of a failed subtask
+         */
+        public Throwable exception() {
+            if (state != State.FAILED) {
+                throw new IllegalStateException("Subtask state is " + state);
+            }
+            return exception;
+        }
+    }
+
+    private final Policy policy;
+    private final long deadlineNanos;
+    private final String name;
+    private final List<Subtask<T>> subtasks = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+    // Running subtasks, plus one until join() is called
+    private final AtomicInteger running = new AtomicInteger(1);
+    private volatile boolean shutdown;
+    private volatile Subtask<T> firstSuccess;
+    private volatile Throwable firstFailure;
+    private boolean joined;
+
+    private FanOutScope(Policy policy, Duration deadline, String name) {
+        this.policy = policy;
+        this.deadlineNanos = System.nanoTime() + deadline.toNanos();
+        this.name = name;
+    }
+
+    /**
+     * Scope that needs every subtask to succeed, within the deadline
+     */
+    public static <T> FanOutScope<T> allSuccessful(Duration deadline) {
+        return new FanOutScope<>(Policy.ALL_SUCCESSFUL, deadline, "fan-out");
+    }
+
+    /**
+     * Scope that needs any one subtask to succeed, within the deadline
+     */
+    public static <T> FanOutScope<T> firstSuccess(Duration deadline) {
+        return new FanOutScope<>(Policy.FIRST_SUCCESS, deadline, "first-success");
+    }
+
+    /**
+     * Start the task on a new virtual thread. After shutdown the subtask is
+     * cancelled without running.
+     */
+    public Subtask<T> fork(Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>(task);
+        lock.lock();
+        try {
+            if (joined) {
+                throw new IllegalStateException("Cannot fork after join");
+            }
+            subtasks.add(subtask);
+            if (shutdown) {
+                subtask.state = State.CANCELLED;
+                return subtask;
+            }
+            running.incrementAndGet();
+            subtask.thread = Thread.ofVirtual()
+                .name(name + "-" + subtasks.size())
+                .start(() -> run(subtask));
+        } finally {
+            lock.unlock();
+        }
+        return subtask;
+    }
+
+    private void run(Subtask<T> subtask) {
+        try {
+            T value = subtask.task.call();
+            subtask.result = value;
+            subtask.state = State.SUCCESS;
+            if (policy == Policy.FIRST_SUCCESS) {
+                settle(subtask, null);
+            }
+        } catch (Throwable e) {
+            if (shutdown && (e instanceof InterruptedException || Thread.currentThread().isInterrupted())) {
+                subtask.state = State.CANCELLED;
+            } else {
+                subtask.exception = e;
+                subtask.state = State.FAILED;
+                if (policy == Policy.ALL_SUCCESSFUL) {
+                    settle(null, e);
+                }
+            }
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                outcome.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Record the outcome that ends the scope (only the first one counts)
+     * and cancel the siblings
+     */
+    private void settle(Subtask<T> success, Throwable failure) {
+        lock.lock();
+        try {
+            if (firstSuccess != null || firstFailure != null) return;
+            firstSuccess = success;
+            firstFailure = failure;
+        } finally {
+            lock.unlock();
+        }
+        shutdown();
+    }
+
+    /**
+     * Cancel every subtask still running by interrupting its thread
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (shutdown) return;
+            shutdown = true;
+            for (Subtask<T> subtask : subtasks) {
+                Thread thread = subtask.thread;
+                if (subtask.state == State.RUNNING && thread != null) {
+                    thread.interrupt();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        outcome.complete(null);
+    }
+
+    /**
+     * Wait until the policy's outcome is known or the deadline passes
+     *
+     * @throws ExecutionException ALL_SUCCESSFUL: the first failure;
+     *         FIRST_SUCCESS: every subtask failed (the first failure is the cause)
+     * @throws TimeoutException the deadline passed; subtasks were cancelled
+     */
+    public void join() throws InterruptedException, ExecutionException, TimeoutException {
+        lock.lock();
+        try {
+            if (!joined) {
+                joined = true;
+                if (running.decrementAndGet() == 0) {
+                    outcome.complete(null);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            outcome.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            int unfinished = running.get();
+            shutdown();
+            throw new TimeoutException("Scope deadline passed with " + unfinished + " subtasks running");
+        }
+
+        if (policy == Policy.ALL_SUCCESSFUL && firstFailure != null) {
+            throw new ExecutionException(firstFailure);
+        }
+        if (policy == Policy.FIRST_SUCCESS && firstSuccess == null) {
+            Throwable cause = null;
+            for (Subtask<T> subtask : subtasks) {
+                if (subtask.state == State.FAILED) {
+                    cause = subtask.exception;
+                    break;
+                }
+            }
+            throw new ExecutionException("No subtask succeeded", cause);
+        }
+    }
+
+    /**
+     * ALL_SUCCESSFUL: results in fork order, after a successful join()
+     */
+    public List<T> results() {
+        List<T> results = new ArrayList<>(subtasks.size());
+        for (Subtask<T> subtask : subtasks) {
+            results.add(subtask.get());
+        }
+        return results;
+    }
+
+    /**
+     * FIRST_SUCCESS: result of the first subtask to succeed, after a successful join()
+     */
+    public T result() {
+        if (firstSuccess == null) {
+            throw new IllegalStateException("No subtask succeeded");
+        }
+        return firstSuccess.get();
+    }
+
+    /**
+     * Cancel what is still running and wait for all forked threads to end
+     */
+    @Override
+    public void close() {
+        shutdown();
+        boolean interrupted = false;
+        for (Subtask<T> subtask : subtasks) {
+            Thread thread = subtask.thread;
+            while (thread != null && thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Scatter-gather latency: waiting on futures one by one in submission
+     * order (the old waitForAllTasks) versus scopes that short-circuit.
+     *
+     * Usage: java FanOutScope [calls]
+     */
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Random random = new Random(7);
+        long[] latencies = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            latencies[i] = 100 + random.nextInt(400);
+        }
+        // The last call fails fast; the others take 100-500 ms
+        int failing = calls - 1;
+        latencies[failing] = 20;
+
+        System.out.println("=== Fan-Out Scope Benchmark ===");
+        System.out.println(calls + " downstream calls of 100-500 ms; call " + failing + " fails after 20 ms");
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            AtomicInteger finished = new AtomicInteger();
+
+            // 1. Join futures in order
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<CompletableFuture<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < calls; i++) {
+                    int call = i;
+                    futures.add(CompletableFuture.supplyAsync(
+                        () -> uncheckedCall(call, latencies[call], failing, finished), executor));
+                }
+                long failedAt = 0;
+                for (CompletableFuture<Integer> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        failedAt = System.nanoTime();
+                        break;
+                    }
+                }
+                if (report) {
+                    System.out.printf("%nFutures joined in order:%n  Failure seen after %d ms, calls run to completion: %d%n",
+                        TimeUnit.NANOSECONDS.toMillis(failedAt - start), finished.get());
+                }
+            }
+            if (report) {
+                System.out.printf("  Executor closed after %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+
+            // 2. Scope that shuts down on the first failure
+            finished.set(0);
+            start = System.nanoTime();
+            long failedAt = 0;
+            try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(Duration.ofSeconds(5))) {
+                for (int i = 0; i < calls; i++) {
+                    int call = i;
+                    scope.fork(() -> call(call, latencies[call], failing, finished));
+                }
+                try {
+                    scope.join();
+                } catch (ExecutionException e) {
+                    failedAt = System.nanoTime();
+                }
+            }
+            if (report) {
+                System.out.printf("%nallSuccessful scope:%n  Failure seen after %d ms, calls run to completion: %d%n",
+                    TimeUnit.NANOSECONDS.toMillis(failedAt - start), finished.get());
+                System.out.printf("  Scope closed after %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+
+            // 3. Replicated call: first success wins
+            finished.set(0);
+            start = System.nanoTime();
+            int winner;
+            try (FanOutScope<Integer> scope = FanOutScope.firstSuccess(Duration.ofSeconds(5))) {
+                for (int i = 0; i < 5; i++) {
+                    int call = i;
+                    scope.fork(() -> call(call, latencies[call], -1, finished));
+                }
+                scope.join();
+                winner = scope.result();
+            }
+            if (report) {
+                long fastest = Long.MAX_VALUE;
+                for (int i = 0; i < 5; i++) fastest = Math.min(fastest, latencies[i]);
+                System.out.printf("%nfirstSuccess scope over 5 replicas (fastest %d ms):%n", fastest);
+                System.out.printf("  Winner call %d after %d ms, replicas run to completion: %d%n",
+                    winner, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), finished.get());
+            }
+
+            // 4. Deadline shorter than every call
+            finished.set(0);
+            start = System.nanoTime();
+            try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(Duration.ofMillis(80))) {
+                for (int i = 0; i < calls - 1; i++) {
+                    int call = i;
+                    scope.fork(() -> call(call, latencies[call], -1, finished));
+                }
+                scope.join();
+            } catch (TimeoutException e) {
+                if (report) {
+                    System.out.printf("%n80 ms deadline:%n  %s after %d ms, calls run to completion: %d%n",
+                        e.getMessage(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), finished.get());
+                }
+            }
+        }
+    }
+
+    private static int call(int call, long millis, int failing, AtomicInteger finished) throws Exception {
+        Thread.sleep(millis);
+        if (call == failing) {
+            throw new IllegalStateException("call " + call + " failed");
+        }
+        finished.incrementAndGet();
+        return call;
+    }
+
+    private static int uncheckedCall(int call, long millis, int failing, AtomicInteger finished) {
+        try {
+            return call(call, millis, failing, finished);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
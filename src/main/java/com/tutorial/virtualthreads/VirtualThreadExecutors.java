@@ -1,6 +1,10 @@
 package com.tutorial.virtualthreads;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 /**
@@ -26,6 +30,8 @@ import java.util.stream.IntStream;
  * 4. Performance Monitoring: Tracking virtual thread performance
  * 5. Best Practices: Effective virtual thread usage
  * 6. Integration: Using virtual threads with existing code
+ * 7. Structured Fan-Out: Scatter-gather that stops on the first failure
+ *    or first success, with deadlines and sibling cancellation (FanOutScope)
  * 
  * @author Rahul Kant Jha
  * @version 1.0
@@ -54,6 +60,9 @@ public class VirtualThreadExecutors {
         
         // 6. Best Practices
         demonstrateBestPractices();
+        
+        // 7. Structured Fan-Out
+        demonstrateStructuredFanOut();
     }
     
     /**
@@ -182,7 +191,7 @@ public class VirtualThreadExecutors {
         long startTime = System.currentTimeMillis();
         try (ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
             List<Future<Void>> futures = IntStream.range(0, taskCount)
-                .mapToObj(i -> virtualExecutor.submit(() -> {
+                .mapToObj(i -> virtualExecutor.<Void>submit(() -> {
                     try {
                         Thread.sleep(taskDuration);
                     } catch (InterruptedException e) {
@@ -207,7 +216,7 @@ public class VirtualThreadExecutors {
         startTime = System.currentTimeMillis();
         try (ExecutorService platformExecutor = Executors.newFixedThreadPool(10)) {
             List<Future<Void>> futures = IntStream.range(0, taskCount)
-                .mapToObj(i -> platformExecutor.submit(() -> {
+                .mapToObj(i -> platformExecutor.<Void>submit(() -> {
                     try {
                         Thread.sleep(taskDuration);
                     } catch (InterruptedException e) {
@@ -233,6 +242,7 @@ public class VirtualThreadExecutors {
         System.out.println("Virtual threads time: " + virtualThreadTime + " ms");
         System.out.println("Platform threads time: " + platformThreadTime + " ms");
         System.out.println("Performance ratio: " + (double) platformThreadTime / virtualThreadTime);
+        System.out.println("(Single run; for repeatable numbers run the JMH suite: mvn -f benchmarks/pom.xml verify -Pjmh)");
         
         System.out.println();
     }
@@ -295,6 +305,64 @@ public class VirtualThreadExecutors {
         System.out.println();
     }
     
+    /**
+     * Demonstrates structured fan-out with FanOutScope
+     */
+    private static void demonstrateStructuredFanOut() {
+        System.out.println("7. Structured Fan-Out:");
+        System.out.println("=====================");
+        
+        // All must succeed: the failing call cancels the slow siblings
+        long start = System.currentTimeMillis();
+        try {
+            invokeAllOrFail(List.of(
+                () -> slowCall("inventory", 1000),
+                () -> slowCall("pricing", 1000),
+                () -> { throw new IllegalStateException("reviews service unavailable"); }
+            ), Duration.ofSeconds(2));
+        } catch (ExecutionException e) {
+            System.out.println("Fan-out failed after " + (System.currentTimeMillis() - start)
+                + " ms: " + e.getCause().getMessage());
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        
+        // First success: query replicas, keep the fastest answer
+        start = System.currentTimeMillis();
+        try {
+            String answer = invokeFirstSuccess(List.of(
+                () -> slowCall("replica-1", 300),
+                () -> slowCall("replica-2", 100),
+                () -> slowCall("replica-3", 500)
+            ), Duration.ofSeconds(2));
+            System.out.println("First answer from " + answer + " after "
+                + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        
+        // Deadline: slow calls are cancelled when it passes
+        start = System.currentTimeMillis();
+        try {
+            invokeAllOrFail(List.of(
+                () -> slowCall("search", 50),
+                () -> slowCall("recommendations", 5000)
+            ), Duration.ofMillis(200));
+        } catch (TimeoutException e) {
+            System.out.println("Deadline hit after " + (System.currentTimeMillis() - start) + " ms: "
+                + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        
+        System.out.println();
+    }
+    
+    private static String slowCall(String service, long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return service;
+    }
+    
     /**
      * Utility method to create a virtual thread executor
      */
@@ -302,35 +370,114 @@ public class VirtualThreadExecutors {
         return Executors.newVirtualThreadPerTaskExecutor();
     }
     
+    /**
+     * Utility method to create a virtual thread executor that limits how many
+     * tasks use each named resource at once (resource name -> permits)
+     */
+    public static ResourceLimitedExecutor createBoundedVirtualThreadExecutor(Map<String, Integer> permits) {
+        ResourceLimitedExecutor executor = new ResourceLimitedExecutor();
+        permits.forEach(executor::registerResource);
+        return executor;
+    }
+    
     /**
      * Utility method to submit a task to virtual thread executor
      */
-    public static <T> CompletableFuture<T> submitTask(ExecutorService executor, java.util.function.Supplier<T> task) {
+    public static <T> CompletableFuture<T> submitTask(ExecutorService executor, Supplier<T> task) {
         return CompletableFuture.supplyAsync(task, executor);
     }
     
     /**
-     * Utility method to submit multiple tasks
+     * Utility method to submit a task with a deadline; when it passes, or
+     * when the returned future is cancelled, the task's thread is interrupted
+     */
+    public static <T> CompletableFuture<T> submitTask(ExecutorService executor, Supplier<T> task,
+                                                      Duration timeout) {
+        return supplyInterruptibly(executor, task).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Utility method to submit multiple tasks; cancelling one of the returned
+     * futures interrupts its task's thread
      */
     public static <T> List<CompletableFuture<T>> submitTasks(ExecutorService executor, 
-                                                           List<java.util.function.Supplier<T>> tasks) {
+                                                           List<Supplier<T>> tasks) {
         return tasks.stream()
-            .map(task -> CompletableFuture.supplyAsync(task, executor))
+            .map(task -> supplyInterruptibly(executor, task))
             .toList();
     }
     
     /**
-     * Utility method to wait for all tasks to complete
+     * Like CompletableFuture.supplyAsync, but a cancelled or failed future
+     * also cancels the executor's Future: CompletableFuture.cancel(true)
+     * never interrupts the thread running the task, Future.cancel(true) does
+     */
+    private static <T> CompletableFuture<T> supplyInterruptibly(ExecutorService executor, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Utility method to wait for all tasks to complete. Fails as soon as any
+     * task fails, whatever its position, and cancels the others; for futures
+     * from submitTasks that interrupts their threads, while plain supplyAsync
+     * futures are only marked cancelled and their tasks run on.
      */
     public static <T> List<T> waitForAllTasks(List<CompletableFuture<T>> futures) {
-        return futures.stream()
-            .map(future -> {
-                try {
-                    return future.get();
-                } catch (Exception e) {
-                    throw new RuntimeException("Task failed", e);
-                }
-            })
-            .toList();
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        futures.forEach(future -> future.whenComplete((value, error) -> {
+            if (error != null) {
+                firstFailure.completeExceptionally(error);
+            }
+        }));
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        
+        try {
+            CompletableFuture.anyOf(all, firstFailure).join();
+        } catch (CompletionException | CancellationException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Task failed", cause);
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+    
+    /**
+     * Utility method to run tasks on virtual threads and collect all results.
+     * The first failure cancels the remaining tasks and is thrown at once;
+     * when the deadline passes the remaining tasks are cancelled as well.
+     */
+    public static <T> List<T> invokeAllOrFail(List<Callable<T>> tasks, Duration deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try (FanOutScope<T> scope = FanOutScope.allSuccessful(deadline)) {
+            tasks.forEach(scope::fork);
+            scope.join();
+            return scope.results();
+        }
+    }
+    
+    /**
+     * Utility method to run tasks on virtual threads and return the first
+     * successful result, cancelling the rest
+     */
+    public static <T> T invokeFirstSuccess(List<Callable<T>> tasks, Duration deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try (FanOutScope<T> scope = FanOutScope.firstSuccess(deadline)) {
+            tasks.forEach(scope::fork);
+            scope.join();
+            return scope.result();
+        }
     }
 }
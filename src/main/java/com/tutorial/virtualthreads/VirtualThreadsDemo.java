@@ -419,6 +419,8 @@ public class VirtualThreadsDemo {
         System.out.println("\nMemory Usage Comparison:");
         System.out.println("Virtual threads: ~" + (taskCount * 1) + " KB (1 KB per thread)");
         System.out.println("Platform threads: ~" + (100 * 1024) + " KB (1 MB per thread, 100 threads)");
+        System.out.println("(Single run and rough estimates; for measured numbers run the JMH suite:");
+        System.out.println(" mvn -f benchmarks/pom.xml verify -Pjmh)");
         
         System.out.println();
     }
@@ -498,12 +500,28 @@ public class VirtualThreadsDemo {
 class VirtualThreadService {
     
     private final ExecutorService executor;
+    private final BatchingPipeline<String, String> pipeline;
     
     public VirtualThreadService() {
         this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.pipeline = null;
+    }
+    
+    /**
+     * Pipeline mode: items go through the pipeline's bounded, batching
+     * stages (e.g. read -> transform -> write) instead of one virtual
+     * thread each. Worth it for small items when every I/O call has a
+     * fixed cost; processData blocks while the first stage is full.
+     */
+    public VirtualThreadService(BatchingPipeline<String, String> pipeline) {
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.pipeline = pipeline;
     }
     
     public CompletableFuture<String> processData(String data) {
+        if (pipeline != null) {
+            return pipeline.submit(data);
+        }
         return CompletableFuture.supplyAsync(() -> {
             try {
                 // Simulate I/O operation
@@ -517,6 +535,9 @@ class VirtualThreadService {
     }
     
     public void shutdown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
         executor.shutdown();
     }
 }
@@ -0,0 +1,156 @@
+package com.tutorial.virtualthreads;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour tests for FanOutScope: results, short-circuiting, deadlines
+ * and sibling cancellation
+ */
+class FanOutScopeTest {
+
+    private static final Duration LONG_DEADLINE = Duration.ofSeconds(10);
+
+    @Test
+    void allSuccessfulReturnsResultsInForkOrder() throws Exception {
+        try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(LONG_DEADLINE)) {
+            scope.fork(() -> sleepThen(60, 1));
+            scope.fork(() -> sleepThen(10, 2));
+            scope.fork(() -> sleepThen(30, 3));
+            scope.join();
+            assertEquals(List.of(1, 2, 3), scope.results());
+        }
+    }
+
+    @Test
+    void allSuccessfulFailsOnFirstFailureAndInterruptsSiblings() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        FanOutScope.Subtask<Integer> slow;
+        long start = System.nanoTime();
+
+        try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(LONG_DEADLINE)) {
+            slow = scope.fork(() -> sleepUntilInterrupted(interrupted));
+            scope.fork(() -> sleepUntilInterrupted(interrupted));
+            scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class, scope::join);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+
+        assertTrue(elapsedMillis(start) < 2_000, "join() should not wait for the slow siblings");
+        assertEquals(2, interrupted.get());
+        assertEquals(FanOutScope.State.CANCELLED, slow.state());
+    }
+
+    @Test
+    void firstSuccessReturnsFastestAndCancelsTheRest() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+
+        try (FanOutScope<String> scope = FanOutScope.firstSuccess(LONG_DEADLINE)) {
+            scope.fork(() -> {
+                sleepUntilInterrupted(interrupted);
+                return "slow";
+            });
+            scope.fork(() -> sleepThen(20, "fast"));
+            scope.join();
+            assertEquals("fast", scope.result());
+        }
+
+        assertEquals(1, interrupted.get());
+    }
+
+    @Test
+    void firstSuccessIgnoresFailuresWhileAnotherSubtaskCanSucceed() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.firstSuccess(LONG_DEADLINE)) {
+            scope.fork(() -> {
+                throw new IllegalStateException("replica down");
+            });
+            scope.fork(() -> sleepThen(50, "replica 2"));
+            scope.join();
+            assertEquals("replica 2", scope.result());
+        }
+    }
+
+    @Test
+    void firstSuccessFailsWhenEverySubtaskFails() {
+        try (FanOutScope<String> scope = FanOutScope.firstSuccess(LONG_DEADLINE)) {
+            scope.fork(() -> {
+                throw new IllegalStateException("first");
+            });
+            scope.fork(() -> {
+                throw new IllegalArgumentException("second");
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class, scope::join);
+            assertNotNull(e.getCause());
+        }
+    }
+
+    @Test
+    void deadlineCancelsRunningSubtasks() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(2);
+        long start = System.nanoTime();
+
+        try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(Duration.ofMillis(100))) {
+            for (int i = 0; i < 2; i++) {
+                scope.fork(() -> {
+                    started.countDown();
+                    return sleepUntilInterrupted(interrupted);
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertThrows(TimeoutException.class, scope::join);
+        }
+
+        assertTrue(elapsedMillis(start) < 2_000, "the deadline should end the scope");
+        assertEquals(2, interrupted.get());
+    }
+
+    @Test
+    void closeWaitsForForkedThreads() {
+        AtomicInteger interrupted = new AtomicInteger();
+        FanOutScope.Subtask<Integer> subtask;
+
+        try (FanOutScope<Integer> scope = FanOutScope.allSuccessful(LONG_DEADLINE)) {
+            subtask = scope.fork(() -> sleepUntilInterrupted(interrupted));
+        }
+
+        // close() without join() cancels and waits, so nothing is left running
+        assertEquals(1, interrupted.get());
+        assertNotEquals(FanOutScope.State.RUNNING, subtask.state());
+    }
+
+    private static <T> T sleepThen(long millis, T value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+
+    /**
+     * Sleeps far longer than any test; counts the interrupt and rethrows it
+     */
+    private static Integer sleepUntilInterrupted(AtomicInteger interrupted) throws InterruptedException {
+        try {
+            Thread.sleep(30_000);
+            return 0;
+        } catch (InterruptedException e) {
+            interrupted.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
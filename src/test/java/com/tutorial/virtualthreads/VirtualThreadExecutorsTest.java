@@ -0,0 +1,177 @@
+package com.tutorial.virtualthreads;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour tests for the VirtualThreadExecutors task helpers, in
+ * particular that cancellation really interrupts the running tasks
+ */
+class VirtualThreadExecutorsTest {
+
+    @Test
+    void waitForAllTasksReturnsResultsInSubmissionOrder() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Supplier<Integer>> tasks = List.of(
+                () -> sleepThen(60, 1),
+                () -> sleepThen(10, 2),
+                () -> sleepThen(30, 3));
+
+            List<Integer> results = VirtualThreadExecutors.waitForAllTasks(
+                VirtualThreadExecutors.submitTasks(executor, tasks));
+
+            assertEquals(List.of(1, 2, 3), results);
+        }
+    }
+
+    @Test
+    void waitForAllTasksFailsFastAndInterruptsTheOtherTasks() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(5);
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(5);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Supplier<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(() -> {
+                started.countDown();
+                return sleepUnlessInterrupted(2_000, interrupted, finished);
+            });
+        }
+        // Last in submission order, so an in-order join would wait for the others.
+        // It fails only once every sibling is running: a sibling still queued
+        // is cancelled without ever starting, so it would never see an interrupt.
+        tasks.add(() -> {
+            awaitQuietly(started);
+            throw new IllegalStateException("boom");
+        });
+
+        long start = System.nanoTime();
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> VirtualThreadExecutors.waitForAllTasks(VirtualThreadExecutors.submitTasks(executor, tasks)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        executor.shutdown();
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(elapsedMillis < 1_000, "waitForAllTasks took " + elapsedMillis + " ms");
+        assertInterrupted(interrupted);
+        assertEquals(0, finished.get());
+    }
+
+    @Test
+    void cancellingASubmittedTaskInterruptsIt() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        CompletableFuture<Integer> future = VirtualThreadExecutors.submitTasks(executor,
+            List.<Supplier<Integer>>of(() -> {
+                started.countDown();
+                return sleepUnlessInterrupted(2_000, interrupted, finished);
+            })).get(0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        future.cancel(true);
+
+        executor.shutdown();
+        assertInterrupted(interrupted);
+    }
+
+    @Test
+    void submitTaskWithDeadlineTimesOutAndInterruptsTheTask() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        CompletableFuture<Integer> future = VirtualThreadExecutors.submitTask(executor,
+            () -> sleepUnlessInterrupted(2_000, interrupted, finished), Duration.ofMillis(500));
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        executor.shutdown();
+        assertInterrupted(interrupted);
+        assertEquals(0, finished.get());
+    }
+
+    @Test
+    void invokeAllOrFailCancelsSiblingsOnFailure() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+            () -> VirtualThreadExecutors.invokeAllOrFail(List.of(
+                () -> {
+                    started.countDown();
+                    return sleepUnlessInterrupted(2_000, interrupted, finished);
+                },
+                () -> {
+                    started.await();
+                    throw new IllegalStateException("boom");
+                }), Duration.ofSeconds(5)));
+
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertInterrupted(interrupted);
+        assertEquals(0, finished.get());
+    }
+
+    @Test
+    void invokeFirstSuccessReturnsTheFastestResult() throws Exception {
+        String result = VirtualThreadExecutors.invokeFirstSuccess(List.of(
+            () -> sleepThen(1_000, "slow"),
+            () -> sleepThen(10, "fast")), Duration.ofSeconds(5));
+
+        assertEquals("fast", result);
+    }
+
+    private static <T> T sleepThen(long millis, T value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Integer sleepUnlessInterrupted(long millis, CountDownLatch interrupted, AtomicInteger finished) {
+        try {
+            Thread.sleep(millis);
+            finished.incrementAndGet();
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return 0;
+    }
+
+    /**
+     * Cancelling a future lets the executor terminate before the interrupted
+     * task has run its catch block, so wait on the latch rather than on
+     * awaitTermination()
+     */
+    private static void assertInterrupted(CountDownLatch interrupted) throws InterruptedException {
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS),
+            interrupted.getCount() + " task(s) were never interrupted");
+    }
+}